@@ -183,7 +183,7 @@ implements Serializable
 	 */
 	public ASN1Tag()
 	{
-		this(ASN1Class.UNIVERSAL, TN_EOC, true);
+		this(ASN1Class.UNIVERSAL, TN_EOC, false);
 	}
 	
 	/**
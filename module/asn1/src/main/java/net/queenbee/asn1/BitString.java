@@ -0,0 +1,340 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * ASN.1 bit string.
+ * 
+ * <p>
+ * Bits are packed into bytes as they are encoded, first bit being the most
+ * significant one of the first byte, together with the count of unused bits
+ * of the last byte. Unused bits are always zero. Bit strings are immutable,
+ * and checks of bit sets, like key usages, are done as byte mask operations.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class BitString
+implements Serializable
+{
+	private static final long serialVersionUID = -2781452371283651062L;
+	
+	private static final byte[] EMPTY = new byte[0];
+	
+	private byte[] bytes;
+	private int padding;
+	
+	/**
+	 * Constructs a bit string from its packed bytes.
+	 * 
+	 * @param bytes
+	 * 			Packed bits.
+	 * @param padding
+	 * 			Count of unused bits of the last byte.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If padding is not valid.
+	 */
+	public BitString(byte[] bytes, int padding)
+	{
+		this(bytes, 0, bytes.length, padding);
+	}
+	
+	/**
+	 * Constructs a bit string from a range of packed bytes.
+	 * 
+	 * @param bytes
+	 * 			Array holding the packed bits.
+	 * @param offset
+	 * 			Offset of the first byte.
+	 * @param length
+	 * 			Count of bytes.
+	 * @param padding
+	 * 			Count of unused bits of the last byte.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If padding is not valid.
+	 */
+	public BitString(byte[] bytes, int offset, int length, int padding)
+	{
+		if (padding < 0 || padding > 7 || (length == 0 && padding > 0))
+		{
+			StringBuilder msg = new StringBuilder();
+			msg.append("Invalid bit string padding: ").append(padding);
+			throw new IllegalArgumentException(msg.toString());
+		}
+		this.bytes = Arrays.copyOfRange(bytes, offset, offset + length);
+		this.padding = padding;
+		if (length > 0)
+			this.bytes[length - 1] &= (byte) (0xff << padding);
+	}
+	
+	/**
+	 * Constructs a bit string from its bits.
+	 * 
+	 * @param bits
+	 * 			Bit values.
+	 */
+	public BitString(boolean[] bits)
+	{
+		bytes = bits.length == 0 ? EMPTY : new byte[(bits.length + 7) >>> 3];
+		padding = (8 - (bits.length & 0x07)) & 0x07;
+		for (int i = 0; i < bits.length; ++i)
+			if (bits[i])
+				bytes[i >>> 3] |= (byte) (0x80 >>> (i & 0x07));
+	}
+	
+	/**
+	 * Count of bits.
+	 * 
+	 * @return
+	 * 			Bit count.
+	 */
+	public int length()
+	{
+		return bytes.length * 8 - padding;
+	}
+	
+	/**
+	 * Value of the bit at the given position. Bits beyond the length are
+	 * zero, as named bits of a trimmed bit string.
+	 * 
+	 * @param index
+	 * 			Bit position.
+	 * 
+	 * @return
+	 * 			Bit value.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 * 			If {@code index < 0}.
+	 */
+	public boolean get(int index)
+	{
+		if (index < 0)
+			throw new IndexOutOfBoundsException();
+		int i = index >>> 3;
+		return i < bytes.length && (bytes[i] & (0x80 >>> (index & 0x07))) != 0;
+	}
+	
+	/**
+	 * Count of unused bits of the last byte.
+	 * 
+	 * @return
+	 * 			Padding bit count.
+	 */
+	public int getPadding()
+	{
+		return padding;
+	}
+	
+	/**
+	 * Copy of the packed bytes.
+	 * 
+	 * @return
+	 * 			Packed bits.
+	 */
+	public byte[] getBytes()
+	{
+		return bytes.clone();
+	}
+	
+	/**
+	 * Whether all bits set on the given bit string are set on this one.
+	 * 
+	 * @param bits
+	 * 			Bits to be checked.
+	 * 
+	 * @return
+	 * 			{@code true} if, and only if this bit string contains all the
+	 * 			given bits.
+	 */
+	public boolean containsAll(BitString bits)
+	{
+		for (int i = 0; i < bits.bytes.length; ++i)
+		{
+			int b = i < bytes.length ? bytes[i] : 0;
+			if ((bits.bytes[i] & ~b) != 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Whether any bit set on the given bit string is set on this one.
+	 * 
+	 * @param bits
+	 * 			Bits to be checked.
+	 * 
+	 * @return
+	 * 			{@code true} if, and only if both bit strings have some bit
+	 * 			set in common.
+	 */
+	public boolean intersects(BitString bits)
+	{
+		int n = Math.min(bytes.length, bits.bytes.length);
+		for (int i = 0; i < n; ++i)
+			if ((bytes[i] & bits.bytes[i]) != 0)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * This bit string without trailing zero bits, as DER requires for named
+	 * bit lists.
+	 * 
+	 * @return
+	 * 			The trimmed bit string, which may be this one.
+	 */
+	public BitString trimmed()
+	{
+		int n = bytes.length;
+		while (n > 0 && bytes[n - 1] == 0)
+			--n;
+		int p = n == 0 ? 0 : Integer.numberOfTrailingZeros(bytes[n - 1]);
+		if (n == bytes.length && p == padding)
+			return this;
+		return new BitString(bytes, 0, n, p);
+	}
+	
+	/**
+	 * Bits of this bit string as an array.
+	 * 
+	 * @return
+	 * 			A new array with the bit values.
+	 */
+	public boolean[] toBooleanArray()
+	{
+		boolean[] bits = new boolean[length()];
+		for (int i = 0; i < bits.length; ++i)
+			bits[i] = (bytes[i >>> 3] & (0x80 >>> (i & 0x07))) != 0;
+		return bits;
+	}
+	
+	/**
+	 * Length of the content octets of this bit string.
+	 * 
+	 * @return
+	 * 			Content octets length, including the padding octet.
+	 */
+	public int getContentsLength()
+	{
+		return bytes.length + 1;
+	}
+	
+	/**
+	 * Write the content octets of this bit string, that is the padding octet
+	 * followed by the packed bytes.
+	 * 
+	 * @param out
+	 * 			Output stream where content octets are written to.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeContents(OutputStream out)
+	throws IOException
+	{
+		out.write(padding);
+		out.write(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Two bit strings are equals if, and only if they have same bits.
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj != null && obj instanceof BitString)
+		{
+			BitString bs = (BitString) obj;
+			return padding == bs.padding && Arrays.equals(bytes, bs.bytes);
+		}
+		return false;
+	}
+	
+	/**
+	 * Based on all bits.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(bytes) * 8 + padding;
+	}
+	
+	/**
+	 * Binary representation of this bit string.
+	 */
+	@Override
+	public String toString()
+	{
+		int length = length();
+		StringBuilder sb = new StringBuilder(length + 3);
+		sb.append('\'');
+		for (int i = 0; i < length; ++i)
+			sb.append(get(i) ? '1' : '0');
+		sb.append("'B");
+		return sb.toString();
+	}
+	
+	/**
+	 * Creates a bit string from its bits, if any.
+	 * 
+	 * @param bits
+	 * 			Bit values, or {@code null}.
+	 * 
+	 * @return
+	 * 			The bit string, or {@code null} if there are no bits.
+	 */
+	public static BitString valueOf(boolean[] bits)
+	{
+		return bits == null ? null : new BitString(bits);
+	}
+	
+	/**
+	 * Creates a trimmed bit string with the given named bits set.
+	 * 
+	 * @param positions
+	 * 			Positions of the bits to be set.
+	 * 
+	 * @return
+	 * 			The bit string.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 * 			If some position is negative.
+	 */
+	public static BitString namedBits(int... positions)
+	{
+		int length = 0;
+		for (int position : positions)
+		{
+			if (position < 0)
+				throw new IndexOutOfBoundsException();
+			length = Math.max(length, position + 1);
+		}
+		
+		boolean[] bits = new boolean[length];
+		for (int position : positions)
+			bits[position] = true;
+		return new BitString(bits);
+	}
+}
\ No newline at end of file
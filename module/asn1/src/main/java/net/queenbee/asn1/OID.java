@@ -20,15 +20,27 @@ package net.queenbee.asn1;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.queenbee.asn1.io.OIDCodec;
 
 /**
  * ASN.1 object identifier.
  * 
+ * <p>
+ * Hash code, string representation and content octets are computed once
+ * per instance. Instances may be interned with {@link #intern()}, so
+ * {@link #valueOf(String)} returns the registered instance instead of parsing
+ * again. Well-known OIDs of this class are interned.
+ * </p>
+ * 
  * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
  */
 public class OID
@@ -81,8 +93,12 @@ implements Serializable
 	 */
 	public static final OID JOINT_DS;
 	
+	private static final ConcurrentMap<String, OID> registry;
+	
 	static
 	{
+		registry = new ConcurrentHashMap<>();
+		
 		ITU_REC = newITU(0);
 		ITU_QUEST = newITU(1);
 		ITU_ADMIN = newITU(2);
@@ -97,6 +113,9 @@ implements Serializable
 	}
 	
 	private int[] subId;
+	private transient int hash;
+	private transient String string;
+	private transient volatile byte[] contents;
 	
 	/**
 	 * Constructs an OID given its sub-identifiers.
@@ -119,6 +138,7 @@ implements Serializable
 		subId[1] = id2;
 		for (int i = 0; i < idn.length; ++i)
 			subId[i + 2] = idn[i];
+		hash = Arrays.hashCode(subId);
 	}
 	
 	/**
@@ -133,6 +153,7 @@ implements Serializable
 	public OID(String str)
 	{
 		subId = validated(parse(str));
+		hash = Arrays.hashCode(subId);
 	}
 	
 	/**
@@ -146,6 +167,7 @@ implements Serializable
 	public OID(OID base, int... idn)
 	{
 		subId = compound(base, idn);
+		hash = Arrays.hashCode(subId);
 	}
 	
 	/**
@@ -162,6 +184,7 @@ implements Serializable
 	public OID(OID base, String str)
 	{
 		subId = compound(base, parse(str));
+		hash = Arrays.hashCode(subId);
 	}
 	
 	/**
@@ -193,12 +216,12 @@ implements Serializable
 	}
 	
 	/**
-	 * Based on the first sub-identifier.
+	 * Based on all sub-identifiers, computed when this OID is constructed.
 	 */
 	@Override
 	public int hashCode()
 	{
-		return subId[0];
+		return hash;
 	}
 	
 	/**
@@ -210,7 +233,8 @@ implements Serializable
 		if (obj != null && obj instanceof OID)
 		{
 			OID oid = (OID) obj;
-			return Arrays.equals(subId, oid.subId);
+			return oid == this || (hash == oid.hash
+					&& Arrays.equals(subId, oid.subId));
 		}
 		return false;
 	}
@@ -243,20 +267,97 @@ implements Serializable
 	}
 	
 	/**
-	 * String representation of this OID.
+	 * String representation of this OID, built once.
 	 */
 	@Override
 	public String toString()
 	{
-		StringBuilder str = new StringBuilder();
-		str.append(subId[0]);
-		for (int i = 1; i < subId.length; ++i)
-			str.append('.').append(subId[i]);
-		return str.toString();
+		String s = string;
+		if (s == null)
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append(subId[0]);
+			for (int i = 1; i < subId.length; ++i)
+				sb.append('.').append(subId[i]);
+			s = sb.toString();
+			string = s;
+		}
+		return s;
+	}
+	
+	/**
+	 * Length of the DER content octets of this OID.
+	 * 
+	 * @return
+	 * 			Content octets length.
+	 */
+	public int getContentsLength()
+	{
+		return contents().length;
+	}
+	
+	/**
+	 * Copy of the DER content octets of this OID.
+	 * 
+	 * @return
+	 * 			Content octets, without identifier and length octets.
+	 */
+	public byte[] getContents()
+	{
+		return contents().clone();
+	}
+	
+	/**
+	 * Write the DER content octets of this OID, which are encoded once.
+	 * 
+	 * @param out
+	 * 			Output stream where content octets are written to.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeContents(OutputStream out)
+	throws IOException
+	{
+		byte[] c = contents();
+		out.write(c, 0, c.length);
+	}
+	
+	/**
+	 * Registered OID equal to this one. If there is not any, this one is
+	 * registered.
+	 * 
+	 * @return
+	 * 			The registered OID.
+	 */
+	public OID intern()
+	{
+		OID oid = registry.putIfAbsent(toString(), this);
+		return oid == null ? this : oid;
+	}
+	
+	/**
+	 * Registered OID with the given string representation, or a new one if
+	 * there is not any. The new OID is not registered.
+	 * 
+	 * @param str
+	 * 			OID string representation.
+	 * 
+	 * @return
+	 * 			The registered or the new OID.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the string representation is not valid.
+	 */
+	public static OID valueOf(String str)
+	{
+		OID oid = registry.get(str);
+		return oid == null ? new OID(str) : oid;
 	}
 	
 	/**
-	 * Creates an OID from an string representation.
+	 * Creates an OID from an string representation. Same as
+	 * {@link #valueOf(String)}.
 	 * 
 	 * @param str
 	 * 			OID string representation.
@@ -266,7 +367,7 @@ implements Serializable
 	 */
 	public static OID parseOID(String str)
 	{
-		return new OID(str);
+		return valueOf(str);
 	}
 	
 	/*
@@ -276,6 +377,7 @@ implements Serializable
 	throws IOException, ClassNotFoundException
 	{
 		subId = validated(parse(in.readUTF()));
+		hash = Arrays.hashCode(subId);
 	}
 	
 	/*
@@ -284,7 +386,32 @@ implements Serializable
 	private void writeObject(ObjectOutputStream out)
 	throws IOException
 	{
-		out.writeChars(toString());
+		out.writeUTF(toString());
+	}
+	
+	/*
+	 * Registered instance replaces the deserialized one.
+	 */
+	private Object readResolve()
+	{
+		OID oid = registry.get(toString());
+		return oid == null ? this : oid;
+	}
+	
+	/*
+	 * Content octets, encoded on first use. Field is volatile, otherwise
+	 * interned OIDs could publish the array before it is filled.
+	 */
+	private byte[] contents()
+	{
+		byte[] c = contents;
+		if (c == null)
+		{
+			c = new byte[OIDCodec.encodedLength(subId, subId.length)];
+			OIDCodec.encode(subId, subId.length, c, 0);
+			contents = c;
+		}
+		return c;
 	}
 	
 	/*
@@ -368,7 +495,7 @@ implements Serializable
 	 * 			Next sub-identifiers.
 	 * 
 	 * @return
-	 * 			The ITU object identifier.
+	 * 			The registered ITU object identifier.
 	 * 
 	 * @throws IllegalArgumentException
 	 * 			If second sub-identifier is not valid.
@@ -376,7 +503,7 @@ implements Serializable
 	 */
 	private static OID newITU(int id2, int... idn)
 	{
-		return new OID(0, id2, idn);
+		return new OID(0, id2, idn).intern();
 	}
 	
 	/**
@@ -388,7 +515,7 @@ implements Serializable
 	 * 			Next sub-identifiers.
 	 * 
 	 * @return
-	 * 			The ISO object identifier.
+	 * 			The registered ISO object identifier.
 	 * 
 	 * @throws IllegalArgumentException
 	 * 			If second sub-identifier is not valid.
@@ -396,7 +523,7 @@ implements Serializable
 	 */
 	private static OID newISO(int id2, int... idn)
 	{
-		return new OID(1, id2, idn);
+		return new OID(1, id2, idn).intern();
 	}
 	
 	/**
@@ -408,7 +535,7 @@ implements Serializable
 	 * 			Next sub-identifiers.
 	 * 
 	 * @return
-	 * 			The Joint-ISO-ITU object identifier.
+	 * 			The registered Joint-ISO-ITU object identifier.
 	 * 
 	 * @throws IllegalArgumentException
 	 * 			If second sub-identifier is not valid.
@@ -416,6 +543,6 @@ implements Serializable
 	 */
 	private static OID newJoint(int id2, int... idn)
 	{
-		return new OID(2, id2, idn);
+		return new OID(2, id2, idn).intern();
 	}
 }
\ No newline at end of file
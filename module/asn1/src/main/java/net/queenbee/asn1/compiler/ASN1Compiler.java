@@ -0,0 +1,133 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiler of ASN.1 modules into Java codec classes.
+ * 
+ * <p>
+ * Every sequence and choice type assignment of the compiled modules is
+ * turned into a class with a public field for each component, and methods
+ * to decode it from a {@link net.queenbee.asn1.io.BERDecoder} and to encode
+ * it to a {@link net.queenbee.asn1.io.DEROutputStream}. Generated code does
+ * not use reflection, and tags are checked and written without creating any
+ * {@link net.queenbee.asn1.ASN1Tag}.
+ * </p>
+ * 
+ * <p>
+ * All modules compiled together share a single type namespace, so they may
+ * reference types of each other.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class ASN1Compiler
+{
+	private Map<String, SchemaType> types;
+	private Map<String, String> modules;
+	
+	/**
+	 * Creates a compiler without modules.
+	 */
+	public ASN1Compiler()
+	{
+		types = new LinkedHashMap<>();
+		modules = new LinkedHashMap<>();
+	}
+	
+	/**
+	 * Parses the modules of the given schema file.
+	 * 
+	 * @param schema
+	 * 			Schema file path.
+	 * 
+	 * @throws IOException
+	 * 			If schema file could not be read.
+	 * @throws ASN1SchemaException
+	 * 			If schema is not valid or not supported.
+	 */
+	public void parse(Path schema)
+	throws IOException, ASN1SchemaException
+	{
+		String text = new String(Files.readAllBytes(schema),
+				StandardCharsets.UTF_8);
+		new SchemaParser(schema.getFileName().toString(), text).parse(types,
+				modules);
+	}
+	
+	/**
+	 * Generates codec classes of all parsed modules.
+	 * 
+	 * @param outputDir
+	 * 			Root directory of generated sources.
+	 * @param packageName
+	 * 			Package of generated classes.
+	 * 
+	 * @return
+	 * 			Generated source files.
+	 * 
+	 * @throws IOException
+	 * 			If some source could not be written.
+	 * @throws ASN1SchemaException
+	 * 			If some type is not supported.
+	 */
+	public List<Path> generate(Path outputDir, String packageName)
+	throws IOException, ASN1SchemaException
+	{
+		return new CodecGenerator(types, modules, packageName).generate(
+				outputDir);
+	}
+	
+	/**
+	 * Compiles schema files from the command line.
+	 * 
+	 * @param args
+	 * 			Output directory, package name and schema files.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: ASN1Compiler <output directory> "
+					+ "<package> <schema>...");
+			System.exit(2);
+		}
+		
+		try
+		{
+			ASN1Compiler compiler = new ASN1Compiler();
+			for (int i = 2; i < args.length; ++i)
+				compiler.parse(Paths.get(args[i]));
+			compiler.generate(Paths.get(args[0]), args[1]);
+		}
+		catch (IOException | ASN1SchemaException exception)
+		{
+			System.err.println(exception.getMessage());
+			System.exit(1);
+		}
+	}
+}
\ No newline at end of file
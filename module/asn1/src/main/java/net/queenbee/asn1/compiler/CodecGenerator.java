@@ -0,0 +1,1026 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.compiler;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.compiler.SchemaType.Component;
+import net.queenbee.asn1.compiler.SchemaType.Kind;
+
+/**
+ * Generator of Java codec classes for schema types.
+ * 
+ * <p>
+ * A class is generated for each sequence and choice type assignment, while
+ * any other assignment is an alias inlined where it is referenced. Generated
+ * decoders walk a {@link net.queenbee.asn1.io.BERDecoder} comparing tags as
+ * primitive values, and generated encoders write constant tags to a
+ * {@link net.queenbee.asn1.io.DEROutputStream}.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+class CodecGenerator
+{
+	private static final int MAX_ALIAS_DEPTH = 64;
+	
+	private static final Set<String> javaKeywords;
+	
+	static
+	{
+		javaKeywords = new HashSet<>(Arrays.asList("abstract", "assert",
+				"boolean", "break", "byte", "case", "catch", "char", "class",
+				"const", "continue", "default", "do", "double", "else",
+				"enum", "extends", "false", "final", "finally", "float",
+				"for", "goto", "if", "implements", "import", "instanceof",
+				"int", "interface", "long", "native", "new", "null",
+				"package", "private", "protected", "public", "return",
+				"short", "static", "strictfp", "super", "switch",
+				"synchronized", "this", "throw", "throws", "transient",
+				"true", "try", "void", "volatile", "while"));
+	}
+	
+	private Map<String, SchemaType> types;
+	private Map<String, String> modules;
+	private String packageName;
+	
+	private String typeName;
+	private String className;
+	private SchemaType classBody;
+	private Set<String> imports;
+	private Map<String, String> tagConstants;
+	private Map<Component, String> defaultValues;
+	private List<String> constants;
+	private StringBuilder code;
+	private int indent;
+	private int localCount;
+	
+	public CodecGenerator(Map<String, SchemaType> types,
+			Map<String, String> modules, String packageName)
+	{
+		this.types = types;
+		this.modules = modules;
+		this.packageName = packageName;
+	}
+	
+	/**
+	 * Writes generated sources into the package directory under the given
+	 * one.
+	 * 
+	 * @param outputDir
+	 * 			Root directory of generated sources.
+	 * 
+	 * @return
+	 * 			Generated source files.
+	 * 
+	 * @throws IOException
+	 * 			If some source could not be written.
+	 * @throws ASN1SchemaException
+	 * 			If some type is not supported.
+	 */
+	public List<Path> generate(Path outputDir)
+	throws IOException, ASN1SchemaException
+	{
+		Path dir = outputDir;
+		for (String part : packageName.split("\\."))
+			dir = dir.resolve(part);
+		Files.createDirectories(dir);
+		
+		List<Path> files = new ArrayList<>();
+		for (Map.Entry<String, SchemaType> entry : types.entrySet())
+			if (isClass(entry.getKey()))
+			{
+				String source = generateClass(entry.getKey(),
+						entry.getValue());
+				Path file = dir.resolve(javaTypeName(entry.getKey())
+						+ ".java");
+				Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+				files.add(file);
+			}
+		return files;
+	}
+	
+	/*
+	 * Source of the class for the given sequence or choice assignment.
+	 */
+	private String generateClass(String name, SchemaType type)
+	throws ASN1SchemaException
+	{
+		typeName = name;
+		className = javaTypeName(name);
+		classBody = body(type);
+		imports = new TreeSet<>();
+		tagConstants = new LinkedHashMap<>();
+		defaultValues = new HashMap<>();
+		constants = new ArrayList<>();
+		code = new StringBuilder();
+		indent = 1;
+		localCount = 0;
+		
+		imports.add("java.io.IOException");
+		imports.add("net.queenbee.asn1.io.BERDecoder");
+		imports.add("net.queenbee.asn1.io.BEREncodingException");
+		imports.add("net.queenbee.asn1.io.DEROutputStream");
+		
+		boolean choice = classBody.getKind() == Kind.CHOICE;
+		boolean bareChoice = choice && type == classBody;
+		
+		// Fields
+		for (Component component : classBody.getComponents())
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("public ");
+			sb.append(javaType(component.getType(),
+					choice || component.isOptional()));
+			sb.append(' ');
+			sb.append(javaFieldName(component.getName()));
+			if (component.getDefaultValue() != null)
+			{
+				String defaultValue = defaultValue(component);
+				defaultValues.put(component, defaultValue);
+				sb.append(" = ");
+				sb.append(defaultValue);
+			}
+			sb.append(';');
+			line(sb.toString());
+		}
+		if (!classBody.getComponents().isEmpty())
+			line("");
+		
+		// Tag check
+		String test = tagTest(type);
+		javadoc("Whether the current tag of the given decoder may be decoded "
+				+ "as this type.");
+		line("public static boolean matches(BERDecoder d)");
+		open();
+		line("return " + (test == null ? "true" : test) + ";");
+		close();
+		line("");
+		
+		// Decoding
+		javadoc("Decodes the current tag of the given decoder.");
+		line("public static " + className + " decode(BERDecoder d)");
+		line("throws BEREncodingException");
+		open();
+		if (test != null)
+		{
+			line("if (" + not(test) + ")");
+			throwLine("Unexpected tag for " + typeName);
+		}
+		if (bareChoice)
+		{
+			line(className + " value = new " + className + "();");
+			decode(type, "value");
+			line("return value;");
+		}
+		else
+			line("return decodeContents(d);");
+		close();
+		line("");
+		
+		if (!bareChoice)
+		{
+			line("static " + className + " decodeContents(BERDecoder d)");
+			line("throws BEREncodingException");
+			open();
+			line(className + " value = new " + className + "();");
+			decodeContents(type, "value");
+			line("return value;");
+			close();
+			line("");
+		}
+		
+		// Encoding
+		javadoc("Encodes this value to the given output stream.");
+		line("public void encode(DEROutputStream out)");
+		line("throws IOException, BEREncodingException");
+		open();
+		if (bareChoice)
+			encode(type, "this");
+		else
+		{
+			line("out.writeTag(" + outerTag(type) + ");");
+			line("encodeContents(out);");
+			line("out.conclude();");
+		}
+		close();
+		
+		if (!bareChoice)
+		{
+			line("");
+			line("void encodeContents(DEROutputStream out)");
+			line("throws IOException, BEREncodingException");
+			open();
+			encodeContents(type, "this");
+			close();
+		}
+		
+		// Whole source
+		StringBuilder sb = new StringBuilder();
+		sb.append("/*\n");
+		sb.append(" * Generated by ASN1Compiler from ASN.1 module ");
+		sb.append(modules.get(name));
+		sb.append(". Do not edit.\n");
+		sb.append(" */\n\n");
+		sb.append("package ").append(packageName).append(";\n\n");
+		boolean javaImports = false;
+		for (String i : imports)
+			if (i.startsWith("java."))
+			{
+				sb.append("import ").append(i).append(";\n");
+				javaImports = true;
+			}
+		if (javaImports)
+			sb.append('\n');
+		for (String i : imports)
+			if (!i.startsWith("java."))
+				sb.append("import ").append(i).append(";\n");
+		sb.append("\n/**\n * Codec of ASN.1 type {@code ");
+		sb.append(typeName);
+		sb.append("}.\n */\npublic class ");
+		sb.append(className);
+		sb.append("\n{\n");
+		for (Map.Entry<String, String> entry : tagConstants.entrySet())
+			sb.append("\tprivate static final ASN1Tag ")
+					.append(entry.getValue()).append(" = ")
+					.append(entry.getKey()).append(";\n");
+		for (String constant : constants)
+			sb.append('\t').append(constant).append('\n');
+		if (!tagConstants.isEmpty() || !constants.isEmpty())
+			sb.append('\n');
+		sb.append(code);
+		sb.append("}\n");
+		return sb.toString();
+	}
+	
+	private void decode(SchemaType type, String target)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			if (isExplicit(type))
+				decodeExplicit(type.getInner(), target);
+			else
+				decodeContents(type.getInner(), target);
+			break;
+		case REFERENCE:
+			line(target + " = " + javaTypeName(type.getReference())
+					+ ".decode(d);");
+			break;
+		case CHOICE:
+			decodeChoice(type);
+			break;
+		case ANY:
+			line(target + " = d.readEncoded();");
+			break;
+		default:
+			decodeContents(type, target);
+		}
+	}
+	
+	private void decodeExplicit(SchemaType inner, String target)
+	throws ASN1SchemaException
+	{
+		String test = tagTest(inner);
+		line("d.enter();");
+		line("if (!d.next()" + (test == null ? "" : " || " + not(test))
+				+ ")");
+		throwLine("Unexpected tag in " + typeName);
+		decode(inner, target);
+		line("d.exit();");
+	}
+	
+	private void decodeContents(SchemaType type, String target)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			if (isExplicit(type))
+				decodeExplicit(type.getInner(), target);
+			else
+				decodeContents(type.getInner(), target);
+			break;
+		case REFERENCE:
+			line(target + " = " + javaTypeName(type.getReference())
+					+ ".decodeContents(d);");
+			break;
+		case SEQUENCE:
+			decodeSequence(type);
+			break;
+		case SEQUENCE_OF:
+		case SET_OF:
+		{
+			String itemType = javaType(type.getInner(), true);
+			String list = local("list");
+			String item = local("item");
+			imports.add("java.util.ArrayList");
+			line("List<" + itemType + "> " + list + " = new ArrayList<>();");
+			line("d.enter();");
+			line("while (d.next())");
+			open();
+			String test = tagTest(type.getInner());
+			if (test != null)
+			{
+				line("if (" + not(test) + ")");
+				throwLine("Unexpected tag in " + typeName);
+			}
+			line(itemType + " " + item + ";");
+			decode(type.getInner(), item);
+			line(list + ".add(" + item + ");");
+			close();
+			line("d.exit();");
+			line(target + " = " + list + ";");
+			break;
+		}
+		case BOOLEAN:
+			line(target + " = d.readBoolean();");
+			break;
+		case INTEGER:
+			line(target + " = d.readInteger();");
+			break;
+		case BIT_STRING:
+			line(target + " = d.readBitString();");
+			break;
+		case OCTET_STRING:
+			line(target + " = d.readOctetString();");
+			break;
+		case NULL:
+			line(target + " = true;");
+			break;
+		case OBJECT_IDENTIFIER:
+			line(target + " = d.readObjectIdentifier();");
+			break;
+		case UTF8_STRING:
+			line(target + " = d.readUTF8String();");
+			break;
+		case IA5_STRING:
+		case PRINTABLE_STRING:
+			line(target + " = d.readIA5String();");
+			break;
+		case UTC_TIME:
+			line(target + " = d.readUTCTime();");
+			break;
+		case GENERALIZED_TIME:
+			line(target + " = d.readGeneralizedTime();");
+			break;
+		default:
+			throw error(type, "Implicit tagging of CHOICE or ANY");
+		}
+	}
+	
+	private void decodeSequence(SchemaType type)
+	throws ASN1SchemaException
+	{
+		checkBody(type);
+		line("d.enter();");
+		line("boolean more = d.next();");
+		for (Component component : type.getComponents())
+		{
+			String test = tagTest(component.getType());
+			String cond = test == null ? "more" : "more && " + group(test);
+			String field = "value." + javaFieldName(component.getName());
+			if (component.isOptional() || component.getDefaultValue() != null)
+			{
+				line("if (" + cond + ")");
+				open();
+				decode(component.getType(), field);
+				line("more = d.next();");
+				close();
+			}
+			else
+			{
+				line("if (!(" + cond + "))");
+				throwLine("Missing " + typeName + "." + component.getName());
+				decode(component.getType(), field);
+				line("more = d.next();");
+			}
+		}
+		if (!type.isExtensible())
+		{
+			line("if (more)");
+			throwLine("Unexpected tag in " + typeName);
+		}
+		line("d.exit();");
+	}
+	
+	private void decodeChoice(SchemaType type)
+	throws ASN1SchemaException
+	{
+		checkBody(type);
+		boolean first = true;
+		for (Component component : type.getComponents())
+		{
+			String test = tagTest(component.getType());
+			String field = "value." + javaFieldName(component.getName());
+			if (test == null)
+			{
+				// Open type alternative matches any tag
+				if (!first)
+					line("else");
+				open();
+				decode(component.getType(), field);
+				close();
+				return;
+			}
+			line((first ? "" : "else ") + "if (" + test + ")");
+			open();
+			decode(component.getType(), field);
+			close();
+			first = false;
+		}
+		line("else");
+		throwLine("Unexpected tag for " + typeName);
+	}
+	
+	private void encode(SchemaType type, String value)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+		{
+			boolean explicit = isExplicit(type);
+			line("out.writeTag(" + tagConstant(type.getTagClass(),
+					type.getTagNumber(), explicit
+					|| isConstructed(type.getInner())) + ");");
+			if (explicit)
+				encode(type.getInner(), value);
+			else
+				encodeContents(type.getInner(), value);
+			line("out.conclude();");
+			break;
+		}
+		case REFERENCE:
+			line(value + ".encode(out);");
+			break;
+		case CHOICE:
+			encodeChoice(type);
+			break;
+		case ANY:
+			line("out.writeRaw(" + value + ");");
+			break;
+		default:
+			line("out.writeTag(" + tagConstant(ASN1Class.UNIVERSAL,
+					universalNumber(type), isConstructed(type)) + ");");
+			encodeContents(type, value);
+			line("out.conclude();");
+		}
+	}
+	
+	private void encodeContents(SchemaType type, String value)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			if (isExplicit(type))
+				encode(type.getInner(), value);
+			else
+				encodeContents(type.getInner(), value);
+			break;
+		case REFERENCE:
+			line(value + ".encodeContents(out);");
+			break;
+		case SEQUENCE:
+			encodeSequence(type);
+			break;
+		case SEQUENCE_OF:
+		case SET_OF:
+		{
+			String item = local("item");
+			line("for (" + javaType(type.getInner(), true) + " " + item
+					+ " : " + value + ")");
+			open();
+			encode(type.getInner(), item);
+			close();
+			break;
+		}
+		case BOOLEAN:
+			line("out.writeBoolean(" + value + ");");
+			break;
+		case INTEGER:
+			line("out.writeInteger(" + value + ");");
+			break;
+		case BIT_STRING:
+			line("out.writeBitString(" + value + ");");
+			break;
+		case OCTET_STRING:
+			line("out.writeOctetString(" + value + ");");
+			break;
+		case NULL:
+			break;
+		case OBJECT_IDENTIFIER:
+			line("out.writeObjectIdentifier(" + value + ");");
+			break;
+		case UTF8_STRING:
+			line("out.writeUTF8String(" + value + ");");
+			break;
+		case IA5_STRING:
+		case PRINTABLE_STRING:
+			line("out.writeIA5String(" + value + ");");
+			break;
+		case UTC_TIME:
+			line("out.writeUTCTime(" + value + ");");
+			break;
+		case GENERALIZED_TIME:
+			line("out.writeGeneralizedTime(" + value + ");");
+			break;
+		default:
+			throw error(type, "Implicit tagging of CHOICE or ANY");
+		}
+	}
+	
+	private void encodeSequence(SchemaType type)
+	throws ASN1SchemaException
+	{
+		checkBody(type);
+		for (Component component : type.getComponents())
+		{
+			String field = "this." + javaFieldName(component.getName());
+			String defaultValue = defaultValues.get(component);
+			if (defaultValue != null)
+			{
+				// Default values are not encoded
+				if (javaType(component.getType(), false).equals("boolean"))
+					line("if (" + field + " != " + defaultValue + ")");
+				else
+					line("if (!" + defaultValue + ".equals(" + field + "))");
+			}
+			else if (component.isOptional())
+				line("if (" + field + " != null)");
+			else
+			{
+				if (!javaType(component.getType(), false).equals("boolean"))
+				{
+					line("if (" + field + " == null)");
+					throwLine("Missing " + typeName + "."
+							+ component.getName());
+				}
+				encode(component.getType(), field);
+				continue;
+			}
+			open();
+			encode(component.getType(), field);
+			close();
+		}
+	}
+	
+	private void encodeChoice(SchemaType type)
+	throws ASN1SchemaException
+	{
+		checkBody(type);
+		boolean first = true;
+		for (Component component : type.getComponents())
+		{
+			String field = "this." + javaFieldName(component.getName());
+			line((first ? "" : "else ") + "if (" + field + " != null)");
+			open();
+			encode(component.getType(), field);
+			close();
+			first = false;
+		}
+		line("else");
+		throwLine("No alternative chosen for " + typeName);
+	}
+	
+	/*
+	 * Constant of the tag of a sequence or a tagged type.
+	 */
+	private String outerTag(SchemaType type)
+	throws ASN1SchemaException
+	{
+		if (type.getKind() == Kind.TAGGED)
+			return tagConstant(type.getTagClass(), type.getTagNumber(),
+					isConstructed(type));
+		return tagConstant(ASN1Class.UNIVERSAL, universalNumber(type), true);
+	}
+	
+	/*
+	 * Condition checking the current tag against the first tag of the given
+	 * type, or null if it may start with any tag.
+	 */
+	private String tagTest(SchemaType type)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			return isTag(type.getTagClass(), type.getTagNumber(),
+					isExplicit(type) || isConstructed(type.getInner()));
+		case REFERENCE:
+			return tagTest(lookup(type, type.getReference()));
+		case CHOICE:
+		{
+			StringBuilder sb = new StringBuilder();
+			for (Component component : type.getComponents())
+			{
+				String test = tagTest(component.getType());
+				if (test == null)
+					return null;
+				if (sb.length() > 0)
+					sb.append(" || ");
+				sb.append(test);
+			}
+			return sb.toString();
+		}
+		case ANY:
+			return null;
+		default:
+			return isTag(ASN1Class.UNIVERSAL, universalNumber(type),
+					isConstructed(type));
+		}
+	}
+	
+	private static String not(String test)
+	{
+		return "!" + group(test);
+	}
+	
+	private static String group(String test)
+	{
+		return test.contains(" || ") ? "(" + test + ")" : test;
+	}
+	
+	private String isTag(ASN1Class tagClass, int tagNumber,
+			boolean constructed)
+	{
+		imports.add("net.queenbee.asn1.ASN1Class");
+		StringBuilder sb = new StringBuilder();
+		sb.append("d.isTag(ASN1Class.");
+		sb.append(tagClass.name());
+		sb.append(", ");
+		sb.append(tagNumber);
+		sb.append(", ");
+		sb.append(constructed);
+		sb.append(')');
+		return sb.toString();
+	}
+	
+	private String tagConstant(ASN1Class tagClass, int tagNumber,
+			boolean constructed)
+	{
+		imports.add("net.queenbee.asn1.ASN1Class");
+		imports.add("net.queenbee.asn1.ASN1Tag");
+		StringBuilder sb = new StringBuilder();
+		sb.append("new ASN1Tag(ASN1Class.");
+		sb.append(tagClass.name());
+		sb.append(", ");
+		sb.append(tagNumber);
+		sb.append(", ");
+		sb.append(constructed);
+		sb.append(')');
+		String key = sb.toString();
+		
+		String constant = tagConstants.get(key);
+		if (constant == null)
+		{
+			constant = "TAG_" + tagConstants.size();
+			tagConstants.put(key, constant);
+		}
+		return constant;
+	}
+	
+	/*
+	 * Whether a tagged type is explicitly tagged, which is always the case
+	 * for choice and open types.
+	 */
+	private boolean isExplicit(SchemaType tagged)
+	throws ASN1SchemaException
+	{
+		if (tagged.isExplicit())
+			return true;
+		SchemaType inner = deref(tagged.getInner());
+		if (inner.getKind() == Kind.REFERENCE)
+			inner = lookup(inner, inner.getReference());
+		return inner.getKind() == Kind.CHOICE || inner.getKind() == Kind.ANY;
+	}
+	
+	private boolean isConstructed(SchemaType type)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			return isExplicit(type) || isConstructed(type.getInner());
+		case REFERENCE:
+			return isConstructed(lookup(type, type.getReference()));
+		case SEQUENCE:
+		case SEQUENCE_OF:
+		case SET_OF:
+			return true;
+		case CHOICE:
+		case ANY:
+			throw error(type, "Tag of CHOICE or ANY depends on its value");
+		default:
+			return false;
+		}
+	}
+	
+	private int universalNumber(SchemaType type)
+	throws ASN1SchemaException
+	{
+		switch (type.getKind())
+		{
+		case BOOLEAN:
+			return ASN1Tag.TN_BOOLEAN;
+		case INTEGER:
+			return ASN1Tag.TN_INTEGER;
+		case BIT_STRING:
+			return ASN1Tag.TN_BIT_STRING;
+		case OCTET_STRING:
+			return ASN1Tag.TN_OCTET_STRING;
+		case NULL:
+			return ASN1Tag.TN_NULL;
+		case OBJECT_IDENTIFIER:
+			return ASN1Tag.TN_OBJECT_INDENTIFIER;
+		case UTF8_STRING:
+			return ASN1Tag.TN_UTF8_STRING;
+		case IA5_STRING:
+			return ASN1Tag.TN_IA5_STRING;
+		case PRINTABLE_STRING:
+			return ASN1Tag.TN_PRINTABLE_STRING;
+		case UTC_TIME:
+			return ASN1Tag.TN_UTC_TIME;
+		case GENERALIZED_TIME:
+			return ASN1Tag.TN_GENERALIZED_TIME;
+		case SEQUENCE:
+		case SEQUENCE_OF:
+			return ASN1Tag.TN_SEQUENCE;
+		case SET_OF:
+			return ASN1Tag.TN_SET;
+		default:
+			throw error(type, "No universal tag");
+		}
+	}
+	
+	private String javaType(SchemaType type, boolean boxed)
+	throws ASN1SchemaException
+	{
+		type = deref(type);
+		switch (type.getKind())
+		{
+		case TAGGED:
+			return javaType(type.getInner(), boxed);
+		case REFERENCE:
+			return javaTypeName(type.getReference());
+		case BOOLEAN:
+		case NULL:
+			return boxed ? "Boolean" : "boolean";
+		case INTEGER:
+			imports.add("java.math.BigInteger");
+			return "BigInteger";
+		case BIT_STRING:
+			imports.add("net.queenbee.asn1.BitString");
+			return "BitString";
+		case OCTET_STRING:
+		case ANY:
+			return "byte[]";
+		case OBJECT_IDENTIFIER:
+			imports.add("net.queenbee.asn1.OID");
+			return "OID";
+		case UTF8_STRING:
+		case IA5_STRING:
+		case PRINTABLE_STRING:
+			return "String";
+		case UTC_TIME:
+		case GENERALIZED_TIME:
+			imports.add("java.util.Date");
+			return "Date";
+		case SEQUENCE_OF:
+		case SET_OF:
+			imports.add("java.util.List");
+			return "List<" + javaType(type.getInner(), true) + ">";
+		default:
+			throw error(type, "Nested structured types must be assigned "
+					+ "to a type reference");
+		}
+	}
+	
+	/*
+	 * Java expression of a component default value.
+	 */
+	private String defaultValue(Component component)
+	throws ASN1SchemaException
+	{
+		SchemaType type = deref(component.getType());
+		while (type.getKind() == Kind.TAGGED)
+			type = deref(type.getInner());
+		String value = component.getDefaultValue();
+		
+		if (type.getKind() == Kind.BOOLEAN)
+		{
+			if (value.equals("TRUE"))
+				return "true";
+			if (value.equals("FALSE"))
+				return "false";
+		}
+		else if (type.getKind() == Kind.INTEGER)
+		{
+			BigInteger number = type.getNamedNumbers().get(value);
+			try
+			{
+				if (number == null)
+					number = new BigInteger(value);
+			}
+			catch (NumberFormatException exception)
+			{
+				throw error(type, "Unknown default value " + value);
+			}
+			
+			String field = javaFieldName(component.getName());
+			StringBuilder constant = new StringBuilder();
+			for (char c : field.toCharArray())
+			{
+				if (Character.isUpperCase(c))
+					constant.append('_');
+				constant.append(Character.toUpperCase(c));
+			}
+			constant.append("_DEFAULT");
+			constants.add("private static final BigInteger " + constant
+					+ " = BigInteger.valueOf(" + number + "l);");
+			return constant.toString();
+		}
+		throw error(type, "Unsupported default value " + value);
+	}
+	
+	/*
+	 * Follow references to types which are not classes.
+	 */
+	private SchemaType deref(SchemaType type)
+	throws ASN1SchemaException
+	{
+		for (int i = 0; type.getKind() == Kind.REFERENCE
+				&& !isClass(type.getReference()); ++i)
+		{
+			if (i == MAX_ALIAS_DEPTH)
+				throw error(type, "Circular type reference");
+			type = lookup(type, type.getReference());
+		}
+		return type;
+	}
+	
+	private boolean isClass(String name)
+	throws ASN1SchemaException
+	{
+		SchemaType type = types.get(name);
+		if (type == null)
+			return false;
+		Kind kind = body(type).getKind();
+		return kind == Kind.SEQUENCE || kind == Kind.CHOICE;
+	}
+	
+	private SchemaType lookup(SchemaType type, String name)
+	throws ASN1SchemaException
+	{
+		SchemaType referenced = types.get(name);
+		if (referenced == null)
+			throw error(type, "Undefined type " + name);
+		return referenced;
+	}
+	
+	private void checkBody(SchemaType type)
+	throws ASN1SchemaException
+	{
+		if (type != classBody)
+			throw error(type, "Nested structured types must be assigned to "
+					+ "a type reference");
+	}
+	
+	private String local(String prefix)
+	{
+		return prefix + (++localCount);
+	}
+	
+	private void javadoc(String text)
+	{
+		line("/**");
+		line(" * " + text);
+		line(" */");
+	}
+	
+	private void open()
+	{
+		line("{");
+		++indent;
+	}
+	
+	private void close()
+	{
+		--indent;
+		line("}");
+	}
+	
+	private void throwLine(String message)
+	{
+		++indent;
+		line("throw new BEREncodingException(\"" + message + "\");");
+		--indent;
+	}
+	
+	private void line(String text)
+	{
+		if (!text.isEmpty())
+			for (int i = 0; i < indent; ++i)
+				code.append('\t');
+		code.append(text);
+		code.append('\n');
+	}
+	
+	private static SchemaType body(SchemaType type)
+	{
+		while (type.getKind() == Kind.TAGGED)
+			type = type.getInner();
+		return type;
+	}
+	
+	private static ASN1SchemaException error(SchemaType type, String message)
+	{
+		StringBuilder msg = new StringBuilder();
+		msg.append(type.getLocation());
+		msg.append(": ");
+		msg.append(message);
+		return new ASN1SchemaException(msg.toString());
+	}
+	
+	/**
+	 * Java class name of the given type reference.
+	 * 
+	 * @param name
+	 * 			ASN.1 type reference.
+	 * 
+	 * @return
+	 * 			The Java class name.
+	 */
+	public static String javaTypeName(String name)
+	{
+		return camelCase(name);
+	}
+	
+	/**
+	 * Java field name of the given component name.
+	 * 
+	 * @param name
+	 * 			ASN.1 component name.
+	 * 
+	 * @return
+	 * 			The Java field name.
+	 */
+	public static String javaFieldName(String name)
+	{
+		String field = camelCase(name);
+		return javaKeywords.contains(field) ? field + "_" : field;
+	}
+	
+	private static String camelCase(String name)
+	{
+		StringBuilder sb = new StringBuilder();
+		boolean upper = false;
+		for (char c : name.toCharArray())
+			if (c == '-')
+				upper = true;
+			else
+			{
+				sb.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		return sb.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,510 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.compiler;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.compiler.SchemaType.Component;
+import net.queenbee.asn1.compiler.SchemaType.Kind;
+
+/**
+ * Parser of the ASN.1 subset understood by {@link ASN1Compiler}.
+ * 
+ * <p>
+ * Modules may define types with explicit or implicit tagging by default.
+ * Supported types are {@code BOOLEAN}, {@code INTEGER}, {@code BIT STRING},
+ * {@code OCTET STRING}, {@code NULL}, {@code OBJECT IDENTIFIER},
+ * {@code UTF8String}, {@code IA5String}, {@code PrintableString},
+ * {@code UTCTime}, {@code GeneralizedTime}, {@code ANY}, {@code SEQUENCE},
+ * {@code SEQUENCE OF}, {@code SET OF}, {@code CHOICE}, tagged types and
+ * references to other types. Constraints, named bits, imports, exports and
+ * value assignments are skipped.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+class SchemaParser
+{
+	private String source;
+	private String text;
+	private int pos;
+	private int line;
+	private String token;
+	private int tokenLine;
+	private boolean explicitTags;
+	
+	public SchemaParser(String source, String text)
+	{
+		this.source = source;
+		this.text = text;
+		pos = 0;
+		line = 1;
+		token = null;
+		tokenLine = 1;
+		explicitTags = true;
+	}
+	
+	/**
+	 * Parses all modules, adding their type assignments to the given maps.
+	 * 
+	 * @param types
+	 * 			Types by name.
+	 * @param modules
+	 * 			Module name by type name.
+	 * 
+	 * @throws ASN1SchemaException
+	 * 			If schema is not valid or not supported.
+	 */
+	public void parse(Map<String, SchemaType> types,
+			Map<String, String> modules)
+	throws ASN1SchemaException
+	{
+		advance();
+		while (token != null)
+			parseModule(types, modules);
+	}
+	
+	private void parseModule(Map<String, SchemaType> types,
+			Map<String, String> modules)
+	throws ASN1SchemaException
+	{
+		String moduleName = expectReference();
+		if (accept("{"))
+			skipBalanced("{", "}");
+		expect("DEFINITIONS");
+		
+		explicitTags = true;
+		if (token != null && token.equals("AUTOMATIC"))
+			throw error("Automatic tagging is not supported");
+		if (accept("IMPLICIT"))
+		{
+			explicitTags = false;
+			expect("TAGS");
+		}
+		else if (accept("EXPLICIT"))
+			expect("TAGS");
+		if (accept("EXTENSIBILITY"))
+			expect("IMPLIED");
+		expect("::=");
+		expect("BEGIN");
+		
+		if (accept("EXPORTS"))
+			skipTo(";");
+		if (accept("IMPORTS"))
+			skipTo(";");
+		
+		while (!accept("END"))
+		{
+			int assignmentLine = tokenLine;
+			String name = expectWord();
+			if (Character.isUpperCase(name.charAt(0)))
+			{
+				expect("::=");
+				SchemaType type = parseType();
+				if (types.containsKey(name))
+					throw error(assignmentLine, "Duplicated type " + name);
+				types.put(name, type);
+				modules.put(name, moduleName);
+			}
+			else
+			{
+				// Value assignment
+				parseType();
+				expect("::=");
+				if (accept("{"))
+					skipBalanced("{", "}");
+				else
+					advance();
+			}
+		}
+	}
+	
+	private SchemaType parseType()
+	throws ASN1SchemaException
+	{
+		String location = location(tokenLine);
+		
+		// Tagged type
+		if (accept("["))
+		{
+			ASN1Class tagClass = ASN1Class.CONTEXT_SPECIFIC;
+			if (accept("UNIVERSAL"))
+				tagClass = ASN1Class.UNIVERSAL;
+			else if (accept("APPLICATION"))
+				tagClass = ASN1Class.APPLICATION;
+			else if (accept("PRIVATE"))
+				tagClass = ASN1Class.PRIVATE;
+			int tagNumber = expectNumber().intValue();
+			expect("]");
+			
+			boolean explicit = explicitTags;
+			if (accept("IMPLICIT"))
+				explicit = false;
+			else if (accept("EXPLICIT"))
+				explicit = true;
+			return SchemaType.tagged(tagClass, tagNumber, explicit,
+					parseType(), location);
+		}
+		
+		SchemaType type;
+		String word = expectWord();
+		switch (word)
+		{
+		case "BOOLEAN":
+			type = SchemaType.builtin(Kind.BOOLEAN, location);
+			break;
+		case "INTEGER":
+			type = SchemaType.builtin(Kind.INTEGER, location);
+			if (accept("{"))
+			{
+				do
+				{
+					String name = expectWord();
+					expect("(");
+					type.getNamedNumbers().put(name, expectNumber());
+					expect(")");
+				}
+				while (accept(","));
+				expect("}");
+			}
+			break;
+		case "BIT":
+			expect("STRING");
+			type = SchemaType.builtin(Kind.BIT_STRING, location);
+			if (accept("{"))
+				skipBalanced("{", "}");
+			break;
+		case "OCTET":
+			expect("STRING");
+			type = SchemaType.builtin(Kind.OCTET_STRING, location);
+			break;
+		case "NULL":
+			type = SchemaType.builtin(Kind.NULL, location);
+			break;
+		case "OBJECT":
+			expect("IDENTIFIER");
+			type = SchemaType.builtin(Kind.OBJECT_IDENTIFIER, location);
+			break;
+		case "UTF8String":
+			type = SchemaType.builtin(Kind.UTF8_STRING, location);
+			break;
+		case "IA5String":
+			type = SchemaType.builtin(Kind.IA5_STRING, location);
+			break;
+		case "PrintableString":
+			type = SchemaType.builtin(Kind.PRINTABLE_STRING, location);
+			break;
+		case "UTCTime":
+			type = SchemaType.builtin(Kind.UTC_TIME, location);
+			break;
+		case "GeneralizedTime":
+			type = SchemaType.builtin(Kind.GENERALIZED_TIME, location);
+			break;
+		case "ANY":
+			type = SchemaType.builtin(Kind.ANY, location);
+			if (accept("DEFINED"))
+			{
+				expect("BY");
+				expectWord();
+			}
+			break;
+		case "SEQUENCE":
+		case "SET":
+			if (token != null && token.equals("{"))
+			{
+				if (word.equals("SET"))
+					throw error("SET type is not supported");
+				type = SchemaType.builtin(Kind.SEQUENCE, location);
+				parseComponents(type);
+				break;
+			}
+			if (accept("SIZE"))
+				expect("(");
+			else if (accept("("))
+				accept("SIZE");
+			else
+			{
+				expect("OF");
+				type = SchemaType.collection(word.equals("SET") ? Kind.SET_OF
+						: Kind.SEQUENCE_OF, parseType(), location);
+				break;
+			}
+			skipBalanced("(", ")");
+			expect("OF");
+			type = SchemaType.collection(word.equals("SET") ? Kind.SET_OF
+					: Kind.SEQUENCE_OF, parseType(), location);
+			break;
+		case "CHOICE":
+			type = SchemaType.builtin(Kind.CHOICE, location);
+			parseComponents(type);
+			break;
+		default:
+			if (!Character.isUpperCase(word.charAt(0)) || isKeyword(word))
+			{
+				StringBuilder msg = new StringBuilder();
+				msg.append("Unsupported type ");
+				msg.append(word);
+				throw error(msg.toString());
+			}
+			type = SchemaType.reference(word, location);
+		}
+		
+		// Constraints
+		while (accept("("))
+			skipBalanced("(", ")");
+		return type;
+	}
+	
+	private void parseComponents(SchemaType type)
+	throws ASN1SchemaException
+	{
+		expect("{");
+		if (accept("}"))
+			return;
+		do
+		{
+			if (accept("..."))
+			{
+				type.setExtensible(true);
+				continue;
+			}
+			if (token != null && token.equals("[["))
+				throw error("Extension addition groups are not supported");
+			
+			String name = expectWord();
+			if (name.equals("COMPONENTS"))
+				throw error("COMPONENTS OF is not supported");
+			if (!Character.isLowerCase(name.charAt(0)))
+				throw error("Component name expected");
+			SchemaType componentType = parseType();
+			
+			boolean optional = false;
+			String defaultValue = null;
+			if (accept("OPTIONAL"))
+				optional = true;
+			else if (accept("DEFAULT"))
+			{
+				if (token == null || token.equals("{"))
+					throw error("Only simple default values are supported");
+				defaultValue = token;
+				advance();
+			}
+			type.getComponents().add(new Component(name, componentType,
+					optional, defaultValue));
+		}
+		while (accept(","));
+		expect("}");
+	}
+	
+	/*
+	 * Skip tokens up to the one closing the already accepted opening one.
+	 */
+	private void skipBalanced(String open, String close)
+	throws ASN1SchemaException
+	{
+		int nesting = 1;
+		while (nesting > 0)
+		{
+			if (token == null)
+				throw error("Missing " + close);
+			if (token.equals(open))
+				++nesting;
+			else if (token.equals(close))
+				--nesting;
+			advance();
+		}
+	}
+	
+	private void skipTo(String end)
+	throws ASN1SchemaException
+	{
+		while (!accept(end))
+		{
+			if (token == null)
+				throw error("Missing " + end);
+			advance();
+		}
+	}
+	
+	private boolean accept(String expected)
+	throws ASN1SchemaException
+	{
+		if (token == null || !token.equals(expected))
+			return false;
+		advance();
+		return true;
+	}
+	
+	private void expect(String expected)
+	throws ASN1SchemaException
+	{
+		if (!accept(expected))
+		{
+			StringBuilder msg = new StringBuilder();
+			msg.append("Expected ");
+			msg.append(expected);
+			msg.append(" but found ");
+			msg.append(token == null ? "end of file" : token);
+			throw error(msg.toString());
+		}
+	}
+	
+	private String expectWord()
+	throws ASN1SchemaException
+	{
+		if (token == null || !Character.isLetter(token.charAt(0)))
+			throw error("Identifier expected");
+		String word = token;
+		advance();
+		return word;
+	}
+	
+	private String expectReference()
+	throws ASN1SchemaException
+	{
+		String word = expectWord();
+		if (!Character.isUpperCase(word.charAt(0)))
+			throw error("Module reference expected");
+		return word;
+	}
+	
+	private BigInteger expectNumber()
+	throws ASN1SchemaException
+	{
+		if (token == null || !(Character.isDigit(token.charAt(0))
+				|| token.startsWith("-")))
+			throw error("Number expected");
+		BigInteger number = new BigInteger(token);
+		advance();
+		return number;
+	}
+	
+	/*
+	 * Move to the next token, skipping white spaces and comments.
+	 */
+	private void advance()
+	throws ASN1SchemaException
+	{
+		while (pos < text.length())
+		{
+			char c = text.charAt(pos);
+			if (c == '\n')
+			{
+				++line;
+				++pos;
+			}
+			else if (Character.isWhitespace(c))
+				++pos;
+			else if (text.startsWith("--", pos))
+			{
+				// Comment up to the end of line or next double hyphen
+				pos += 2;
+				while (pos < text.length() && text.charAt(pos) != '\n'
+						&& !text.startsWith("--", pos))
+					++pos;
+				if (text.startsWith("--", pos))
+					pos += 2;
+			}
+			else if (text.startsWith("/*", pos))
+			{
+				int end = text.indexOf("*/", pos + 2);
+				if (end < 0)
+					throw error("Unterminated comment");
+				for (int i = pos; i < end; ++i)
+					if (text.charAt(i) == '\n')
+						++line;
+				pos = end + 2;
+			}
+			else
+				break;
+		}
+		
+		tokenLine = line;
+		if (pos >= text.length())
+		{
+			token = null;
+			return;
+		}
+		
+		int start = pos;
+		char c = text.charAt(pos);
+		if (Character.isLetter(c))
+		{
+			++pos;
+			while (pos < text.length())
+			{
+				c = text.charAt(pos);
+				if (Character.isLetterOrDigit(c))
+					++pos;
+				else if (c == '-' && pos + 1 < text.length()
+						&& Character.isLetterOrDigit(text.charAt(pos + 1)))
+					++pos;
+				else
+					break;
+			}
+		}
+		else if (Character.isDigit(c) || (c == '-' && pos + 1 < text.length()
+				&& Character.isDigit(text.charAt(pos + 1))))
+		{
+			++pos;
+			while (pos < text.length() && Character.isDigit(text.charAt(pos)))
+				++pos;
+		}
+		else if (text.startsWith("::=", pos) || text.startsWith("...", pos))
+			pos += 3;
+		else if (text.startsWith("..", pos) || text.startsWith("[[", pos)
+				|| text.startsWith("]]", pos))
+			pos += 2;
+		else
+			++pos;
+		token = text.substring(start, pos);
+	}
+	
+	private String location(int line)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(source);
+		sb.append(':');
+		sb.append(line);
+		return sb.toString();
+	}
+	
+	private ASN1SchemaException error(String message)
+	{
+		return error(tokenLine, message);
+	}
+	
+	private ASN1SchemaException error(int line, String message)
+	{
+		StringBuilder msg = new StringBuilder();
+		msg.append(location(line));
+		msg.append(": ");
+		msg.append(message);
+		return new ASN1SchemaException(msg.toString());
+	}
+	
+	private static boolean isKeyword(String word)
+	{
+		for (int i = 0; i < word.length(); ++i)
+			if (!Character.isUpperCase(word.charAt(i)))
+				return false;
+		return true;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.compiler;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.queenbee.asn1.ASN1Class;
+
+/**
+ * Type of an ASN.1 schema, as written in its definition.
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+class SchemaType
+{
+	private Kind kind;
+	private String location;
+	private ASN1Class tagClass;
+	private int tagNumber;
+	private boolean explicit;
+	private SchemaType inner;
+	private String reference;
+	private List<Component> components;
+	private boolean extensible;
+	private Map<String, BigInteger> namedNumbers;
+	
+	private SchemaType(Kind kind, String location)
+	{
+		this.kind = kind;
+		this.location = location;
+		tagClass = null;
+		tagNumber = -1;
+		explicit = false;
+		inner = null;
+		reference = null;
+		components = new ArrayList<>();
+		extensible = false;
+		namedNumbers = new LinkedHashMap<>();
+	}
+	
+	public static SchemaType builtin(Kind kind, String location)
+	{
+		return new SchemaType(kind, location);
+	}
+	
+	public static SchemaType tagged(ASN1Class tagClass, int tagNumber,
+			boolean explicit, SchemaType inner, String location)
+	{
+		SchemaType type = new SchemaType(Kind.TAGGED, location);
+		type.tagClass = tagClass;
+		type.tagNumber = tagNumber;
+		type.explicit = explicit;
+		type.inner = inner;
+		return type;
+	}
+	
+	public static SchemaType collection(Kind kind, SchemaType inner,
+			String location)
+	{
+		SchemaType type = new SchemaType(kind, location);
+		type.inner = inner;
+		return type;
+	}
+	
+	public static SchemaType reference(String reference, String location)
+	{
+		SchemaType type = new SchemaType(Kind.REFERENCE, location);
+		type.reference = reference;
+		return type;
+	}
+	
+	public Kind getKind()
+	{
+		return kind;
+	}
+	
+	public String getLocation()
+	{
+		return location;
+	}
+	
+	public ASN1Class getTagClass()
+	{
+		return tagClass;
+	}
+	
+	public int getTagNumber()
+	{
+		return tagNumber;
+	}
+	
+	public boolean isExplicit()
+	{
+		return explicit;
+	}
+	
+	public SchemaType getInner()
+	{
+		return inner;
+	}
+	
+	public String getReference()
+	{
+		return reference;
+	}
+	
+	public List<Component> getComponents()
+	{
+		return components;
+	}
+	
+	public boolean isExtensible()
+	{
+		return extensible;
+	}
+	
+	public void setExtensible(boolean extensible)
+	{
+		this.extensible = extensible;
+	}
+	
+	public Map<String, BigInteger> getNamedNumbers()
+	{
+		return namedNumbers;
+	}
+	
+	/**
+	 * Kind of schema type.
+	 */
+	public static enum Kind
+	{
+		BOOLEAN,
+		INTEGER,
+		BIT_STRING,
+		OCTET_STRING,
+		NULL,
+		OBJECT_IDENTIFIER,
+		UTF8_STRING,
+		IA5_STRING,
+		PRINTABLE_STRING,
+		UTC_TIME,
+		GENERALIZED_TIME,
+		ANY,
+		SEQUENCE,
+		SEQUENCE_OF,
+		SET_OF,
+		CHOICE,
+		TAGGED,
+		REFERENCE
+	}
+	
+	/**
+	 * Named component of a sequence or alternative of a choice.
+	 */
+	public static class Component
+	{
+		private String name;
+		private SchemaType type;
+		private boolean optional;
+		private String defaultValue;
+		
+		public Component(String name, SchemaType type, boolean optional,
+				String defaultValue)
+		{
+			this.name = name;
+			this.type = type;
+			this.optional = optional;
+			this.defaultValue = defaultValue;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+		
+		public SchemaType getType()
+		{
+			return type;
+		}
+		
+		public boolean isOptional()
+		{
+			return optional;
+		}
+		
+		public String getDefaultValue()
+		{
+			return defaultValue;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,403 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * Immutable tree node over a BER encoded byte array.
+ * 
+ * <p>
+ * A node is just the tag and the offsets of an encoding inside the shared
+ * byte array, which is never copied. Children of a constructed node are
+ * indexed on first access and kept, so following lookups on the same node
+ * do not parse again. Nodes may be shared between threads.
+ * </p>
+ * 
+ * <p>
+ * Values are read with a {@link BERDecoder} positioned on the node, as
+ * returned by {@link #decoder()}.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class ASN1Node
+{
+	private static final ASN1Node[] NO_CHILDREN = new ASN1Node[0];
+	
+	private byte[] bytes;
+	private ASN1Class tagClass;
+	private int tagNumber;
+	private boolean constructed;
+	private int offset;
+	private int encodedLength;
+	private int valueOffset;
+	private int valueLength;
+	
+	private volatile ASN1Node[] children;
+	
+	/*
+	 * Node for the current tag of the given decoder.
+	 */
+	private ASN1Node(byte[] bytes, BERDecoder d)
+	throws BEREncodingException
+	{
+		this.bytes = bytes;
+		tagClass = d.getTagClass();
+		tagNumber = d.getTagNumber();
+		constructed = d.isConstructed();
+		offset = d.getOffset();
+		encodedLength = d.getEncodedLength();
+		valueOffset = d.getValueOffset();
+		valueLength = d.getValueLength();
+		children = constructed ? null : NO_CHILDREN;
+	}
+	
+	/**
+	 * Root node of the whole given byte array.
+	 * 
+	 * @param bytes
+	 * 			Encoded bytes. They must not be modified while the tree is in
+	 * 			use.
+	 * 
+	 * @return
+	 * 			The root node.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If bytes are not a single encoded tag.
+	 */
+	public static ASN1Node parse(byte[] bytes)
+	throws BEREncodingException
+	{
+		return parse(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Root node of the given region of a byte array.
+	 * 
+	 * @param bytes
+	 * 			Encoded bytes. They must not be modified while the tree is in
+	 * 			use.
+	 * @param offset
+	 * 			Offset of the first encoded byte.
+	 * @param length
+	 * 			Count of encoded bytes.
+	 * 
+	 * @return
+	 * 			The root node.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If region is not a single encoded tag.
+	 * @throws IndexOutOfBoundsException
+	 * 			If the region is not inside the byte array.
+	 */
+	public static ASN1Node parse(byte[] bytes, int offset, int length)
+	throws BEREncodingException
+	{
+		BERDecoder d = new BERDecoder(bytes, offset, length);
+		if (!d.next())
+			throw new BEREncodingException("Empty encoding");
+		ASN1Node node = new ASN1Node(bytes, d);
+		if (d.next())
+			throw new BEREncodingException("Trailing bytes after encoding");
+		return node;
+	}
+	
+	/**
+	 * Class of the node tag.
+	 */
+	public ASN1Class getTagClass()
+	{
+		return tagClass;
+	}
+	
+	/**
+	 * Number of the node tag.
+	 */
+	public int getTagNumber()
+	{
+		return tagNumber;
+	}
+	
+	/**
+	 * Whether the node tag is constructed or primitive.
+	 */
+	public boolean isConstructed()
+	{
+		return constructed;
+	}
+	
+	/**
+	 * Check the node tag without creating any {@link ASN1Tag}.
+	 * 
+	 * @param tagClass
+	 * 			Expected tag class.
+	 * @param tagNumber
+	 * 			Expected tag number.
+	 * @param constructed
+	 * 			Expected primitive/constructed value.
+	 * 
+	 * @return
+	 * 			Whether the node tag has all the given values.
+	 */
+	public boolean isTag(ASN1Class tagClass, int tagNumber,
+			boolean constructed)
+	{
+		return this.tagClass == tagClass && this.tagNumber == tagNumber
+				&& this.constructed == constructed;
+	}
+	
+	/**
+	 * Node tag.
+	 * 
+	 * @return
+	 * 			A new tag instance with the node tag values.
+	 */
+	public ASN1Tag getTag()
+	{
+		return new ASN1Tag(tagClass, tagNumber, constructed);
+	}
+	
+	/**
+	 * Offset of the identifier octets inside the byte array.
+	 */
+	public int getOffset()
+	{
+		return offset;
+	}
+	
+	/**
+	 * Length of the whole encoding, including identifier, length and
+	 * contents octets.
+	 */
+	public int getEncodedLength()
+	{
+		return encodedLength;
+	}
+	
+	/**
+	 * Offset of the contents inside the byte array.
+	 */
+	public int getValueOffset()
+	{
+		return valueOffset;
+	}
+	
+	/**
+	 * Length of the contents, or -1 if it has been encoded with indefinite
+	 * length.
+	 */
+	public int getValueLength()
+	{
+		return valueLength;
+	}
+	
+	/**
+	 * Contents of the node.
+	 * 
+	 * @return
+	 * 			A read-only view of the contents. Underlying bytes are not
+	 * 			copied.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If length is indefinite.
+	 */
+	public ByteBuffer getValue()
+	throws BEREncodingException
+	{
+		if (valueLength < 0)
+			throw new BEREncodingException("Undefinite length contents");
+		return slice(valueOffset, valueLength);
+	}
+	
+	/**
+	 * Whole encoding of the node.
+	 * 
+	 * @return
+	 * 			A read-only view of identifier, length and contents octets.
+	 * 			Underlying bytes are not copied.
+	 */
+	public ByteBuffer getEncoded()
+	{
+		return slice(offset, encodedLength);
+	}
+	
+	/**
+	 * Copy of the whole encoding of the node.
+	 * 
+	 * @return
+	 * 			A new array with identifier, length and contents octets.
+	 */
+	public byte[] readEncoded()
+	{
+		return Arrays.copyOfRange(bytes, offset, offset + encodedLength);
+	}
+	
+	/**
+	 * Decoder over the encoding of this node.
+	 * 
+	 * @return
+	 * 			A new decoder whose current tag is this node.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been occurred.
+	 */
+	public BERDecoder decoder()
+	throws BEREncodingException
+	{
+		BERDecoder d = new BERDecoder(bytes, offset, encodedLength);
+		d.next();
+		return d;
+	}
+	
+	/**
+	 * Count of children of this node.
+	 * 
+	 * @return
+	 * 			The count of tags directly contained by this node, zero if it
+	 * 			is primitive.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If contents are not properly encoded.
+	 */
+	public int getChildCount()
+	throws BEREncodingException
+	{
+		return children().length;
+	}
+	
+	/**
+	 * Child at the given index.
+	 * 
+	 * @param index
+	 * 			Child index.
+	 * 
+	 * @return
+	 * 			The child node.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If contents are not properly encoded.
+	 * @throws IndexOutOfBoundsException
+	 * 			If there is no child at that index.
+	 */
+	public ASN1Node getChild(int index)
+	throws BEREncodingException
+	{
+		ASN1Node[] nodes = children();
+		if (index < 0 || index >= nodes.length)
+			throw new IndexOutOfBoundsException();
+		return nodes[index];
+	}
+	
+	/**
+	 * Descendant following the given child indexes.
+	 * 
+	 * @param path
+	 * 			Child index at each level, starting at this node.
+	 * 
+	 * @return
+	 * 			The descendant node, or this node if path is empty.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If contents are not properly encoded.
+	 * @throws IndexOutOfBoundsException
+	 * 			If some child does not exist.
+	 */
+	public ASN1Node getDescendant(int... path)
+	throws BEREncodingException
+	{
+		ASN1Node node = this;
+		for (int index : path)
+			node = node.getChild(index);
+		return node;
+	}
+	
+	/**
+	 * Children of this node.
+	 * 
+	 * @return
+	 * 			An unmodifiable list of children, empty if it is primitive.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If contents are not properly encoded.
+	 */
+	public List<ASN1Node> getChildren()
+	throws BEREncodingException
+	{
+		return Collections.unmodifiableList(Arrays.asList(children()));
+	}
+	
+	/**
+	 * First child with the given tag.
+	 * 
+	 * @param tagClass
+	 * 			Child tag class.
+	 * @param tagNumber
+	 * 			Child tag number.
+	 * 
+	 * @return
+	 * 			The found child, or {@code null} if there is not any.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If contents are not properly encoded.
+	 */
+	public ASN1Node findChild(ASN1Class tagClass, int tagNumber)
+	throws BEREncodingException
+	{
+		for (ASN1Node node : children())
+			if (node.tagClass == tagClass && node.tagNumber == tagNumber)
+				return node;
+		return null;
+	}
+	
+	/*
+	 * Children array, indexing them if it has not been done yet. Racing
+	 * threads index the same children, so any of them may be kept.
+	 */
+	private ASN1Node[] children()
+	throws BEREncodingException
+	{
+		ASN1Node[] nodes = children;
+		if (nodes == null)
+		{
+			List<ASN1Node> list = new ArrayList<>();
+			BERDecoder d = new BERDecoder(bytes, offset, encodedLength);
+			d.next();
+			d.enter();
+			while (d.next())
+				list.add(new ASN1Node(bytes, d));
+			d.exit();
+			nodes = list.toArray(new ASN1Node[list.size()]);
+			children = nodes;
+		}
+		return nodes;
+	}
+	
+	private ByteBuffer slice(int off, int len)
+	{
+		ByteBuffer view = ByteBuffer.wrap(bytes, off, len).slice();
+		return view.asReadOnlyBuffer();
+	}
+}
\ No newline at end of file
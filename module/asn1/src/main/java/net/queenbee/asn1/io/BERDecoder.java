@@ -0,0 +1,941 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
+import net.queenbee.asn1.OID;
+
+/**
+ * BER decoder working directly over a byte buffer.
+ * 
+ * <p>
+ * Tags are walked by offset inside the underlying buffer, which is never
+ * copied. Moving through tags does not allocate anything, and values are
+ * only decoded when one of the value accessors is called on the current tag.
+ * </p>
+ * 
+ * <p>
+ * All offsets are absolute indexes of the underlying buffer.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class BERDecoder
+{
+	private static final ASN1Class[] tagClasses = ASN1Class.values();
+	
+	private static final int INITIAL_DEPTH = 8;
+	
+	private static final BERParserHandler skipHandler;
+	
+	static
+	{
+		skipHandler = new BERParserHandler()
+		{
+			@Override
+			public void tagStart(ASN1Tag tag, long length)
+			{
+			}
+			
+			@Override
+			public void primitiveContents(ByteBuffer contents)
+			{
+			}
+			
+			@Override
+			public void tagEnd(ASN1Tag tag)
+			{
+			}
+		};
+	}
+	
+	private ByteBuffer buffer;
+	private int start;
+	private int end;
+	
+	private StringCodec stringCodec;
+	
+	private int[] limitStack;
+	private int depth;
+	private int limit;
+	private boolean ended;
+	private int position;
+	
+	private boolean current;
+	private int tagOffset;
+	private int tagClass;
+	private int tagNumber;
+	private boolean constructed;
+	private int valueOffset;
+	private int valueLength;
+	
+	private int hdrClass;
+	private int hdrNumber;
+	private boolean hdrConstructed;
+	private int hdrValueOffset;
+	private int hdrValueLength;
+	
+	/**
+	 * Creates a BER decoder for the whole given byte array.
+	 * 
+	 * @param bytes
+	 * 			Encoded bytes.
+	 */
+	public BERDecoder(byte[] bytes)
+	{
+		this(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Creates a BER decoder for the given region of a byte array.
+	 * 
+	 * @param bytes
+	 * 			Encoded bytes.
+	 * @param offset
+	 * 			Offset of the first encoded byte.
+	 * @param length
+	 * 			Count of encoded bytes.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 * 			If the region is not inside the byte array.
+	 */
+	public BERDecoder(byte[] bytes, int offset, int length)
+	{
+		if (offset < 0 || length < 0 || offset > bytes.length - length)
+			throw new IndexOutOfBoundsException();
+		buffer = ByteBuffer.wrap(bytes);
+		start = offset;
+		end = offset + length;
+		stringCodec = new StringCodec();
+		limitStack = new int[INITIAL_DEPTH];
+		rewind();
+	}
+	
+	/**
+	 * Creates a BER decoder for the remaining bytes of the given buffer.
+	 * 
+	 * <p>
+	 * Position and limit of the given buffer are not modified by the decoder.
+	 * </p>
+	 * 
+	 * @param buffer
+	 * 			Buffer containing the encoded bytes.
+	 */
+	public BERDecoder(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		start = buffer.position();
+		end = buffer.limit();
+		stringCodec = new StringCodec();
+		limitStack = new int[INITIAL_DEPTH];
+		rewind();
+	}
+	
+	/**
+	 * Creates a BER decoder for the next tag read from the given input
+	 * stream. Input stream is not read beyond the end of that tag.
+	 * 
+	 * @param in
+	 * 			Input stream to read from.
+	 * @param maxLength
+	 * 			Maximum length of the whole tag encoding.
+	 * 
+	 * @return
+	 * 			A decoder positioned before the read tag.
+	 * 
+	 * @throws IOException
+	 * 			If an input/output error has been occurred.
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been occurred or if the tag is longer
+	 * 			than allowed.
+	 */
+	public static BERDecoder read(InputStream in, int maxLength)
+	throws IOException, BEREncodingException
+	{
+		return read(in, new BERDecodingPolicy(Integer.MAX_VALUE, maxLength,
+				maxLength, 0l));
+	}
+	
+	/**
+	 * Creates a decoder for the next tag read from the given input stream,
+	 * rejecting it as soon as it exceeds some limit of the given policy.
+	 * Input stream is not read beyond the end of that tag. Identifier and
+	 * length octets are read one by one, while bytes known to be inside a
+	 * tag of definite length are read in bulk.
+	 * 
+	 * <p>
+	 * Timeout is checked between reads, so a single blocking read must be
+	 * bounded by the underlying stream, as with
+	 * {@link java.net.Socket#setSoTimeout(int)}.
+	 * </p>
+	 * 
+	 * @param in
+	 * 			Input stream to read from.
+	 * @param policy
+	 * 			Decoding limits.
+	 * 
+	 * @return
+	 * 			A decoder positioned before the read tag.
+	 * 
+	 * @throws IOException
+	 * 			If an input/output error has been occurred.
+	 * @throws InterruptedIOException
+	 * 			If the tag has not been read within the policy timeout.
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been occurred or if the tag exceeds
+	 * 			some limit of the policy.
+	 */
+	public static BERDecoder read(InputStream in, BERDecodingPolicy policy)
+	throws IOException, BEREncodingException
+	{
+		long timeout = policy.getTimeout();
+		long deadline = System.nanoTime() + timeout * 1000000l;
+		int maxLength = (int) Math.min(policy.getMaxLength(),
+				Integer.MAX_VALUE - 8);
+		
+		BERParser parser = new BERParser(skipHandler, policy);
+		byte[] bytes = new byte[Math.min(maxLength, 256)];
+		ByteBuffer view = ByteBuffer.wrap(bytes);
+		int length = 0;
+		do
+		{
+			if (length == maxLength)
+				throw new BEREncodingException("Maximum length exceeded");
+			if (length == bytes.length)
+			{
+				byte[] grown = new byte[(int) Math.min(length * 2l,
+						maxLength)];
+				System.arraycopy(bytes, 0, grown, 0, length);
+				bytes = grown;
+				view = ByteBuffer.wrap(bytes);
+			}
+			
+			// Contents of known length are read in bulk, the rest bytewise
+			int n = (int) Math.min(Math.max(parser.getKnownRemaining(), 1l),
+					bytes.length - length);
+			n = in.read(bytes, length, n);
+			if (n < 0)
+				throw new BEREncodingException("Truncated encoding");
+			if (timeout > 0l && System.nanoTime() - deadline > 0l)
+				throw new InterruptedIOException("Read timeout exceeded");
+			view.limit(length + n).position(length);
+			parser.feed(view);
+			length += n;
+		}
+		while (!parser.isComplete());
+		return new BERDecoder(bytes, 0, length);
+	}
+	
+	/**
+	 * Goes back to the beginning of the encoded bytes.
+	 */
+	public void rewind()
+	{
+		depth = 0;
+		limit = end;
+		ended = false;
+		position = start;
+		current = false;
+	}
+	
+	/**
+	 * Moves to the next tag of the current level.
+	 * 
+	 * @return
+	 * 			{@code true} if there is a next tag, or {@code false} if the end
+	 * 			of the current level has been reached.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been occurred.
+	 */
+	public boolean next()
+	throws BEREncodingException
+	{
+		if (current)
+		{
+			position = valueLength < 0 ? endOf(tagOffset)
+					: valueOffset + valueLength;
+			current = false;
+		}
+		if (ended || position == limit)
+			return false;
+		
+		int pos = position;
+		readHeader(pos, limit < 0 ? end : limit);
+		
+		// End-of-contents
+		if (hdrClass == 0 && hdrNumber == ASN1Tag.TN_EOC && !hdrConstructed)
+		{
+			if (limit >= 0 || hdrValueLength != 0)
+				throw new BEREncodingException("Unexpected end-of-contents");
+			position = hdrValueOffset;
+			ended = true;
+			return false;
+		}
+		
+		tagOffset = pos;
+		tagClass = hdrClass;
+		tagNumber = hdrNumber;
+		constructed = hdrConstructed;
+		valueOffset = hdrValueOffset;
+		valueLength = hdrValueLength;
+		current = true;
+		return true;
+	}
+	
+	/**
+	 * Enters into the current constructed tag, so next calls to
+	 * {@link #next()} walk through its contents.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If there is no current tag or it is not constructed.
+	 */
+	public void enter()
+	throws BEREncodingException
+	{
+		checkCurrent();
+		if (!constructed)
+			throw new BEREncodingException("Entering into primitive tag");
+		
+		if (depth == limitStack.length)
+		{
+			int[] stack = new int[depth * 2];
+			System.arraycopy(limitStack, 0, stack, 0, depth);
+			limitStack = stack;
+		}
+		limitStack[depth++] = limit;
+		
+		limit = valueLength < 0 ? -1 : valueOffset + valueLength;
+		ended = false;
+		position = valueOffset;
+		current = false;
+	}
+	
+	/**
+	 * Goes out of the constructed tag entered last, skipping its remaining
+	 * contents. Next call to {@link #next()} moves to the tag following it.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If no constructed tag has been entered or if an encoding
+	 * 			error has been occurred.
+	 */
+	public void exit()
+	throws BEREncodingException
+	{
+		if (depth == 0)
+			throw new BEREncodingException("Exiting from root level");
+		
+		if (limit >= 0)
+			position = limit;
+		else if (!ended)
+		{
+			while (next());
+			if (!ended)
+				throw new BEREncodingException("Missing end-of-contents");
+		}
+		limit = limitStack[--depth];
+		ended = false;
+		current = false;
+	}
+	
+	/**
+	 * Current nesting depth, zero at the root level.
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+	
+	/**
+	 * Class of the current tag.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public ASN1Class getTagClass()
+	{
+		checkState();
+		return tagClasses[tagClass];
+	}
+	
+	/**
+	 * Number of the current tag.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public int getTagNumber()
+	{
+		checkState();
+		return tagNumber;
+	}
+	
+	/**
+	 * Whether the current tag is constructed or primitive.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public boolean isConstructed()
+	{
+		checkState();
+		return constructed;
+	}
+	
+	/**
+	 * Check the current tag without creating any {@link ASN1Tag}.
+	 * 
+	 * @param tagClass
+	 * 			Expected tag class.
+	 * @param tagNumber
+	 * 			Expected tag number.
+	 * @param constructed
+	 * 			Expected primitive/constructed value.
+	 * 
+	 * @return
+	 * 			Whether there is a current tag and it has all the given
+	 * 			values.
+	 */
+	public boolean isTag(ASN1Class tagClass, int tagNumber,
+			boolean constructed)
+	{
+		return current && this.tagClass == tagClass.ordinal()
+				&& this.tagNumber == tagNumber
+				&& this.constructed == constructed;
+	}
+	
+	/**
+	 * Current tag.
+	 * 
+	 * @return
+	 * 			A new tag instance with the current tag values.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public ASN1Tag getTag()
+	{
+		checkState();
+		return new ASN1Tag(tagClasses[tagClass], tagNumber, constructed);
+	}
+	
+	/**
+	 * Offset of the identifier octets of the current tag.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public int getOffset()
+	{
+		checkState();
+		return tagOffset;
+	}
+	
+	/**
+	 * Offset of the contents of the current tag.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public int getValueOffset()
+	{
+		checkState();
+		return valueOffset;
+	}
+	
+	/**
+	 * Length of the contents of the current tag, or -1 if it has been
+	 * encoded with indefinite length.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there is no current tag.
+	 */
+	public int getValueLength()
+	{
+		checkState();
+		return valueLength;
+	}
+	
+	/**
+	 * Length of the whole encoding of the current tag, including identifier,
+	 * length and contents octets.
+	 * 
+	 * @return
+	 * 			The encoded length.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If there is no current tag or if an encoding error has been
+	 * 			occurred.
+	 */
+	public int getEncodedLength()
+	throws BEREncodingException
+	{
+		checkCurrent();
+		if (valueLength < 0)
+			return endOf(tagOffset) - tagOffset;
+		return valueOffset + valueLength - tagOffset;
+	}
+	
+	/**
+	 * Contents of the current tag.
+	 * 
+	 * @return
+	 * 			A read-only view of the contents. Underlying bytes are not
+	 * 			copied.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If there is no current tag or if its length is indefinite.
+	 */
+	public ByteBuffer getValue()
+	throws BEREncodingException
+	{
+		checkDefinite();
+		return slice(valueOffset, valueLength);
+	}
+	
+	/**
+	 * Whole encoding of the current tag.
+	 * 
+	 * @return
+	 * 			A read-only view of identifier, length and contents octets.
+	 * 			Underlying bytes are not copied.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If there is no current tag or if an encoding error has been
+	 * 			occurred.
+	 */
+	public ByteBuffer getEncoded()
+	throws BEREncodingException
+	{
+		return slice(tagOffset, getEncodedLength());
+	}
+	
+	/**
+	 * Read the whole encoding of the current tag.
+	 * 
+	 * @return
+	 * 			A copy of identifier, length and contents octets.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public byte[] readEncoded()
+	throws BEREncodingException
+	{
+		ByteBuffer encoded = getEncoded();
+		byte[] value = new byte[encoded.remaining()];
+		encoded.get(value);
+		return value;
+	}
+	
+	/**
+	 * Read the current tag as universal boolean.
+	 * 
+	 * @return
+	 * 			Boolean value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public boolean readBoolean()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		if (valueLength != 1)
+			throw new BEREncodingException("Invalid boolean length");
+		return buffer.get(valueOffset) != 0;
+	}
+	
+	/**
+	 * Read the current tag as universal integer which fits in a
+	 * {@code long}.
+	 * 
+	 * @return
+	 * 			Integer value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred or if the integer
+	 * 			does not fit in a {@code long}.
+	 */
+	public long readLong()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		if (valueLength == 0)
+			throw new BEREncodingException("Empty integer");
+		if (valueLength > 8)
+			throw new BEREncodingException("Integer too large");
+		
+		long value = buffer.get(valueOffset);
+		for (int i = 1; i < valueLength; ++i)
+			value = (value << 8) | (buffer.get(valueOffset + i) & 0xff);
+		return value;
+	}
+	
+	/**
+	 * Read the current tag as universal integer.
+	 * 
+	 * @return
+	 * 			Integer value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public BigInteger readInteger()
+	throws BEREncodingException
+	{
+		if (getValueLength() <= 8)
+			return BigInteger.valueOf(readLong());
+		return new BigInteger(readOctetString());
+	}
+	
+	/**
+	 * Read the current tag as universal bit string.
+	 * 
+	 * @return
+	 * 			Bit string value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public BitString readBitString()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		if (valueLength == 0)
+			throw new BEREncodingException("No padding octet available");
+		int padding = buffer.get(valueOffset);
+		if (padding < 0 || padding > 7 || (valueLength == 1 && padding > 0))
+			throw new BEREncodingException("Invalid bit string padding");
+		
+		if (buffer.hasArray())
+			return new BitString(buffer.array(),
+					buffer.arrayOffset() + valueOffset + 1, valueLength - 1,
+					padding);
+		byte[] bytes = new byte[valueLength - 1];
+		ByteBuffer view = buffer.duplicate();
+		view.limit(valueOffset + valueLength).position(valueOffset + 1);
+		view.get(bytes);
+		return new BitString(bytes, padding);
+	}
+	
+	/**
+	 * Read the current tag as universal octet string.
+	 * 
+	 * @return
+	 * 			A copy of the octet string value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public byte[] readOctetString()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		byte[] value = new byte[valueLength];
+		ByteBuffer view = buffer.duplicate();
+		view.limit(valueOffset + valueLength).position(valueOffset);
+		view.get(value);
+		return value;
+	}
+	
+	/**
+	 * Read the current tag as universal object identifier.
+	 * 
+	 * @return
+	 * 			Object identifier value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public OID readObjectIdentifier()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		int[] arcs = new int[OIDCodec.arcCount(buffer, valueOffset,
+				valueLength)];
+		int count = OIDCodec.decode(buffer, valueOffset, valueLength, arcs);
+		try
+		{
+			return new OID(arcs[0], arcs[1], Arrays.copyOfRange(arcs, 2,
+					count));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			throw new BEREncodingException(exception.getMessage());
+		}
+	}
+	
+	/**
+	 * Read the current tag as universal UTF-8 string.
+	 * 
+	 * @return
+	 * 			UTF-8 string value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public String readUTF8String()
+	throws BEREncodingException
+	{
+		return readString(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Read the current tag as universal IA5 string.
+	 * 
+	 * @return
+	 * 			IA5 string value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public String readIA5String()
+	throws BEREncodingException
+	{
+		return readString(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Read the current tag as universal UTC time.
+	 * 
+	 * @return
+	 * 			UTC time value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public Date readUTCTime()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		return new Date(TimeCodec.parseUTCTime(buffer, valueOffset,
+				valueLength));
+	}
+	
+	/**
+	 * Read the current tag as universal generalized time.
+	 * 
+	 * @return
+	 * 			Generalized time value.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred.
+	 */
+	public Date readGeneralizedTime()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		return new Date(TimeCodec.parseGeneralizedTime(buffer, valueOffset,
+				valueLength));
+	}
+	
+	/**
+	 * Read the current tag as universal UTC time or generalized time,
+	 * depending on its tag number.
+	 * 
+	 * @return
+	 * 			Time value as epoch milliseconds.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If current tag is not a universal time or some encoding error
+	 * 			has been occurred.
+	 */
+	public long readTime()
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		if (isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_UTC_TIME, false))
+			return TimeCodec.parseUTCTime(buffer, valueOffset, valueLength);
+		if (isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_GENERALIZED_TIME, false))
+			return TimeCodec.parseGeneralizedTime(buffer, valueOffset,
+					valueLength);
+		throw new BEREncodingException("Time expected");
+	}
+	
+	/*
+	 * Underlying buffer, where all offsets point to.
+	 */
+	ByteBuffer buffer()
+	{
+		return buffer;
+	}
+	
+	/*
+	 * Read the current tag as an string of the given character set.
+	 */
+	private String readString(Charset charset)
+	throws BEREncodingException
+	{
+		checkPrimitive();
+		return stringCodec.decode(buffer, valueOffset, valueLength, charset);
+	}
+	
+	/*
+	 * Read-only view of the given region.
+	 */
+	private ByteBuffer slice(int offset, int length)
+	{
+		ByteBuffer view = buffer.asReadOnlyBuffer();
+		view.limit(offset + length).position(offset);
+		return view.slice();
+	}
+	
+	/*
+	 * Decode identifier and length octets at the given offset into header
+	 * fields. Contents must not go beyond the given bound.
+	 */
+	private void readHeader(int offset, int bound)
+	throws BEREncodingException
+	{
+		int pos = offset;
+		if (pos >= bound)
+			throw new BEREncodingException("No tag identifier");
+		
+		// Tag identifier
+		int b = buffer.get(pos++);
+		hdrClass = (b >> 6) & 0x03;
+		hdrConstructed = (b & 0x20) != 0;
+		hdrNumber = b & 0x1f;
+		
+		// Tag number: Long form
+		if (hdrNumber == 0x1f)
+		{
+			hdrNumber = 0;
+			do
+			{
+				if (pos >= bound)
+					throw new BEREncodingException("Incomplete tag number");
+				if (hdrNumber > (Integer.MAX_VALUE >>> 7))
+					throw new BEREncodingException("Tag number overflow");
+				b = buffer.get(pos++);
+				hdrNumber = (hdrNumber << 7) | (b & 0x7f);
+			}
+			while ((b & 0x80) != 0);
+		}
+		
+		// Tag length
+		if (pos >= bound)
+			throw new BEREncodingException("No length");
+		b = buffer.get(pos++) & 0xff;
+		
+		// Tag length: Short form
+		if ((b & 0x80) == 0)
+			hdrValueLength = b;
+		// Tag length: Indefinite form
+		else if (b == 0x80)
+		{
+			if (!hdrConstructed)
+				throw new BEREncodingException("Undefinite primitive tag");
+			hdrValueLength = -1;
+		}
+		// Tag length: Definite long form
+		else
+		{
+			int n = b & 0x7f;
+			if (pos > bound - n)
+				throw new BEREncodingException("Incomplete length");
+			int len = 0;
+			for (int i = 0; i < n; ++i)
+			{
+				if (len > (Integer.MAX_VALUE >>> 8))
+					throw new BEREncodingException("Length overflow");
+				len = (len << 8) | (buffer.get(pos++) & 0xff);
+			}
+			hdrValueLength = len;
+		}
+		
+		hdrValueOffset = pos;
+		if (hdrValueLength > bound - pos)
+			throw new BEREncodingException("Length exceeds available bytes");
+	}
+	
+	/*
+	 * Offset just after the tag starting at the given offset, scanning
+	 * nested indefinite length contents if needed.
+	 */
+	private int endOf(int offset)
+	throws BEREncodingException
+	{
+		readHeader(offset, end);
+		if (hdrValueLength >= 0)
+			return hdrValueOffset + hdrValueLength;
+		
+		int nested = 1;
+		int pos = hdrValueOffset;
+		while (nested > 0)
+		{
+			readHeader(pos, end);
+			if (hdrClass == 0 && hdrNumber == ASN1Tag.TN_EOC
+					&& !hdrConstructed)
+			{
+				pos = hdrValueOffset;
+				--nested;
+			}
+			else if (hdrValueLength < 0)
+			{
+				pos = hdrValueOffset;
+				++nested;
+			}
+			else
+				pos = hdrValueOffset + hdrValueLength;
+		}
+		return pos;
+	}
+	
+	private void checkState()
+	{
+		if (!current)
+			throw new IllegalStateException("No current tag");
+	}
+	
+	private void checkCurrent()
+	throws BEREncodingException
+	{
+		if (!current)
+			throw new BEREncodingException("No current tag");
+	}
+	
+	private void checkDefinite()
+	throws BEREncodingException
+	{
+		checkCurrent();
+		if (valueLength < 0)
+			throw new BEREncodingException("Undefinite length contents");
+	}
+	
+	private void checkPrimitive()
+	throws BEREncodingException
+	{
+		checkCurrent();
+		if (constructed)
+			throw new BEREncodingException("Reading value of constructed");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+/**
+ * Limits applied when decoding BER encodings from untrusted sources.
+ * 
+ * <p>
+ * Tag headers are checked against these limits as soon as they are parsed,
+ * so encodings exceeding them are rejected before their contents are read.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class BERDecodingPolicy
+{
+	/**
+	 * Policy without any limit.
+	 */
+	public static final BERDecodingPolicy UNBOUNDED = new BERDecodingPolicy(
+			Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 0l);
+	
+	private int maxDepth;
+	private long maxLength;
+	private long maxPrimitiveLength;
+	private long timeout;
+	
+	/**
+	 * Creates a decoding policy.
+	 * 
+	 * @param maxDepth
+	 * 			Maximum nesting depth of constructed tags.
+	 * @param maxLength
+	 * 			Maximum length of the whole encoding.
+	 * @param maxPrimitiveLength
+	 * 			Maximum contents length of a single primitive tag.
+	 * @param timeout
+	 * 			Milliseconds allowed for reading the whole encoding, or
+	 * 			{@code 0} for no time limit.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If some limit is negative.
+	 */
+	public BERDecodingPolicy(int maxDepth, long maxLength,
+			long maxPrimitiveLength, long timeout)
+	{
+		if (maxDepth < 0 || maxLength < 0l || maxPrimitiveLength < 0l
+				|| timeout < 0l)
+			throw new IllegalArgumentException("Negative decoding limit");
+		this.maxDepth = maxDepth;
+		this.maxLength = maxLength;
+		this.maxPrimitiveLength = maxPrimitiveLength;
+		this.timeout = timeout;
+	}
+	
+	/**
+	 * Maximum nesting depth of constructed tags.
+	 * 
+	 * @return
+	 * 			The maximum count of nested constructed tags.
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+	
+	/**
+	 * Maximum length of the whole encoding.
+	 * 
+	 * @return
+	 * 			The maximum count of encoded bytes.
+	 */
+	public long getMaxLength()
+	{
+		return maxLength;
+	}
+	
+	/**
+	 * Maximum contents length of a single primitive tag.
+	 * 
+	 * @return
+	 * 			The maximum count of primitive contents bytes.
+	 */
+	public long getMaxPrimitiveLength()
+	{
+		return maxPrimitiveLength;
+	}
+	
+	/**
+	 * Time allowed for reading the whole encoding.
+	 * 
+	 * @return
+	 * 			Milliseconds allowed, or {@code 0} if there is no time limit.
+	 */
+	public long getTimeout()
+	{
+		return timeout;
+	}
+}
\ No newline at end of file
@@ -17,24 +17,19 @@
 
 package net.queenbee.asn1.io;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
 
 import net.queenbee.asn1.ASN1Class;
 import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
 import net.queenbee.asn1.OID;
 
 /**
@@ -45,18 +40,16 @@ import net.queenbee.asn1.OID;
 public class BERInputStream
 extends InputStream
 {
-	private static DateFormat[] utcFmt;
+	private static final ASN1Class[] tagClasses = ASN1Class.values();
 	
-	static
-	{
-		utcFmt = new DateFormat[4];
-		utcFmt[0] = new SimpleDateFormat("yyMMddHHmmz");
-		utcFmt[1] = new SimpleDateFormat("yyMMddHHmmZ");
-		utcFmt[2] = new SimpleDateFormat("yyMMddHHmmssz");
-		utcFmt[3] = new SimpleDateFormat("yyMMddHHmmssZ");
-	}
+	private static final int VALUE_BUFFER_SIZE = 32;
+	private static final int MAX_RETAINED_VALUE_BUFFER_SIZE = 4 * 1024;
+	private static final int MAX_PRESIZE = 64 * 1024;
 	
+	private RootTagInput root;
 	private TagInput input;
+	private byte[] valueBuffer;
+	private StringCodec stringCodec;
 	
 	/**
 	 * Creates a BER input stream for the given underlying input stream.
@@ -66,7 +59,28 @@ extends InputStream
 	 */
 	public BERInputStream(InputStream in)
 	{
-		this.input = new RootTagInput(in);
+		root = new RootTagInput(in);
+		input = root;
+		valueBuffer = new byte[VALUE_BUFFER_SIZE];
+		stringCodec = new StringCodec();
+	}
+	
+	/**
+	 * Discard the current tag state and continue reading from the given
+	 * underlying input stream. Buffers of this stream are kept, so it can be
+	 * reused instead of creating a new one, unless the value buffer grew
+	 * beyond a few kilobytes for some large value.
+	 * 
+	 * @param in
+	 * 			New underlying input stream, or {@code null} for just
+	 * 			releasing the current one.
+	 */
+	public void reset(InputStream in)
+	{
+		root.in = in;
+		input = root;
+		if (valueBuffer.length > MAX_RETAINED_VALUE_BUFFER_SIZE)
+			valueBuffer = new byte[VALUE_BUFFER_SIZE];
 	}
 	
 	/**
@@ -122,20 +136,35 @@ extends InputStream
 	public BigInteger readInteger()
 	throws IOException, BEREncodingException
 	{
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
-		{
-			final int bufSize = 32;
-			byte[] buf = new byte[bufSize];
-			int len = read(buf, 0, bufSize);
-			while (len > 0)
-			{
-				baos.write(buf, 0, len);
-				len = read(buf, 0, bufSize);
-			}
-			if (baos.size() == 0)
-				throw new BEREncodingException("Empty integer");
-			return new BigInteger(baos.toByteArray());
-		}
+		int length = readValue();
+		if (length == 0)
+			throw new BEREncodingException("Empty integer");
+		if (length <= 8)
+			return BigInteger.valueOf(valueLong(length));
+		return new BigInteger(Arrays.copyOf(valueBuffer, length));
+	}
+	
+	/**
+	 * Read universal integer which fits in a {@code long}.
+	 * 
+	 * @return
+	 * 			Integer value.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 * @throws BEREncodingException
+	 * 			If some encoding error has been occurred or if the integer
+	 * 			does not fit in a {@code long}.
+	 */
+	public long readLong()
+	throws IOException, BEREncodingException
+	{
+		int length = readValue();
+		if (length == 0)
+			throw new BEREncodingException("Empty integer");
+		if (length > 8)
+			throw new BEREncodingException("Integer too large");
+		return valueLong(length);
 	}
 	
 	/**
@@ -149,29 +178,20 @@ extends InputStream
 	 * @throws BEREncodingException
 	 * 			If some encoding error has been occurred.
 	 */
-	public boolean[] readBitString()
+	public BitString readBitString()
 	throws IOException, BEREncodingException
 	{
-		int padding = read();
-		if (padding < 0)
+		int length = readValue();
+		if (length == 0)
 			throw new BEREncodingException("No padding octet available");
-		
-		List<Boolean> valueList = new ArrayList<>();
-		int b = read();
-		while (b >= 0)
+		try
 		{
-			for (int i = 0; i < 8; ++i)
-			{
-				valueList.add((b & 0x80) > 0);
-				b = b << 1;
-			}
-			b = read();
+			return new BitString(valueBuffer, 1, length - 1, valueBuffer[0]);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			throw new BEREncodingException(ex.getMessage());
 		}
-		
-		boolean[] values = new boolean[valueList.size()];
-		for (int i = 0; i < values.length - padding; ++i)
-			values[i] = valueList.get(i);
-		return values;
 	}
 	
 	/**
@@ -186,18 +206,28 @@ extends InputStream
 	public byte[] readOctetString()
 	throws IOException
 	{
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
+		long remaining = input.remaining();
+		if (remaining < 0l)
+			throw new IOException(new BEREncodingException(
+					"Reading octet string from non primitive input"));
+		if (remaining > Integer.MAX_VALUE)
+			throw new IOException(new BEREncodingException(
+					"Octet string too large"));
+		
+		// Declared length is not trusted beyond the presize limit
+		byte[] value = new byte[(int) Math.min(remaining, MAX_PRESIZE)];
+		int length = 0;
+		while (length < remaining)
 		{
-			int bufLen = 16;
-			byte[] buf = new byte[bufLen];
-			int len = read(buf, 0, bufLen);
-			while (len > 0)
-			{
-				baos.write(buf, 0, len);
-				len = read(buf, 0, bufLen);
-			}
-			return baos.toByteArray();
+			if (length == value.length)
+				value = Arrays.copyOf(value, (int) Math.min(remaining,
+						2l * length));
+			int n = read(value, length, value.length - length);
+			if (n < 0)
+				throw new IOException("No bytes available");
+			length += n;
 		}
+		return value;
 	}
 	
 	/**
@@ -214,38 +244,19 @@ extends InputStream
 	public OID readObjectIdentifier()
 	throws IOException, BEREncodingException
 	{
-		int b = read();
-		if (b < 0)
-			throw new BEREncodingException("Empty object identifier");
-		int id1 = b / 40;
-		int id2 = b % 40;
-		
-		List<Integer> idnList = new ArrayList<>();
-		boolean completed = false;
-		int idi = 0;
-		b = read();
-		while (b >= 0)
-		{
-			idi = idi | (b & 0x7f);
-			if ((b & 0x80) > 0)
-			{
-				idi = idi << 7;
-				completed = false;
-			}
-			else
-			{
-				idnList.add(idi);
-				idi = 0;
-				completed = true;
-			}
+		int length = readValue();
+		ByteBuffer src = ByteBuffer.wrap(valueBuffer, 0, length);
+		int[] arcs = new int[OIDCodec.arcCount(src, 0, length)];
+		int count = OIDCodec.decode(src, 0, length, arcs);
+		try
+		{
+			return new OID(arcs[0], arcs[1], Arrays.copyOfRange(arcs, 2,
+					count));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			throw new BEREncodingException(exception.getMessage());
 		}
-		if (!completed)
-			throw new BEREncodingException("Incomplete object identifier");
-		
-		int[] idn = new int[idnList.size()];
-		for (int i = 0; i < idn.length; ++i)
-			idn[i] = idnList.get(i);
-		return new OID(id1, id2, idn);
 	}
 	
 	/**
@@ -308,31 +319,9 @@ extends InputStream
 	public Date readUTCTime()
 	throws IOException, BEREncodingException
 	{
-		Reader reader = new InputStreamReader(this, StandardCharsets.US_ASCII);
-		StringBuilder sb = new StringBuilder();
-		int minLen = 10;
-		int maxLen = 17;
-		char[] minBuf = new char[minLen];
-		int len = reader.read(minBuf, 0, minLen);
-		if (len < minLen)
-			throw new BEREncodingException("Incomplete UTC time");
-		sb.append(minBuf);
-		
-		int c = reader.read();
-		while (c >= 0 && sb.length() < maxLen)
-		{
-			sb.append((char) c);
-			for (DateFormat df : utcFmt)
-				try
-				{
-					return df.parse(sb.toString());
-				}
-				catch (ParseException exception)
-				{
-				}
-			c = reader.read();
-		}
-		throw new BEREncodingException("Invalid UTC time");
+		int length = readValue();
+		return new Date(TimeCodec.parseUTCTime(ByteBuffer.wrap(valueBuffer),
+				0, length));
 	}
 	
 	/**
@@ -349,8 +338,9 @@ extends InputStream
 	public Date readGeneralizedTime()
 	throws IOException, BEREncodingException
 	{
-		// TODO Read BER universal generalized time
-		throw new UnsupportedOperationException("Not implemented yet");
+		int length = readValue();
+		return new Date(TimeCodec.parseGeneralizedTime(ByteBuffer.wrap(
+				valueBuffer), 0, length));
 	}
 	
 	/**
@@ -384,6 +374,25 @@ extends InputStream
 		}
 	}
 	
+	/**
+	 * Read the next available bytes of primitive content.
+	 */
+	@Override
+	public int read(byte[] b, int off, int len)
+	throws IOException
+	{
+		if (off < 0 || len < 0 || off > b.length - len)
+			throw new IndexOutOfBoundsException();
+		try
+		{
+			return input.readBytes(b, off, len);
+		}
+		catch (BEREncodingException exception)
+		{
+			throw new IOException(exception);
+		}
+	}
+	
 	/**
 	 * Close the underlying input stream.
 	 */
@@ -395,32 +404,60 @@ extends InputStream
 	}
 	
 	/*
-	 * Read an string using the given character set.
+	 * Read the remaining bytes of the current primitive tag into the value
+	 * buffer, returning their count.
 	 */
-	private String readString(Charset charset)
+	private int readValue()
 	throws IOException
 	{
-		Reader reader = new InputStreamReader(this, charset);
-		StringBuilder sb = new StringBuilder();
-		int bufLen = 32;
-		char[] buf = new char[bufLen];
-		int len = reader.read(buf, 0, bufLen);
-		while (len > 0)
+		int length = 0;
+		while (true)
 		{
-			sb.append(buf);
-			len = reader.read(buf, 0, bufLen);
+			if (length == valueBuffer.length)
+			{
+				if (input.remaining() == 0l)
+					return length;
+				valueBuffer = Arrays.copyOf(valueBuffer, length * 2);
+			}
+			int n = read(valueBuffer, length, valueBuffer.length - length);
+			if (n < 0)
+				return length;
+			length += n;
 		}
-		return sb.toString();
+	}
+	
+	/*
+	 * Two's complement integer held by the given count of value buffer
+	 * bytes.
+	 */
+	private long valueLong(int length)
+	{
+		long value = valueBuffer[0];
+		for (int i = 1; i < length; ++i)
+			value = (value << 8) | (valueBuffer[i] & 0xff);
+		return value;
+	}
+	
+	/*
+	 * Read an string using the given character set.
+	 */
+	private String readString(Charset charset)
+	throws IOException
+	{
+		int length = readValue();
+		return stringCodec.decode(valueBuffer, 0, length, charset);
 	}
 	
 	private static TagInput constructedReadTag(TagInput input, ASN1Tag tag)
 	throws IOException, BEREncodingException
 	{
-		byte[] b = new byte[1];
-		
 		// Available length check
-		if (input.read(b, 0, 1) < 1)
+		int b = input.read();
+		if (b < 0)
+		{
+			setEOC(tag);
 			return input;
+		}
 		
 		// Tag identifier data
 		boolean eocTag = false;
@@ -429,17 +466,17 @@ extends InputStream
 		int tn = 0;
 		
 		// Promoted to be an EOC tag
-		if (b[0] == 0x00)
+		if (b == 0x00)
 			eocTag = true;
 		// Not an EOC tag
 		else
 		{
 			// Tag number
-			tn = b[0] & 0x1f;
+			tn = b & 0x1f;
 			// Primitive/constructed
-			constr = ((b[0] >> 5) & 0x01) == 0x01;
+			constr = ((b >> 5) & 0x01) == 0x01;
 			// Tag class
-			tc = ASN1Class.values()[(b[0] >> 6) & 0x03];
+			tc = tagClasses[(b >> 6) & 0x03];
 			
 			// Tag number: Long form
 			if (tn == 0x1f)
@@ -447,43 +484,60 @@ extends InputStream
 				tn = 0;
 				do
 				{
-					if (input.read(b, 0, 1) < 1l)
+					b = input.read();
+					if (b < 0)
 						throw new BEREncodingException("Incomplete tag number");
-					tn += b[0] & 0x7f;
+					if (tn > (Integer.MAX_VALUE >>> 7))
+						throw new BEREncodingException("Tag number overflow");
+					tn = (tn << 7) | (b & 0x7f);
 				}
-				while ((b[0] & 0x80) != 0);
+				while ((b & 0x80) != 0);
 			}
 		}
 		
 		// Tag length
-		if (input.read(b, 0, 1) < 1)
+		b = input.read();
+		if (b < 0)
 			throw new BEREncodingException("No length");
 			
 		// Is an EOC 
-		if (eocTag && b[0] == 0x00)
-			return input;
+		if (eocTag && b == 0x00)
+		{
+			setEOC(tag);
+			return input.endOfContents();
+		}
 		
-		BigInteger len = null;
-		int b7f = b[0] & 0x7f;
+		long len = -1l;
+		int b7f = b & 0x7f;
 		
 		// Tag length: Short form
-		if ((b[0] & 0x80) == 0)
-			len = BigInteger.valueOf(b7f);
+		if ((b & 0x80) == 0)
+			len = b7f;
 		// Tag length: Definite long form
 		else if (b7f > 0)
 		{
-			byte[] lenBuf = new byte[b7f];
-			if (input.read(lenBuf, 0, b7f) < b7f)
-				throw new BEREncodingException("Incomplete length");
-			len = new BigInteger(lenBuf);
+			if (b7f > 8)
+				throw new BEREncodingException("Length overflow");
+			len = 0l;
+			for (int i = 0; i < b7f; ++i)
+			{
+				b = input.read();
+				if (b < 0)
+					throw new BEREncodingException("Incomplete length");
+				if (len > (Long.MAX_VALUE >>> 8))
+					throw new BEREncodingException("Length overflow");
+				len = (len << 8) | b;
+			}
 		}
+		if (len >= 0l)
+			input.checkAvailable(len);
 		
 		// Determine inner input
 		TagInput innerInput = null;
 		if (constr)
-			innerInput = len == null ? new UndefiniteConstructedTagInput(input)
+			innerInput = len < 0l ? new UndefiniteConstructedTagInput(input)
 					: new DefiniteConstructedTagInput(input, len);
-		else if (len == null)
+		else if (len < 0l)
 			throw new BEREncodingException("Undefinite primitive tag");
 		else
 			innerInput = new PrimitiveTagInput(input, len);
@@ -496,26 +550,52 @@ extends InputStream
 		return innerInput;
 	}
 	
+	private static void setEOC(ASN1Tag tag)
+	{
+		tag.setTagClass(ASN1Class.UNIVERSAL);
+		tag.setTagNumber(ASN1Tag.TN_EOC);
+		tag.setConstructed(false);
+	}
+	
 	private static abstract class TagInput
 	extends InputStream
 	{
 		public abstract int readByte()
 		throws IOException, BEREncodingException;
 		
+		public abstract int readBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException;
+		
 		public abstract TagInput readTag(ASN1Tag tag)
 		throws IOException, BEREncodingException;
 		
 		public abstract TagInput skip()
 		throws IOException, BEREncodingException;
+		
+		protected TagInput endOfContents()
+		throws BEREncodingException
+		{
+			return this;
+		}
+		
+		protected void checkAvailable(long length)
+		throws BEREncodingException
+		{
+		}
+		
+		protected long remaining()
+		{
+			return -1l;
+		}
 	}
 	
 	private static abstract class DefiniteTagInput
 	extends TagInput
 	{
 		protected TagInput parent;
-		private BigInteger avail;
+		private long avail;
 		
-		protected DefiniteTagInput(TagInput parent, BigInteger length)
+		protected DefiniteTagInput(TagInput parent, long length)
 		{
 			this.parent = parent;
 			avail = length;
@@ -525,29 +605,76 @@ extends InputStream
 		public TagInput skip()
 		throws IOException, BEREncodingException
 		{
-			while (avail.compareTo(BigInteger.ZERO) > 0)
+			while (avail > 0l)
 			{
-				long l = parent.skip(avail.longValue());
+				long l = parent.skip(avail);
 				if (l < 1l)
-					throw new IOException("No bytes available");
-				avail = avail.subtract(BigInteger.valueOf(l));
+				{
+					if (parent.read() < 0)
+						throw new IOException("No bytes available");
+					l = 1l;
+				}
+				avail -= l;
 			}
 			return parent;
 		}
-
+		
 		@Override
 		public int read()
 		throws IOException
 		{
-			if (avail.compareTo(BigInteger.ZERO) > 0)
+			if (avail > 0l)
 			{
 				int r = parent.read();
-				if (r > 0)
-					avail = avail.subtract(BigInteger.ONE);
+				if (r >= 0)
+					--avail;
 				return r;
 			}
 			return -1;
 		}
+		
+		@Override
+		public int read(byte[] b, int off, int len)
+		throws IOException
+		{
+			if (len == 0)
+				return 0;
+			if (avail <= 0l)
+				return -1;
+			int r = parent.read(b, off, (int) Math.min(len, avail));
+			if (r > 0)
+				avail -= r;
+			return r;
+		}
+		
+		@Override
+		public long skip(long n)
+		throws IOException
+		{
+			long l = parent.skip(Math.min(n, avail));
+			avail -= l;
+			return l;
+		}
+		
+		@Override
+		public void close()
+		throws IOException
+		{
+			parent.close();
+		}
+		
+		@Override
+		protected void checkAvailable(long length)
+		throws BEREncodingException
+		{
+			if (length > avail)
+				throw new BEREncodingException("Length exceeds enclosing tag");
+		}
+		
+		protected long getAvailable()
+		{
+			return avail;
+		}
 	}
 	
 	private static class RootTagInput
@@ -566,6 +693,13 @@ extends InputStream
 		{
 			throw new BEREncodingException("Reading byte from root input");
 		}
+		
+		@Override
+		public int readBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			throw new BEREncodingException("Reading byte from root input");
+		}
 
 		@Override
 		public TagInput readTag(ASN1Tag tag)
@@ -587,12 +721,33 @@ extends InputStream
 		{
 			return in.read();
 		}
+		
+		@Override
+		public int read(byte[] b, int off, int len)
+		throws IOException
+		{
+			return in.read(b, off, len);
+		}
+		
+		@Override
+		public long skip(long n)
+		throws IOException
+		{
+			return in.skip(n);
+		}
+		
+		@Override
+		public void close()
+		throws IOException
+		{
+			in.close();
+		}
 	}
 	
 	private static class PrimitiveTagInput
 	extends DefiniteTagInput
 	{
-		public PrimitiveTagInput(TagInput parent, BigInteger length)
+		public PrimitiveTagInput(TagInput parent, long length)
 		{
 			super(parent, length);
 		}
@@ -603,6 +758,19 @@ extends InputStream
 		{
 			return read();
 		}
+		
+		@Override
+		public int readBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			return read(b, off, len);
+		}
+		
+		@Override
+		protected long remaining()
+		{
+			return getAvailable();
+		}
 
 		@Override
 		public TagInput readTag(ASN1Tag tag)
@@ -615,7 +783,7 @@ extends InputStream
 	private static class DefiniteConstructedTagInput
 	extends DefiniteTagInput
 	{
-		public DefiniteConstructedTagInput(TagInput parent, BigInteger length)
+		public DefiniteConstructedTagInput(TagInput parent, long length)
 		{
 			super(parent, length);
 		}
@@ -626,6 +794,13 @@ extends InputStream
 		{
 			throw new BEREncodingException("Reading byte from constructed");
 		}
+		
+		@Override
+		public int readBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			throw new BEREncodingException("Reading byte from constructed");
+		}
 
 		@Override
 		public TagInput readTag(ASN1Tag tag)
@@ -639,10 +814,12 @@ extends InputStream
 	extends TagInput
 	{
 		private TagInput parent;
+		private boolean ended;
 		
 		public UndefiniteConstructedTagInput(TagInput parent)
 		{
 			this.parent = parent;
+			ended = false;
 		}
 		
 		@Override
@@ -651,11 +828,23 @@ extends InputStream
 		{
 			throw new BEREncodingException("Reading byte from constructed");
 		}
+		
+		@Override
+		public int readBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			throw new BEREncodingException("Reading byte from constructed");
+		}
 
 		@Override
 		public TagInput readTag(ASN1Tag tag)
 		throws IOException, BEREncodingException
 		{
+			if (ended)
+			{
+				setEOC(tag);
+				return this;
+			}
 			return constructedReadTag(this, tag);
 		}
 
@@ -664,9 +853,14 @@ extends InputStream
 		throws IOException, BEREncodingException
 		{
 			ASN1Tag tag = new ASN1Tag();
-			do
-				readTag(tag).skip();
-			while (!tag.isEOC());
+			while (!ended)
+			{
+				TagInput inner = readTag(tag);
+				if (inner != this)
+					inner.skip();
+				else if (!ended)
+					throw new BEREncodingException("Missing end-of-contents");
+			}
 			return parent;
 		}
 
@@ -674,7 +868,42 @@ extends InputStream
 		public int read()
 		throws IOException
 		{
-			return parent.read();
+			return ended ? -1 : parent.read();
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len)
+		throws IOException
+		{
+			return ended ? -1 : parent.read(b, off, len);
+		}
+		
+		@Override
+		public long skip(long n)
+		throws IOException
+		{
+			return parent.skip(n);
+		}
+		
+		@Override
+		public void close()
+		throws IOException
+		{
+			parent.close();
+		}
+		
+		@Override
+		protected TagInput endOfContents()
+		{
+			ended = true;
+			return this;
+		}
+		
+		@Override
+		protected void checkAvailable(long length)
+		throws BEREncodingException
+		{
+			parent.checkAvailable(length);
 		}
 	}
 }
\ No newline at end of file
@@ -19,22 +19,17 @@ package net.queenbee.asn1.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Stack;
 
 import net.queenbee.asn1.ASN1Class;
 import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
 import net.queenbee.asn1.OID;
 
 /**
@@ -45,20 +40,20 @@ import net.queenbee.asn1.OID;
 public class BEROutputStream
 extends OutputStream
 {
-	private static DateFormat utcFmt;
-	
 	/**
-	 * Default buffer size used to allocate temporary contents.
+	 * Default amount of temporary contents kept in memory before spilling
+	 * them to a temporary file.
 	 */
-	public static final int DEFAULT_BUFFER_SIZE = 4 * 1024;
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
 	
-	static
-	{
-		utcFmt = new SimpleDateFormat("yyMMddHHmmssZ");
-	}
+	private static final long UNKNOWN_LENGTH = -1l;
 	
+	private RootTagOutput root;
 	private TagOutput output;
 	private OutputStream out;
+	private OIDCodec oidCodec;
+	private StringCodec stringCodec;
+	private byte[] valueBuffer;
 	
 	/**
 	 * Creates a BER output stream to the given underlying output stream.
@@ -68,8 +63,7 @@ extends OutputStream
 	 */
 	public BEROutputStream(OutputStream out)
 	{
-		output = new RootTagOutput(DEFAULT_BUFFER_SIZE);
-		this.out = out;
+		this(out, DEFAULT_BUFFER_SIZE);
 	}
 	
 	/**
@@ -79,12 +73,37 @@ extends OutputStream
 	 * @param out
 	 * 			Underlying output stream.
 	 * @param bufferSize
-	 * 			Buffer size.
+	 * 			Amount of temporary contents kept in memory, beyond which they
+	 * 			are spilled to a temporary file.
 	 */
 	public BEROutputStream(OutputStream out, int bufferSize)
 	{
-		this.output = new RootTagOutput(bufferSize);
+		root = new RootTagOutput(bufferSize);
+		output = root;
 		this.out = out;
+		oidCodec = new OIDCodec();
+		stringCodec = new StringCodec();
+		valueBuffer = new byte[TimeCodec.MAX_GENERALIZED_TIME_LENGTH];
+	}
+	
+	/**
+	 * Discard all not flushed tags and contents, and continue writing to the
+	 * given underlying output stream. Buffers of this stream are kept, so it
+	 * can be reused instead of creating a new one.
+	 * 
+	 * @param out
+	 * 			New underlying output stream, or {@code null} for just
+	 * 			releasing the current one.
+	 * 
+	 * @throws IOException
+	 * 			If discarded contents could not be released.
+	 */
+	public void reset(OutputStream out)
+	throws IOException
+	{
+		this.out = out;
+		root.reset();
+		output = root;
 	}
 	
 	/**
@@ -148,7 +167,29 @@ extends OutputStream
 	public void writeInteger(BigInteger i)
 	throws IOException
 	{
-		write(i.toByteArray());
+		if (i.bitLength() < 64)
+			writeInteger(i.longValue());
+		else
+			write(i.toByteArray());
+	}
+	
+	/**
+	 * Write universal integer given as a {@code long}, using the minimum
+	 * count of bytes.
+	 * 
+	 * @param i
+	 * 			Integer to be written.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeInteger(long i)
+	throws IOException
+	{
+		int length = (64 - Long.numberOfLeadingZeros(i ^ (i >> 63))) / 8 + 1;
+		for (int j = 0; j < length; ++j)
+			valueBuffer[j] = (byte) (i >>> ((length - 1 - j) * 8));
+		write(valueBuffer, 0, length);
 	}
 	
 	/**
@@ -163,26 +204,22 @@ extends OutputStream
 	public void writeBitString(boolean[] bs)
 	throws IOException
 	{
-		write((8 - bs.length % 8) % 8);
-		int off = 0;
-		int b = 0;
-		for (boolean v : bs)
-		{
-			b = b | (v ? 1 : 0);
-			if (off < 7)
-			{
-				++off;
-				b = b << 1;
-			}
-			else
-			{
-				write(b);
-				off = 0;
-				b = 0;
-			}
-		}
-		if (off < 7)
-			write(b << (7 - off));
+		writeBitString(new BitString(bs));
+	}
+	
+	/**
+	 * Write universal bit string.
+	 * 
+	 * @param bs
+	 * 			Bit string to be written.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeBitString(BitString bs)
+	throws IOException
+	{
+		bs.writeContents(this);
 	}
 	
 	/**
@@ -212,21 +249,29 @@ extends OutputStream
 	public void writeObjectIdentifier(OID oid)
 	throws IOException
 	{
-		write(oid.get(0) * 40 + oid.get(1));
-		for (int i = 2; i < oid.length(); ++i)
-		{
-			Stack<Integer> stack = new Stack<Integer>();
-			int idi = oid.get(i);
-			stack.push(idi & 0x7f);
-			idi = idi >>> 7;
-			while (idi > 0)
-			{
-				stack.push(idi & 0x7f);
-				idi = idi >>> 7;
-			}
-			while (!stack.isEmpty())
-				write(stack.pop() | (stack.isEmpty() ? 0x00 : 0x80));
-		}
+		oid.writeContents(this);
+	}
+	
+	/**
+	 * Write universal object identifier given its arcs. They are encoded into
+	 * a buffer reused by this stream.
+	 * 
+	 * @param arcs
+	 * 			Arcs array.
+	 * @param count
+	 * 			Count of arcs to be written.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 * @throws IllegalArgumentException
+	 * 			If there are less than two arcs or the first two are not
+	 * 			valid.
+	 */
+	public void writeObjectIdentifier(int[] arcs, int count)
+	throws IOException
+	{
+		oidCodec.encode(arcs, count);
+		oidCodec.writeTo(this);
 	}
 	
 	/**
@@ -287,9 +332,25 @@ extends OutputStream
 	public void writeUTCTime(Date time)
 	throws IOException
 	{
-		Writer writer = new OutputStreamWriter(this, StandardCharsets.US_ASCII);
-		writer.write(utcFmt.format(time));
-		writer.flush();
+		writeUTCTime(time.getTime());
+	}
+	
+	/**
+	 * Write universal UTC time given as epoch milliseconds. Milliseconds of
+	 * second are dropped.
+	 * 
+	 * @param time
+	 * 			UTC time to be written.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 * @throws IllegalArgumentException
+	 * 			If time is not from year 1950 to year 2049.
+	 */
+	public void writeUTCTime(long time)
+	throws IOException
+	{
+		write(valueBuffer, 0, TimeCodec.formatUTCTime(time, valueBuffer, 0));
 	}
 	
 	/**
@@ -304,15 +365,33 @@ extends OutputStream
 	public void writeGeneralizedTime(Date time)
 	throws IOException
 	{
-		// TODO Write BER universal generalized time
-		throw new UnsupportedOperationException("Not implemented yet");
+		writeGeneralizedTime(time.getTime());
+	}
+	
+	/**
+	 * Write universal generalized time given as epoch milliseconds.
+	 * 
+	 * @param time
+	 * 			UTC time to be written.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 * @throws IllegalArgumentException
+	 * 			If year has more than four digits.
+	 */
+	public void writeGeneralizedTime(long time)
+	throws IOException
+	{
+		write(valueBuffer, 0, TimeCodec.formatGeneralizedTime(time,
+				valueBuffer, 0));
 	}
 	
 	/**
 	 * Concludes the current tag.
 	 * 
 	 * @param eoc
-	 * 			Includes EOC even though constructed length is determined.
+	 * 			Uses indefinite length terminated by EOC even though
+	 * 			constructed length could be determined.
 	 * 
 	 * @throws IOException
 	 * 			If an input/output error has been occurred.
@@ -342,6 +421,25 @@ extends OutputStream
 		}
 	}
 	
+	/**
+	 * Write the next bytes of the primitive content.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len)
+	throws IOException
+	{
+		if (off < 0 || len < 0 || off > b.length - len)
+			throw new IndexOutOfBoundsException();
+		try
+		{
+			output.writeBytes(b, off, len);
+		}
+		catch (BEREncodingException exception)
+		{
+			throw new IOException(exception);
+		}
+	}
+	
 	/**
 	 * Flush buffered content to the underlying output stream.
 	 */
@@ -351,7 +449,7 @@ extends OutputStream
 	{
 		try
 		{
-			output.flush(out);
+			root.flush(out);
 			out.flush();
 		}
 		catch (BEREncodingException exception)
@@ -368,7 +466,6 @@ extends OutputStream
 	{
 		flush();
 		out.close();
-		output.close();
 	}
 	
 	/*
@@ -377,50 +474,39 @@ extends OutputStream
 	private void writeString(String str, Charset charset)
 	throws IOException
 	{
-		Writer writer = new OutputStreamWriter(this, charset);
-		writer.write(str);
-		writer.flush();
+		stringCodec.encode(str, charset);
+		stringCodec.writeTo(this);
 	}
 	
-	private static BigInteger getTagIdentifierSize(ASN1Tag tag,
-			BigInteger length)
+	private static long getTagIdentifierSize(ASN1Tag tag, long length)
 	{
 		int tn = tag.getTagNumber();
 		
 		// Tag identifier and length
-		BigInteger size = BigInteger.valueOf(2l);
+		long size = 2l;
 		
 		// Extra tag number
 		if (tn > 30)
-		{
-			size = size.add(BigInteger.valueOf(tn / 127));
-			size = size.add(tn % 127 > 0 ? BigInteger.ONE : BigInteger.ZERO);
-		}
+			for (int num = tn; num > 0; num = num >>> 7)
+				++size;
 		
 		// Extra length
-		if (length != null && length.compareTo(BigInteger.valueOf(127l)) > 0)
-		{
-			BigInteger clen = length;
-			while (clen.compareTo(BigInteger.ZERO) > 0)
-			{
-				size = size.add(BigInteger.ZERO);
-				clen = clen.divide(BigInteger.valueOf(256l));
-			}
-		}
+		if (length > 127l)
+			for (long len = length; len > 0l; len = len >>> 8)
+				++size;
 		
 		// Computed size
 		return size;
 	}
 	
 	private static void tagIdentifierFlush(OutputStream out, ASN1Tag tag,
-			BigInteger length)
+			long length)
 	throws IOException
 	{
 		ASN1Class tc = tag.getTagClass();
 		int tn = tag.getTagNumber();
 		
 		int bi = 0;
-		byte[] b = new byte[1];
 		
 		// Tag class
 		bi = tc.ordinal() & 0x03;
@@ -435,55 +521,57 @@ extends OutputStream
 		{
 			// Tag number: Short form
 			bi = bi | tn;
-			b[0] = (byte) (bi & 0xff);
-			out.write(b, 0, 1);
+			out.write(bi);
 		}
 		else
 		{
 			// Tag number: Long form
 			bi = bi | 31;
-			b[0] = (byte) (bi & 0xff);
-			out.write(b, 0, 1);
+			out.write(bi);
 		
-			int num = tn;
-			while (num > 127)
-			{
-				b[0] = (byte) 0xff;
-				out.write(b, 0, 1);
-				num -= 127;
-			}
-			b[0] = (byte) (num % 128);
-			out.write(b, 0, 1);
+			int shift = 0;
+			for (int num = tn >>> 7; num > 0; num = num >>> 7)
+				shift += 7;
+			for (; shift > 0; shift -= 7)
+				out.write(0x80 | ((tn >>> shift) & 0x7f));
+			out.write(tn & 0x7f);
 		}
 		
 		// Tag length: Indefinite
-		if (length == null)
-		{
-			b[0] = (byte) 0x80;
-			out.write(b, 0, 1);
-		}
+		if (length < 0l)
+			out.write(0x80);
 		// Tag length: Short form
-		else if (length.compareTo(BigInteger.valueOf(128l)) < 0)
-		{
-			b[0] = length.byteValue();
-			out.write(b, 0, 1);
-		}
+		else if (length < 128l)
+			out.write((int) length);
 		// Tag length: Long form
 		else
 		{
-			byte[] len = length.toByteArray();
-			b[0] = (byte) (0x80 | len.length);
-			out.write(b, 0, 1);
-			out.write(len);
+			int shift = 0;
+			for (long len = length >>> 8; len > 0l; len = len >>> 8)
+				shift += 8;
+			out.write(0x80 | (shift / 8 + 1));
+			for (; shift >= 0; shift -= 8)
+				out.write((int) (length >>> shift) & 0xff);
 		}
 	}
 	
+	private static long addLength(long length1, long length2)
+	throws BEREncodingException
+	{
+		if (length1 > Long.MAX_VALUE - length2)
+			throw new BEREncodingException("Length overflow");
+		return length1 + length2;
+	}
+	
 	private static abstract class TagOutput
 	extends OutputStream
 	{
 		public abstract void writeByte(int b)
 		throws IOException, BEREncodingException;
 		
+		public abstract void writeBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException;
+		
 		public abstract TagOutput writeTag(ASN1Tag tag)
 		throws IOException, BEREncodingException;
 		
@@ -493,14 +581,15 @@ extends OutputStream
 		public abstract TagOutput conclude(boolean eoc)
 		throws IOException, BEREncodingException;
 		
-		public abstract BigInteger getSize();
+		public abstract long getSize()
+		throws BEREncodingException;
 		
 		public abstract boolean flush(OutputStream out)
 		throws IOException, BEREncodingException;
 		
-		protected abstract BigInteger getBufferIndex();
+		protected abstract long getBufferIndex();
 		
-		protected abstract void dumpBuffer(OutputStream out, BigInteger length)
+		protected abstract void dumpBuffer(OutputStream out, long length)
 		throws IOException;
 	}
 	
@@ -508,10 +597,12 @@ extends OutputStream
 	extends TagOutput
 	{
 		private List<TagOutput> outputList;
+		private int flushIndex;
 		
 		protected CompositeTagOutput()
 		{
 			outputList = new ArrayList<>();
+			flushIndex = 0;
 		}
 		
 		@Override
@@ -533,29 +624,38 @@ extends OutputStream
 			return this;
 		}
 		
-		protected BigInteger getChildrenLength()
+		protected long getChildrenLength()
+		throws BEREncodingException
 		{
-			BigInteger size = BigInteger.ZERO;
+			long size = 0l;
 			for (TagOutput child : outputList)
 			{
-				BigInteger childSize = child.getSize();
-				if (childSize == null)
-					return null;
-				size = size.add(childSize);
+				long childSize = child.getSize();
+				if (childSize < 0l)
+					return UNKNOWN_LENGTH;
+				size = addLength(size, childSize);
 			}
 			return size;
 		}
 		
+		protected void clearChildren()
+		{
+			outputList.clear();
+			flushIndex = 0;
+		}
+		
 		protected boolean flushChildren(OutputStream out)
 		throws IOException, BEREncodingException
 		{
-			while (!outputList.isEmpty())
+			// Flushed children are released without shifting the list
+			while (flushIndex < outputList.size())
 			{
-				TagOutput child = outputList.get(0);
+				TagOutput child = outputList.get(flushIndex);
 				if (!child.flush(out))
 					return false;
-				outputList.remove(0);
+				outputList.set(flushIndex++, null);
 			}
+			clearChildren();
 			return true;
 		}
 	}
@@ -563,15 +663,13 @@ extends OutputStream
 	private static class RootTagOutput
 	extends CompositeTagOutput
 	{
-		private ByteBuffer buffer;
-		private BigInteger bufferIndex;
-		private BigInteger dumpIndex;
+		private ChunkedBuffer buffer;
+		private long dumpIndex;
 		
 		public RootTagOutput(int bufferSize)
 		{
-			buffer = ByteBuffer.allocate(bufferSize);
-			bufferIndex = BigInteger.ZERO;
-			dumpIndex = null;
+			buffer = new ChunkedBuffer(bufferSize);
+			dumpIndex = 0l;
 		}
 		
 		@Override
@@ -580,6 +678,13 @@ extends OutputStream
 		{
 			throw new BEREncodingException("Writing byte to root output");
 		}
+		
+		@Override
+		public void writeBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			throw new BEREncodingException("Writing byte to root output");
+		}
 
 		@Override
 		public TagOutput conclude(boolean eoc)
@@ -589,20 +694,28 @@ extends OutputStream
 		}
 		
 		@Override
-		public BigInteger getSize()
+		public long getSize()
+		throws BEREncodingException
 		{
 			return getChildrenLength();
 		}
 		
+		public void reset()
+		throws IOException
+		{
+			clearChildren();
+			buffer.clear();
+			dumpIndex = 0l;
+		}
+		
 		@Override
 		public boolean flush(OutputStream out)
 		throws IOException, BEREncodingException
 		{
-			dumpIndex = BigInteger.ZERO;
+			dumpIndex = 0l;
 			boolean completed = flushChildren(out);
-			buffer.reset();
-			bufferIndex = BigInteger.ZERO;
-			dumpIndex = null;
+			buffer.clear();
+			dumpIndex = 0l;
 			return completed;
 		}
 		
@@ -610,24 +723,28 @@ extends OutputStream
 		public void write(int b)
 		throws IOException
 		{
-			buffer.put((byte) (b & 0xff));
-			bufferIndex = bufferIndex.add(BigInteger.ONE);
+			buffer.write(b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len)
+		throws IOException
+		{
+			buffer.write(b, off, len);
 		}
 		
 		@Override
-		protected BigInteger getBufferIndex()
+		protected long getBufferIndex()
 		{
-			return bufferIndex;
+			return buffer.size();
 		}
 
 		@Override
-		protected void dumpBuffer(OutputStream out, BigInteger length)
+		protected void dumpBuffer(OutputStream out, long length)
 		throws IOException
 		{
-			byte[] buff = new byte[length.intValue()];
-			buffer.get(buff, dumpIndex.intValue(), length.intValue());
-			out.write(buff, 0, length.intValue());
-			dumpIndex = dumpIndex.add(length);
+			buffer.writeTo(out, dumpIndex, length);
+			dumpIndex += length;
 		}
 	}
 	
@@ -636,15 +753,15 @@ extends OutputStream
 	{
 		private ASN1Tag tag;
 		private TagOutput parent;
-		private BigInteger start;
-		private BigInteger length;
+		private long start;
+		private long length;
 		
 		public PrimitiveTagOutput(ASN1Tag tag, TagOutput parent)
 		{
 			this.tag = tag;
 			this.parent = parent;
 			start = getBufferIndex();
-			length = null;
+			length = UNKNOWN_LENGTH;
 		}
 
 		@Override
@@ -653,6 +770,13 @@ extends OutputStream
 		{
 			write(b);
 		}
+		
+		@Override
+		public void writeBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			write(b, off, len);
+		}
 
 		@Override
 		public TagOutput writeTag(ASN1Tag tag)
@@ -672,21 +796,24 @@ extends OutputStream
 		public TagOutput conclude(boolean eoc)
 		throws IOException, BEREncodingException
 		{
-			length = getBufferIndex().subtract(start);
+			length = getBufferIndex() - start;
 			return parent;
 		}
 		
 		@Override
-		public BigInteger getSize()
+		public long getSize()
+		throws BEREncodingException
 		{
-			return getTagIdentifierSize(tag, length).add(length);
+			if (length < 0l)
+				return UNKNOWN_LENGTH;
+			return addLength(getTagIdentifierSize(tag, length), length);
 		}
 		
 		@Override
 		public boolean flush(OutputStream out)
 		throws IOException, BEREncodingException
 		{
-			if (length == null)
+			if (length < 0l)
 				throw new BEREncodingException(
 						"Flushing not concluded primitive output");
 			tagIdentifierFlush(out, tag, length);
@@ -702,13 +829,20 @@ extends OutputStream
 		}
 		
 		@Override
-		protected BigInteger getBufferIndex()
+		public void write(byte[] b, int off, int len)
+		throws IOException
+		{
+			parent.write(b, off, len);
+		}
+		
+		@Override
+		protected long getBufferIndex()
 		{
 			return parent.getBufferIndex();
 		}
 
 		@Override
-		protected void dumpBuffer(OutputStream out, BigInteger length)
+		protected void dumpBuffer(OutputStream out, long length)
 		throws IOException
 		{
 			parent.dumpBuffer(out, length);
@@ -720,14 +854,18 @@ extends OutputStream
 	{
 		private ASN1Tag tag;
 		private TagOutput parent;
-		private BigInteger length;
+		private long length;
+		private boolean indefinite;
+		private boolean concluded;
 		private boolean flushed;
 		
 		public ConstructedTagOutput(ASN1Tag tag, TagOutput parent)
 		{
 			this.tag = tag;
 			this.parent = parent;
-			length = null;
+			length = UNKNOWN_LENGTH;
+			indefinite = false;
+			concluded = false;
 			flushed = false;
 		}
 
@@ -738,23 +876,36 @@ extends OutputStream
 			throw new BEREncodingException(
 					"Writting byte to constructed ouput");
 		}
+		
+		@Override
+		public void writeBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+			throw new BEREncodingException(
+					"Writting byte to constructed ouput");
+		}
 
 		@Override
 		public TagOutput conclude(boolean eoc)
 		throws IOException, BEREncodingException
 		{
-			if (eoc || flushed)
-				super.writeTag(new ASN1Tag());
+			indefinite = eoc || flushed;
+			if (indefinite)
+				super.writeTag(new ASN1Tag()).conclude(false);
 			if (!flushed)
 				length = getChildrenLength();
+			concluded = true;
 			return parent;
 		}
 		
 		@Override
-		public BigInteger getSize()
+		public long getSize()
+		throws BEREncodingException
 		{
-			return length == null ? null
-					: getTagIdentifierSize(tag, length).add(length);
+			if (!concluded || flushed || length < 0l)
+				return UNKNOWN_LENGTH;
+			return addLength(getTagIdentifierSize(tag,
+					indefinite ? UNKNOWN_LENGTH : length), length);
 		}
 		
 		@Override
@@ -763,10 +914,11 @@ extends OutputStream
 		{
 			if (!flushed)
 			{
-				tagIdentifierFlush(out, tag, length);
+				tagIdentifierFlush(out, tag, concluded && !indefinite
+						? length : UNKNOWN_LENGTH);
 				flushed = true;
 			}
-			return flushChildren(out);
+			return flushChildren(out) && concluded;
 		}
 		
 		@Override
@@ -777,13 +929,20 @@ extends OutputStream
 		}
 		
 		@Override
-		protected BigInteger getBufferIndex()
+		public void write(byte[] b, int off, int len)
+		throws IOException
+		{
+			parent.write(b, off, len);
+		}
+		
+		@Override
+		protected long getBufferIndex()
 		{
 			return parent.getBufferIndex();
 		}
 		
 		@Override
-		protected void dumpBuffer(OutputStream out, BigInteger length)
+		protected void dumpBuffer(OutputStream out, long length)
 		throws IOException
 		{
 			parent.dumpBuffer(out, length);
@@ -805,6 +964,12 @@ extends OutputStream
 		throws IOException, BEREncodingException
 		{
 		}
+		
+		@Override
+		public void writeBytes(byte[] b, int off, int len)
+		throws IOException, BEREncodingException
+		{
+		}
 
 		@Override
 		public TagOutput writeTag(ASN1Tag tag)
@@ -828,9 +993,9 @@ extends OutputStream
 		}
 
 		@Override
-		public BigInteger getSize()
+		public long getSize()
 		{
-			return BigInteger.valueOf(bytes.length);
+			return bytes.length;
 		}
 
 		@Override
@@ -842,13 +1007,13 @@ extends OutputStream
 		}
 
 		@Override
-		protected BigInteger getBufferIndex()
+		protected long getBufferIndex()
 		{
-			return null;
+			return UNKNOWN_LENGTH;
 		}
 
 		@Override
-		protected void dumpBuffer(OutputStream out, BigInteger length)
+		protected void dumpBuffer(OutputStream out, long length)
 		throws IOException
 		{
 		}
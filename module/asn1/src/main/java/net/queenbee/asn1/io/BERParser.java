@@ -0,0 +1,377 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * Incremental BER parser.
+ * 
+ * <p>
+ * Encoding is pushed in chunks of any size, as they are received, and
+ * parsing events are sent to a {@link BERParserHandler}. Parser state is
+ * kept between chunks, so it never blocks waiting for more bytes and a
+ * single thread may serve as many parsers as connections it handles.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class BERParser
+{
+	private static final ASN1Class[] tagClasses = ASN1Class.values();
+	private static final int INITIAL_DEPTH = 8;
+	
+	private BERParserHandler handler;
+	private BERDecodingPolicy policy;
+	private State state;
+	private long position;
+	
+	private ASN1Class hdrClass;
+	private boolean hdrConstructed;
+	private int hdrNumber;
+	private int hdrLengthOctets;
+	private long hdrLength;
+	
+	private ASN1Tag primitiveTag;
+	private long primitiveEnd;
+	
+	private int depth;
+	private ASN1Tag[] tags;
+	private long[] ends;
+	private long[] limits;
+	
+	/**
+	 * Creates a parser sending events to the given handler.
+	 * 
+	 * @param handler
+	 * 			Parsing events handler.
+	 */
+	public BERParser(BERParserHandler handler)
+	{
+		this(handler, BERDecodingPolicy.UNBOUNDED);
+	}
+	
+	/**
+	 * Creates a parser sending events to the given handler and rejecting
+	 * encodings which exceed the limits of the given policy. Policy timeout
+	 * is not applied, since parser never blocks.
+	 * 
+	 * @param handler
+	 * 			Parsing events handler.
+	 * @param policy
+	 * 			Decoding limits.
+	 */
+	public BERParser(BERParserHandler handler, BERDecodingPolicy policy)
+	{
+		this.handler = handler;
+		this.policy = policy;
+		tags = new ASN1Tag[INITIAL_DEPTH];
+		ends = new long[INITIAL_DEPTH];
+		limits = new long[INITIAL_DEPTH];
+		reset();
+	}
+	
+	/**
+	 * Discards parsing state so a new encoding can be parsed.
+	 */
+	public void reset()
+	{
+		state = State.IDENTIFIER;
+		position = 0l;
+		primitiveTag = null;
+		for (int i = 0; i < depth; ++i)
+			tags[i] = null;
+		depth = 0;
+	}
+	
+	/**
+	 * Number of bytes parsed since creation or last reset.
+	 * 
+	 * @return
+	 * 			The parsed bytes count.
+	 */
+	public long getPosition()
+	{
+		return position;
+	}
+	
+	/**
+	 * Whether all parsed tags have been concluded.
+	 * 
+	 * @return
+	 * 			{@code true} if parsing stopped between two top level tags.
+	 */
+	public boolean isComplete()
+	{
+		return state == State.IDENTIFIER && depth == 0;
+	}
+	
+	/**
+	 * Count of following bytes which are known to belong to the top level
+	 * tag being parsed, given the definite lengths parsed so far. They may
+	 * be fed at once without going beyond the end of that tag.
+	 * 
+	 * @return
+	 * 			The known remaining bytes count, or zero if the next byte may
+	 * 			be the last one of the top level tag.
+	 */
+	public long getKnownRemaining()
+	{
+		// Outermost definite length tag ends after all the nested ones
+		long end = state == State.CONTENTS ? primitiveEnd : -1l;
+		for (int i = 0; i < depth; ++i)
+			if (ends[i] >= 0l)
+			{
+				end = ends[i];
+				break;
+			}
+		return end < 0l ? 0l : end - position;
+	}
+	
+	/**
+	 * Parses all remaining bytes of the given chunk.
+	 * 
+	 * @param chunk
+	 * 			Next encoding chunk. Its position is advanced up to its limit.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been found or the handler rejected
+	 * 			an event.
+	 */
+	public void feed(ByteBuffer chunk)
+	throws BEREncodingException
+	{
+		while (chunk.hasRemaining())
+		{
+			if (position == policy.getMaxLength())
+				throw new BEREncodingException("Maximum length exceeded");
+			switch (state)
+			{
+			case IDENTIFIER:
+			{
+				if (depth > 0 && limits[depth - 1] >= 0l
+						&& position >= limits[depth - 1])
+					throw new BEREncodingException("Missing end-of-contents");
+				
+				int b = chunk.get() & 0xff;
+				++position;
+				hdrClass = tagClasses[b >>> 6];
+				hdrConstructed = (b & 0x20) != 0;
+				hdrNumber = b & 0x1f;
+				if (hdrNumber == 0x1f)
+				{
+					hdrNumber = 0;
+					state = State.TAG_NUMBER;
+				}
+				else
+					state = State.LENGTH;
+				break;
+			}
+			case TAG_NUMBER:
+			{
+				int b = chunk.get() & 0xff;
+				++position;
+				if (hdrNumber > (Integer.MAX_VALUE >>> 7))
+					throw new BEREncodingException("Tag number overflow");
+				hdrNumber = (hdrNumber << 7) | (b & 0x7f);
+				if ((b & 0x80) == 0)
+					state = State.LENGTH;
+				break;
+			}
+			case LENGTH:
+			{
+				int b = chunk.get() & 0xff;
+				++position;
+				if (b < 0x80)
+					headerParsed(b);
+				else if (b == 0x80)
+					headerParsed(-1l);
+				else if (b == 0xff)
+					throw new BEREncodingException("Reserved length octet");
+				else
+				{
+					hdrLengthOctets = b & 0x7f;
+					if (hdrLengthOctets > 8)
+						throw new BEREncodingException("Length overflow");
+					hdrLength = 0l;
+					state = State.LENGTH_OCTETS;
+				}
+				break;
+			}
+			case LENGTH_OCTETS:
+			{
+				int b = chunk.get() & 0xff;
+				++position;
+				if (hdrLength > (Long.MAX_VALUE >>> 8))
+					throw new BEREncodingException("Length overflow");
+				hdrLength = (hdrLength << 8) | b;
+				if (--hdrLengthOctets == 0)
+					headerParsed(hdrLength);
+				break;
+			}
+			case CONTENTS:
+			{
+				int n = (int) Math.min(chunk.remaining(),
+						primitiveEnd - position);
+				ByteBuffer contents = chunk.slice();
+				contents.limit(n);
+				chunk.position(chunk.position() + n);
+				position += n;
+				handler.primitiveContents(contents);
+				if (position == primitiveEnd)
+				{
+					state = State.IDENTIFIER;
+					ASN1Tag tag = primitiveTag;
+					primitiveTag = null;
+					handler.tagEnd(tag);
+					concludeDefinite();
+				}
+				break;
+			}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the encoding was not truncated.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If some tag has not been concluded.
+	 */
+	public void finish()
+	throws BEREncodingException
+	{
+		if (!isComplete())
+			throw new BEREncodingException("Truncated encoding");
+	}
+	
+	/*
+	 * Identifier and length octets have been parsed.
+	 */
+	private void headerParsed(long length)
+	throws BEREncodingException
+	{
+		state = State.IDENTIFIER;
+		long limit = depth > 0 ? limits[depth - 1] : -1l;
+		if (limit >= 0l && position > limit)
+			throw new BEREncodingException("Length exceeds enclosing tag");
+		
+		// End-of-contents
+		if (hdrClass == ASN1Class.UNIVERSAL && !hdrConstructed
+				&& hdrNumber == ASN1Tag.TN_EOC)
+		{
+			if (length != 0l)
+				throw new BEREncodingException(
+						"Invalid end-of-contents length");
+			if (depth == 0 || ends[depth - 1] >= 0l)
+				throw new BEREncodingException("Unexpected end-of-contents");
+			ASN1Tag tag = tags[--depth];
+			tags[depth] = null;
+			handler.tagEnd(tag);
+			concludeDefinite();
+			return;
+		}
+		
+		long end = -1l;
+		if (length >= 0l)
+		{
+			if (length > Long.MAX_VALUE - position)
+				throw new BEREncodingException("Length overflow");
+			end = position + length;
+			if (limit >= 0l && end > limit)
+				throw new BEREncodingException("Length exceeds enclosing tag");
+			if (end > policy.getMaxLength())
+				throw new BEREncodingException("Maximum length exceeded");
+		}
+		if (hdrConstructed)
+		{
+			if (depth == policy.getMaxDepth())
+				throw new BEREncodingException("Maximum depth exceeded");
+		}
+		else if (length > policy.getMaxPrimitiveLength())
+			throw new BEREncodingException(
+					"Maximum primitive length exceeded");
+		
+		ASN1Tag tag = new ASN1Tag(hdrClass, hdrNumber, hdrConstructed);
+		handler.tagStart(tag, length);
+		if (hdrConstructed)
+		{
+			if (depth == tags.length)
+				grow();
+			tags[depth] = tag;
+			ends[depth] = end;
+			limits[depth] = end >= 0l ? end : limit;
+			++depth;
+			concludeDefinite();
+		}
+		else if (length < 0l)
+			throw new BEREncodingException(
+					"Indefinite length on primitive tag");
+		else if (length == 0l)
+		{
+			handler.tagEnd(tag);
+			concludeDefinite();
+		}
+		else
+		{
+			primitiveTag = tag;
+			primitiveEnd = end;
+			state = State.CONTENTS;
+		}
+	}
+	
+	/*
+	 * Conclude definite length tags whose contents have been all parsed.
+	 */
+	private void concludeDefinite()
+	throws BEREncodingException
+	{
+		while (depth > 0 && ends[depth - 1] == position)
+		{
+			ASN1Tag tag = tags[--depth];
+			tags[depth] = null;
+			handler.tagEnd(tag);
+		}
+	}
+	
+	private void grow()
+	{
+		int length = tags.length * 2;
+		ASN1Tag[] newTags = new ASN1Tag[length];
+		long[] newEnds = new long[length];
+		long[] newLimits = new long[length];
+		System.arraycopy(tags, 0, newTags, 0, depth);
+		System.arraycopy(ends, 0, newEnds, 0, depth);
+		System.arraycopy(limits, 0, newLimits, 0, depth);
+		tags = newTags;
+		ends = newEnds;
+		limits = newLimits;
+	}
+	
+	private static enum State
+	{
+		IDENTIFIER,
+		TAG_NUMBER,
+		LENGTH,
+		LENGTH_OCTETS,
+		CONTENTS
+	}
+}
\ No newline at end of file
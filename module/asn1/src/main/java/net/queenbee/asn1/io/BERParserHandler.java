@@ -0,0 +1,69 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * Receives events from a {@link BERParser}.
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public interface BERParserHandler
+{
+	/**
+	 * A tag identifier and length has been parsed.
+	 * 
+	 * @param tag
+	 * 			Parsed tag.
+	 * @param length
+	 * 			Contents length, or {@code -1} if it is indefinite.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If handler rejects the tag.
+	 */
+	public void tagStart(ASN1Tag tag, long length)
+	throws BEREncodingException;
+	
+	/**
+	 * Primitive contents fragment has been received. Contents of a single
+	 * primitive tag may be delivered in several fragments, as they arrive.
+	 * 
+	 * @param contents
+	 * 			Contents fragment, only valid until this method returns.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If handler rejects the contents.
+	 */
+	public void primitiveContents(ByteBuffer contents)
+	throws BEREncodingException;
+	
+	/**
+	 * All contents of a tag have been parsed.
+	 * 
+	 * @param tag
+	 * 			Concluded tag.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If handler rejects the tag.
+	 */
+	public void tagEnd(ASN1Tag tag)
+	throws BEREncodingException;
+}
\ No newline at end of file
@@ -0,0 +1,395 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * BER reader sending tags to a {@link BERVisitor}.
+ * 
+ * <p>
+ * Contents of a tag are only read when the visitor asks for them. Skipped
+ * definite length tags are jumped over by their offset, so picking a single
+ * field of a large structure costs as many reads as its depth. Skipped
+ * indefinite length tags require reading identifier and length octets of
+ * their nested tags, but never their contents.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class BERReader
+{
+	/**
+	 * Default size of the window read from channels.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 8 * 1024;
+	
+	private static final ASN1Class[] tagClasses = ASN1Class.values();
+	private static final int INITIAL_DEPTH = 8;
+	
+	private SeekableByteChannel channel;
+	private ByteBuffer window;
+	private long windowOffset;
+	
+	private ASN1Class hdrClass;
+	private boolean hdrConstructed;
+	private int hdrNumber;
+	private long hdrValueOffset;
+	private long hdrLength;
+	
+	private int depth;
+	private ASN1Tag[] tags;
+	private long[] ends;
+	private long[] limits;
+	
+	/**
+	 * Creates a reader of the given channel contents.
+	 * 
+	 * @param channel
+	 * 			Channel to be read, from its first byte up to its size.
+	 */
+	public BERReader(SeekableByteChannel channel)
+	{
+		this(channel, DEFAULT_WINDOW_SIZE);
+	}
+	
+	/**
+	 * Creates a reader of the given channel contents with the defined window
+	 * size.
+	 * 
+	 * @param channel
+	 * 			Channel to be read, from its first byte up to its size.
+	 * @param windowSize
+	 * 			Size of the window read from the channel at once.
+	 */
+	public BERReader(SeekableByteChannel channel, int windowSize)
+	{
+		this.channel = channel;
+		window = ByteBuffer.allocate(windowSize);
+		window.limit(0);
+		windowOffset = 0l;
+		tags = new ASN1Tag[INITIAL_DEPTH];
+		ends = new long[INITIAL_DEPTH];
+		limits = new long[INITIAL_DEPTH];
+	}
+	
+	/**
+	 * Creates a reader of the given buffer contents.
+	 * 
+	 * @param buffer
+	 * 			Buffer to be read, from its position up to its limit.
+	 */
+	public BERReader(ByteBuffer buffer)
+	{
+		channel = null;
+		window = buffer.slice();
+		windowOffset = 0l;
+		tags = new ASN1Tag[INITIAL_DEPTH];
+		ends = new long[INITIAL_DEPTH];
+		limits = new long[INITIAL_DEPTH];
+	}
+	
+	/**
+	 * Reads all source tags, sending them to the given visitor.
+	 * 
+	 * @param visitor
+	 * 			Visitor receiving tags.
+	 * 
+	 * @throws IOException
+	 * 			If an input/output error has been occurred.
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been found or the visitor rejected
+	 * 			some tag.
+	 */
+	public void accept(BERVisitor visitor)
+	throws IOException, BEREncodingException
+	{
+		long size = channel == null ? window.limit() : channel.size();
+		long pos = 0l;
+		depth = 0;
+		try
+		{
+			while (true)
+			{
+				long limit = depth > 0 ? limits[depth - 1] : size;
+				boolean indefinite = depth > 0 && ends[depth - 1] < 0l;
+				BERVisitResult result;
+				
+				// End of definite length level
+				if (!indefinite && pos == limit)
+				{
+					if (depth == 0)
+						return;
+					result = visitor.onTagEnd(pop());
+					if (result == BERVisitResult.TERMINATE)
+						return;
+					if (result == BERVisitResult.SKIP_SIBLINGS)
+						pos = skipSiblings(pos);
+					continue;
+				}
+				
+				long offset = pos;
+				readHeader(pos, limit);
+				pos = hdrValueOffset;
+				
+				// End-of-contents
+				if (hdrClass == ASN1Class.UNIVERSAL && !hdrConstructed
+						&& hdrNumber == ASN1Tag.TN_EOC)
+				{
+					if (!indefinite || hdrLength != 0l)
+						throw new BEREncodingException(
+								"Unexpected end-of-contents");
+					result = visitor.onTagEnd(pop());
+					if (result == BERVisitResult.TERMINATE)
+						return;
+					if (result == BERVisitResult.SKIP_SIBLINGS)
+						pos = skipSiblings(pos);
+					continue;
+				}
+				if (!hdrConstructed && hdrLength < 0l)
+					throw new BEREncodingException(
+							"Indefinite length on primitive tag");
+				
+				ASN1Tag tag = new ASN1Tag(hdrClass, hdrNumber,
+						hdrConstructed);
+				result = visitor.onTag(tag, offset, hdrLength);
+				if (result == BERVisitResult.CONTINUE)
+				{
+					if (hdrConstructed)
+					{
+						push(tag, hdrLength < 0l ? -1l : pos + hdrLength,
+								hdrLength < 0l ? limit : pos + hdrLength);
+						continue;
+					}
+					ByteBuffer contents = read(pos, hdrLength);
+					pos += hdrLength;
+					result = visitor.onPrimitive(tag, contents);
+				}
+				else
+					pos = skipContents(pos, limit);
+				
+				if (result == BERVisitResult.TERMINATE)
+					return;
+				if (result == BERVisitResult.SKIP_SIBLINGS)
+					pos = skipSiblings(pos);
+			}
+		}
+		finally
+		{
+			for (int i = 0; i < depth; ++i)
+				tags[i] = null;
+			depth = 0;
+		}
+	}
+	
+	/*
+	 * Read identifier and length octets at the given offset.
+	 */
+	private void readHeader(long offset, long limit)
+	throws IOException, BEREncodingException
+	{
+		int b = byteAt(offset++, limit);
+		hdrClass = tagClasses[b >>> 6];
+		hdrConstructed = (b & 0x20) != 0;
+		hdrNumber = b & 0x1f;
+		
+		// Tag number: Long form
+		if (hdrNumber == 0x1f)
+		{
+			hdrNumber = 0;
+			do
+			{
+				if (hdrNumber > (Integer.MAX_VALUE >>> 7))
+					throw new BEREncodingException("Tag number overflow");
+				b = byteAt(offset++, limit);
+				hdrNumber = (hdrNumber << 7) | (b & 0x7f);
+			}
+			while ((b & 0x80) != 0);
+		}
+		
+		b = byteAt(offset++, limit);
+		// Tag length: Short form
+		if (b < 0x80)
+			hdrLength = b;
+		// Tag length: Indefinite
+		else if (b == 0x80)
+			hdrLength = -1l;
+		// Tag length: Long form
+		else
+		{
+			int n = b & 0x7f;
+			if (n > 8 || b == 0xff)
+				throw new BEREncodingException("Length overflow");
+			hdrLength = 0l;
+			for (int i = 0; i < n; ++i)
+			{
+				if (hdrLength > (Long.MAX_VALUE >>> 8))
+					throw new BEREncodingException("Length overflow");
+				hdrLength = (hdrLength << 8) | byteAt(offset++, limit);
+			}
+		}
+		hdrValueOffset = offset;
+		if (hdrLength > limit - offset)
+			throw new BEREncodingException("Length exceeds enclosing tag");
+	}
+	
+	/*
+	 * Position after the contents of the tag whose header was just read.
+	 */
+	private long skipContents(long pos, long limit)
+	throws IOException, BEREncodingException
+	{
+		if (hdrLength >= 0l)
+			return pos + hdrLength;
+		
+		// Skip nested headers up to the matching end-of-contents
+		int nesting = 0;
+		while (true)
+		{
+			readHeader(pos, limit);
+			pos = hdrValueOffset;
+			if (hdrClass == ASN1Class.UNIVERSAL && !hdrConstructed
+					&& hdrNumber == ASN1Tag.TN_EOC)
+			{
+				if (nesting == 0)
+					return pos;
+				--nesting;
+			}
+			else if (hdrLength < 0l)
+				++nesting;
+			else
+				pos += hdrLength;
+		}
+	}
+	
+	/*
+	 * Position where the current level is concluded, skipping all tags
+	 * from the given position.
+	 */
+	private long skipSiblings(long pos)
+	throws IOException, BEREncodingException
+	{
+		if (depth == 0)
+			return channel == null ? window.limit() : channel.size();
+		if (ends[depth - 1] >= 0l)
+			return ends[depth - 1];
+		
+		// Skip nested headers up to, but not including, end-of-contents
+		long limit = limits[depth - 1];
+		while (true)
+		{
+			readHeader(pos, limit);
+			if (hdrClass == ASN1Class.UNIVERSAL && !hdrConstructed
+					&& hdrNumber == ASN1Tag.TN_EOC)
+				return pos;
+			pos = skipContents(hdrValueOffset, limit);
+		}
+	}
+	
+	/*
+	 * Byte at the given source offset.
+	 */
+	private int byteAt(long offset, long limit)
+	throws IOException, BEREncodingException
+	{
+		if (offset >= limit)
+			throw new BEREncodingException("Truncated encoding");
+		if (offset < windowOffset
+				|| offset >= windowOffset + window.limit())
+			fill(offset);
+		return window.get((int) (offset - windowOffset)) & 0xff;
+	}
+	
+	/*
+	 * Contents at the given source offset.
+	 */
+	private ByteBuffer read(long offset, long length)
+	throws IOException, BEREncodingException
+	{
+		if (length > Integer.MAX_VALUE)
+			throw new BEREncodingException("Length overflow");
+		
+		if (offset < windowOffset
+				|| offset + length > windowOffset + window.limit())
+		{
+			// Read big contents apart
+			if (length > window.capacity())
+			{
+				ByteBuffer contents = ByteBuffer.allocate((int) length);
+				channel.position(offset);
+				while (contents.hasRemaining())
+					if (channel.read(contents) < 0)
+						throw new BEREncodingException("Truncated encoding");
+				contents.flip();
+				return contents;
+			}
+			fill(offset);
+		}
+		
+		ByteBuffer contents = window.duplicate();
+		contents.position((int) (offset - windowOffset));
+		contents.limit((int) (offset - windowOffset + length));
+		return contents.slice();
+	}
+	
+	/*
+	 * Read the window starting at the given channel offset.
+	 */
+	private void fill(long offset)
+	throws IOException
+	{
+		window.clear();
+		channel.position(offset);
+		while (window.hasRemaining() && channel.read(window) >= 0);
+		window.flip();
+		windowOffset = offset;
+	}
+	
+	private void push(ASN1Tag tag, long end, long limit)
+	{
+		if (depth == tags.length)
+		{
+			int length = depth * 2;
+			ASN1Tag[] newTags = new ASN1Tag[length];
+			long[] newEnds = new long[length];
+			long[] newLimits = new long[length];
+			System.arraycopy(tags, 0, newTags, 0, depth);
+			System.arraycopy(ends, 0, newEnds, 0, depth);
+			System.arraycopy(limits, 0, newLimits, 0, depth);
+			tags = newTags;
+			ends = newEnds;
+			limits = newLimits;
+		}
+		tags[depth] = tag;
+		ends[depth] = end;
+		limits[depth] = limit;
+		++depth;
+	}
+	
+	private ASN1Tag pop()
+	{
+		ASN1Tag tag = tags[--depth];
+		tags[depth] = null;
+		return tag;
+	}
+}
\ No newline at end of file
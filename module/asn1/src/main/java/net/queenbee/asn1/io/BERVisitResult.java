@@ -0,0 +1,48 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+/**
+ * Result of a {@link BERVisitor} method, telling {@link BERReader} how to
+ * go on.
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public enum BERVisitResult
+{
+	/**
+	 * Continue reading. When returned for a tag, its contents are read.
+	 */
+	CONTINUE,
+	
+	/**
+	 * Skip the tag contents without reading them. Only meaningful when
+	 * returned for a tag.
+	 */
+	SKIP_SUBTREE,
+	
+	/**
+	 * Skip the tag contents and all its remaining siblings.
+	 */
+	SKIP_SIBLINGS,
+	
+	/**
+	 * Stop reading.
+	 */
+	TERMINATE
+}
\ No newline at end of file
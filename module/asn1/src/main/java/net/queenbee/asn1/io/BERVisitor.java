@@ -0,0 +1,81 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * Receives tags read by a {@link BERReader}.
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public interface BERVisitor
+{
+	/**
+	 * A tag identifier and length has been read.
+	 * 
+	 * @param tag
+	 * 			Read tag.
+	 * @param offset
+	 * 			Tag offset within the source.
+	 * @param length
+	 * 			Contents length, or {@code -1} if it is indefinite.
+	 * 
+	 * @return
+	 * 			How to go on with the tag contents.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If visitor rejects the tag.
+	 */
+	public BERVisitResult onTag(ASN1Tag tag, long offset, long length)
+	throws BEREncodingException;
+	
+	/**
+	 * Contents of a primitive tag have been read.
+	 * 
+	 * @param tag
+	 * 			Primitive tag.
+	 * @param contents
+	 * 			Tag contents, only valid until this method returns.
+	 * 
+	 * @return
+	 * 			How to go on with the tag siblings.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If visitor rejects the contents.
+	 */
+	public BERVisitResult onPrimitive(ASN1Tag tag, ByteBuffer contents)
+	throws BEREncodingException;
+	
+	/**
+	 * All contents of a constructed tag have been read.
+	 * 
+	 * @param tag
+	 * 			Constructed tag.
+	 * 
+	 * @return
+	 * 			How to go on with the tag siblings.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If visitor rejects the tag.
+	 */
+	public BERVisitResult onTagEnd(ASN1Tag tag)
+	throws BEREncodingException;
+}
\ No newline at end of file
@@ -0,0 +1,345 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Growable buffer made of fixed size chunks.
+ * 
+ * <p>
+ * Chunks are taken from and given back to a per-thread pool, so buffers
+ * which are filled and cleared repeatedly do not allocate once the pool is
+ * warm. At least one chunk is always kept in memory. When buffered contents
+ * exceed the memory limit, they are moved to a temporary file, where
+ * following contents are appended a chunk at a time. The file is written
+ * and read through its channel and it is never mapped, so it is deleted as
+ * soon as the buffer is cleared.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+class ChunkedBuffer
+extends OutputStream
+{
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int POOL_SIZE = 64;
+	
+	private static final ThreadLocal<Deque<byte[]>> chunkPool;
+	
+	static
+	{
+		chunkPool = new ThreadLocal<Deque<byte[]>>()
+		{
+			@Override
+			protected Deque<byte[]> initialValue()
+			{
+				return new ArrayDeque<>();
+			}
+		};
+	}
+	
+	private long memoryLimit;
+	private List<byte[]> chunks;
+	private byte[] chunk;
+	private long chunkEnd;
+	private FileChannel channel;
+	private long size;
+	
+	/**
+	 * Creates an empty buffer.
+	 * 
+	 * @param memoryLimit
+	 * 			Amount of contents kept in memory, beyond which they are
+	 * 			spilled to a temporary file.
+	 */
+	public ChunkedBuffer(long memoryLimit)
+	{
+		this.memoryLimit = memoryLimit;
+		chunks = new ArrayList<>();
+		chunk = null;
+		chunkEnd = 0l;
+		channel = null;
+		size = 0l;
+	}
+	
+	/**
+	 * Buffered contents size.
+	 * 
+	 * @return
+	 * 			The number of bytes written since the last clear.
+	 */
+	public long size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Write the next byte.
+	 */
+	@Override
+	public void write(int b)
+	throws IOException
+	{
+		if (size == chunkEnd)
+			nextChunk();
+		chunk[(int) size & (CHUNK_SIZE - 1)] = (byte) b;
+		++size;
+	}
+	
+	/**
+	 * Write the next bytes.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len)
+	throws IOException
+	{
+		if (off < 0 || len < 0 || off > b.length - len)
+			throw new IndexOutOfBoundsException();
+		
+		while (len > 0)
+		{
+			if (size == chunkEnd)
+				nextChunk();
+			int i = (int) size & (CHUNK_SIZE - 1);
+			int n = Math.min(len, CHUNK_SIZE - i);
+			System.arraycopy(b, off, chunk, i, n);
+			size += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Buffered byte at the given index.
+	 * 
+	 * @param index
+	 * 			Byte index.
+	 * 
+	 * @return
+	 * 			Byte value as an unsigned integer.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 * 			If index is not in the buffered contents.
+	 * @throws IOException
+	 * 			If byte could not be read from the temporary file.
+	 */
+	public int get(long index)
+	throws IOException
+	{
+		if (index < 0l || index >= size)
+			throw new IndexOutOfBoundsException();
+		
+		if (channel == null)
+			return chunks.get((int) (index >>> CHUNK_SHIFT))[(int) index
+					& (CHUNK_SIZE - 1)] & 0xff;
+		if (index >= chunkEnd - CHUNK_SIZE)
+			return chunk[(int) index & (CHUNK_SIZE - 1)] & 0xff;
+		ByteBuffer b = ByteBuffer.allocate(1);
+		read(b, index);
+		return b.get(0) & 0xff;
+	}
+	
+	/**
+	 * Write a range of the buffered contents to the given output stream.
+	 * 
+	 * @param out
+	 * 			Output stream where contents are written to.
+	 * @param offset
+	 * 			Range offset.
+	 * @param length
+	 * 			Range length.
+	 * 
+	 * @throws IOException
+	 * 			If an input/output error has been occurred.
+	 */
+	public void writeTo(OutputStream out, long offset, long length)
+	throws IOException
+	{
+		if (offset < 0l || length < 0l || offset > size - length)
+			throw new IndexOutOfBoundsException();
+		
+		if (channel == null)
+		{
+			while (length > 0l)
+			{
+				int i = (int) offset & (CHUNK_SIZE - 1);
+				int n = (int) Math.min(length, CHUNK_SIZE - i);
+				out.write(chunks.get((int) (offset >>> CHUNK_SHIFT)), i, n);
+				offset += n;
+				length -= n;
+			}
+			return;
+		}
+		
+		// Spilled contents are read back a chunk at a time
+		long spilled = chunkEnd - CHUNK_SIZE;
+		if (offset < spilled && length > 0l)
+		{
+			byte[] transfer = takeChunk();
+			try
+			{
+				ByteBuffer view = ByteBuffer.wrap(transfer);
+				while (offset < spilled && length > 0l)
+				{
+					int n = (int) Math.min(Math.min(length, spilled - offset),
+							CHUNK_SIZE);
+					view.clear();
+					view.limit(n);
+					read(view, offset);
+					out.write(transfer, 0, n);
+					offset += n;
+					length -= n;
+				}
+			}
+			finally
+			{
+				releaseChunk(transfer);
+			}
+		}
+		if (length > 0l)
+			out.write(chunk, (int) (offset - spilled), (int) length);
+	}
+	
+	/**
+	 * Discard all buffered contents, giving chunks back to the pool and
+	 * deleting the temporary file, if any.
+	 * 
+	 * @throws IOException
+	 * 			If temporary file could not be closed.
+	 */
+	public void clear()
+	throws IOException
+	{
+		for (byte[] c : chunks)
+			releaseChunk(c);
+		chunks.clear();
+		if (channel != null && chunk != null)
+			releaseChunk(chunk);
+		chunk = null;
+		chunkEnd = 0l;
+		size = 0l;
+		if (channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			finally
+			{
+				channel = null;
+			}
+		}
+	}
+	
+	/**
+	 * Same as {@link #clear()}.
+	 */
+	@Override
+	public void close()
+	throws IOException
+	{
+		clear();
+	}
+	
+	/*
+	 * Make room for the next chunk of contents. Contents are spilled once
+	 * they have reached the memory limit, and then every filled chunk is
+	 * appended to the temporary file.
+	 */
+	private void nextChunk()
+	throws IOException
+	{
+		if (channel == null && (chunk == null || size < memoryLimit))
+		{
+			chunk = takeChunk();
+			chunks.add(chunk);
+		}
+		else if (channel == null)
+			spill();
+		else
+			write(ByteBuffer.wrap(chunk), chunkEnd - CHUNK_SIZE);
+		chunkEnd += CHUNK_SIZE;
+	}
+	
+	/*
+	 * Move in-memory contents to a new temporary file.
+	 */
+	private void spill()
+	throws IOException
+	{
+		Path path = Files.createTempFile("queenbee-", ".ber");
+		channel = FileChannel.open(path, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+		
+		long position = 0l;
+		for (byte[] c : chunks)
+		{
+			write(ByteBuffer.wrap(c), position);
+			position += CHUNK_SIZE;
+		}
+		for (byte[] c : chunks)
+			releaseChunk(c);
+		chunks.clear();
+		chunk = takeChunk();
+	}
+	
+	private void write(ByteBuffer src, long position)
+	throws IOException
+	{
+		while (src.hasRemaining())
+			position += channel.write(src, position);
+	}
+	
+	private void read(ByteBuffer dst, long position)
+	throws IOException
+	{
+		while (dst.hasRemaining())
+		{
+			int n = channel.read(dst, position);
+			if (n < 0)
+				throw new EOFException("Truncated temporary file");
+			position += n;
+		}
+	}
+	
+	private static byte[] takeChunk()
+	{
+		byte[] c = chunkPool.get().pollFirst();
+		return c == null ? new byte[CHUNK_SIZE] : c;
+	}
+	
+	private static void releaseChunk(byte[] c)
+	{
+		Deque<byte[]> pool = chunkPool.get();
+		if (pool.size() < POOL_SIZE)
+			pool.addFirst(c);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Small lock-free pool of reusable codec instances, like BER streams.
+ * 
+ * <p>
+ * Pooled instances are kept in a fixed count of slots which are taken and
+ * filled by compare-and-set, starting from a slot chosen by the calling
+ * thread. When all slots are empty a new instance is created, and when all
+ * of them are full a released instance is left to the garbage collector,
+ * so the pool never blocks.
+ * </p>
+ * 
+ * @param <T>
+ * 			Type of pooled instances.
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public abstract class CodecPool<T>
+{
+	private AtomicReferenceArray<T> slots;
+	
+	/**
+	 * Creates an empty pool.
+	 * 
+	 * @param size
+	 * 			Maximum count of pooled instances.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If size is not positive.
+	 */
+	protected CodecPool(int size)
+	{
+		if (size < 1)
+		{
+			StringBuilder msg = new StringBuilder();
+			msg.append("Invalid pool size: ").append(size);
+			throw new IllegalArgumentException(msg.toString());
+		}
+		slots = new AtomicReferenceArray<>(size);
+	}
+	
+	/**
+	 * Take an instance from this pool, or create a new one if there is no
+	 * pooled instance.
+	 * 
+	 * @return
+	 * 			An instance which is not used by anyone else.
+	 */
+	public T take()
+	{
+		int size = slots.length();
+		int start = firstSlot(size);
+		for (int i = 0; i < size; ++i)
+		{
+			int slot = (start + i) % size;
+			T codec = slots.get(slot);
+			if (codec != null && slots.compareAndSet(slot, codec, null))
+				return codec;
+		}
+		return create();
+	}
+	
+	/**
+	 * Give the given instance back to this pool once it has been cleared.
+	 * It must not be used anymore by the caller.
+	 * 
+	 * <p>
+	 * Instances which could not be cleared are discarded.
+	 * </p>
+	 * 
+	 * @param codec
+	 * 			Instance previously taken from this pool.
+	 */
+	public void release(T codec)
+	{
+		try
+		{
+			clear(codec);
+		}
+		catch (IOException exception)
+		{
+			return;
+		}
+		
+		int size = slots.length();
+		int start = firstSlot(size);
+		for (int i = 0; i < size; ++i)
+		{
+			int slot = (start + i) % size;
+			if (slots.get(slot) == null
+					&& slots.compareAndSet(slot, null, codec))
+				return;
+		}
+	}
+	
+	/**
+	 * Creates a new instance when the pool is empty.
+	 * 
+	 * @return
+	 * 			The new instance.
+	 */
+	protected abstract T create();
+	
+	/**
+	 * Clears the state of an instance which is being released, so it does
+	 * not keep references to streams or contents of its last user. Does
+	 * nothing by default.
+	 * 
+	 * @param codec
+	 * 			Instance being released.
+	 * 
+	 * @throws IOException
+	 * 			If the instance could not be cleared, so it is discarded.
+	 */
+	protected void clear(T codec)
+	throws IOException
+	{
+	}
+	
+	/*
+	 * Slot where the calling thread starts looking at, so threads do not
+	 * contend for the same slots.
+	 */
+	private static int firstSlot(int size)
+	{
+		return (int) (Thread.currentThread().getId() % size);
+	}
+}
\ No newline at end of file
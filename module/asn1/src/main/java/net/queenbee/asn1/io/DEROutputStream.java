@@ -0,0 +1,562 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+
+/**
+ * DER output stream.
+ * 
+ * <p>
+ * Contents are appended as they are written to a chunked buffer, while
+ * identifier and length octets are kept apart in the order tags have been
+ * opened. Length of each tag is computed once, when it is concluded, from
+ * its own contents and the already known sizes of its concluded children.
+ * Identifier and length octets are interleaved with the contents when they
+ * are flushed, so encoding cost is linear in the output size.
+ * </p>
+ * 
+ * <p>
+ * Output is canonical: all tags are encoded with definite length, therefore
+ * EOC is never written, and lengths use the minimum count of octets.
+ * Elements of a set are written sorted by their encodings when it is
+ * flushed, straight from the buffered contents. Universal primitive
+ * contents are checked against DER rules as their tags are concluded, and
+ * string types can not be constructed. Raw bytes must be already DER
+ * encoded.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class DEROutputStream
+extends BEROutputStream
+{
+	private static final int INITIAL_TAG_COUNT = 32;
+	private static final int INITIAL_DEPTH = 8;
+	private static final int MAX_HEADER_SIZE = 11;
+	
+	private static final int FLAG_CONSTRUCTED = 0x01;
+	private static final int FLAG_RAW = 0x08;
+	private static final int FLAG_SET = (ASN1Class.UNIVERSAL.ordinal() << 1)
+			| FLAG_CONSTRUCTED;
+	
+	private static final Comparator<byte[]> encodingComparator;
+	
+	static
+	{
+		encodingComparator = new Comparator<byte[]>()
+		{
+			@Override
+			public int compare(byte[] e1, byte[] e2)
+			{
+				int n = Math.min(e1.length, e2.length);
+				for (int i = 0; i < n; ++i)
+				{
+					int d = (e1[i] & 0xff) - (e2[i] & 0xff);
+					if (d != 0)
+						return d;
+				}
+				return e1.length - e2.length;
+			}
+		};
+	}
+	
+	private OutputStream out;
+	
+	private int bufferSize;
+	private ChunkedBuffer contents;
+	
+	private int tagCount;
+	private int[] tagNumbers;
+	private byte[] tagFlags;
+	private int[] tagPositions;
+	private int[] tagLengths;
+	private int[] tagEnds;
+	private int[] tagLasts;
+	
+	private int depth;
+	private int[] openTags;
+	private int[] nestedHeaderSizes;
+	
+	private byte[] header;
+	
+	/**
+	 * Creates a DER output stream to the given underlying output stream.
+	 * 
+	 * @param out
+	 * 			Underlying output stream.
+	 */
+	public DEROutputStream(OutputStream out)
+	{
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Creates a DER output stream to the given underlying output stream and
+	 * defined buffer size.
+	 * 
+	 * @param out
+	 * 			Underlying output stream.
+	 * @param bufferSize
+	 * 			Amount of contents kept in memory, beyond which they are
+	 * 			spilled to a temporary file.
+	 */
+	public DEROutputStream(OutputStream out, int bufferSize)
+	{
+		super(out, 0);
+		this.out = out;
+		this.bufferSize = bufferSize;
+		contents = new ChunkedBuffer(bufferSize);
+		tagCount = 0;
+		tagNumbers = new int[INITIAL_TAG_COUNT];
+		tagFlags = new byte[INITIAL_TAG_COUNT];
+		tagPositions = new int[INITIAL_TAG_COUNT];
+		tagLengths = new int[INITIAL_TAG_COUNT];
+		tagEnds = new int[INITIAL_TAG_COUNT];
+		tagLasts = new int[INITIAL_TAG_COUNT];
+		depth = 0;
+		openTags = new int[INITIAL_DEPTH];
+		nestedHeaderSizes = new int[INITIAL_DEPTH];
+		header = new byte[MAX_HEADER_SIZE];
+	}
+	
+	/**
+	 * Discard all not flushed tags and contents, and continue writing to the
+	 * given underlying output stream. Tag arrays and buffers are kept.
+	 */
+	@Override
+	public void reset(OutputStream out)
+	throws IOException
+	{
+		this.out = out;
+		contents.clear();
+		tagCount = 0;
+		depth = 0;
+	}
+	
+	/**
+	 * Write the next tag.
+	 */
+	@Override
+	public void writeTag(ASN1Tag tag)
+	throws IOException, BEREncodingException
+	{
+		checkNotPrimitive();
+		if (tag.isConstructed() && isStringType(tag))
+			throw new BEREncodingException("Constructed string encoding");
+		if (depth == openTags.length)
+		{
+			openTags = grow(openTags, depth * 2);
+			nestedHeaderSizes = grow(nestedHeaderSizes, depth * 2);
+		}
+		
+		int t = nextTag();
+		tagNumbers[t] = tag.getTagNumber();
+		tagFlags[t] = (byte) ((tag.getTagClass().ordinal() << 1)
+				| (tag.isConstructed() ? FLAG_CONSTRUCTED : 0x00));
+		tagPositions[t] = contentsPosition();
+		tagLengths[t] = -1;
+		
+		openTags[depth] = t;
+		nestedHeaderSizes[depth] = 0;
+		++depth;
+	}
+	
+	/**
+	 * Write tag identifier and contents as raw bytes, which must be already
+	 * DER encoded. They are kept as a single element, so they are sorted as
+	 * a whole when they are written into a set.
+	 */
+	@Override
+	public void writeRaw(byte[] bytes)
+	throws IOException, BEREncodingException
+	{
+		checkNotPrimitive();
+		int t = nextTag();
+		tagNumbers[t] = 0;
+		tagFlags[t] = FLAG_RAW;
+		tagPositions[t] = contentsPosition();
+		contents.write(bytes, 0, bytes.length);
+		tagLengths[t] = bytes.length;
+		tagEnds[t] = contentsPosition();
+		tagLasts[t] = t;
+	}
+	
+	/**
+	 * Write universal boolean as DER requires, with all bits set for
+	 * {@code true}.
+	 */
+	@Override
+	public void writeBoolean(boolean b)
+	throws IOException
+	{
+		write(b ? 0xff : 0x00);
+	}
+	
+	/**
+	 * Concludes the current tag.
+	 * 
+	 * @throws IOException
+	 * 			If an input/output error has been occurred.
+	 * @throws BEREncodingException
+	 * 			If an encoding error has been occurred.
+	 */
+	public void conclude()
+	throws IOException, BEREncodingException
+	{
+		if (depth == 0)
+			throw new BEREncodingException("Concluding root output");
+		
+		int t = openTags[depth - 1];
+		if ((tagFlags[t] & FLAG_CONSTRUCTED) == 0
+				&& tagFlags[t] >> 1 == ASN1Class.UNIVERSAL.ordinal())
+			checkContents(tagNumbers[t], tagPositions[t], contents.size()
+					- tagPositions[t]);
+		
+		--depth;
+		long length = contents.size() - tagPositions[t]
+				+ nestedHeaderSizes[depth];
+		if (length > Integer.MAX_VALUE)
+			throw new BEREncodingException("Length overflow");
+		tagLengths[t] = (int) length;
+		tagEnds[t] = contentsPosition();
+		tagLasts[t] = tagCount - 1;
+		
+		if (depth > 0)
+		{
+			long nested = (long) nestedHeaderSizes[depth - 1]
+					+ nestedHeaderSizes[depth] + headerSize(t);
+			if (nested > Integer.MAX_VALUE)
+				throw new BEREncodingException("Length overflow");
+			nestedHeaderSizes[depth - 1] = (int) nested;
+		}
+	}
+	
+	/**
+	 * Concludes the current tag. EOC is never written, so it is the same
+	 * than {@link #conclude()}.
+	 */
+	@Override
+	public void conclude(boolean eoc)
+	throws IOException, BEREncodingException
+	{
+		conclude();
+	}
+	
+	/**
+	 * Write the next byte of the primitive content.
+	 */
+	@Override
+	public void write(int b)
+	throws IOException
+	{
+		checkPrimitive();
+		contents.write(b);
+	}
+	
+	/**
+	 * Write the next bytes of the primitive content.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len)
+	throws IOException
+	{
+		checkPrimitive();
+		contents.write(b, off, len);
+	}
+	
+	/**
+	 * Flush all concluded tags to the underlying output stream.
+	 */
+	@Override
+	public void flush()
+	throws IOException
+	{
+		// Tags and contents before the first not concluded one
+		int count = depth == 0 ? tagCount : openTags[0];
+		long end = depth == 0 ? contents.size() : tagPositions[count];
+		writeTags(out, 0, count, 0l, end);
+		out.flush();
+		
+		// Keep not concluded ones
+		tagCount -= count;
+		System.arraycopy(tagNumbers, count, tagNumbers, 0, tagCount);
+		System.arraycopy(tagFlags, count, tagFlags, 0, tagCount);
+		System.arraycopy(tagLengths, count, tagLengths, 0, tagCount);
+		for (int t = 0; t < tagCount; ++t)
+		{
+			tagPositions[t] = tagPositions[count + t] - (int) end;
+			tagEnds[t] = tagEnds[count + t] - (int) end;
+			tagLasts[t] = tagLasts[count + t] - count;
+		}
+		for (int i = 0; i < depth; ++i)
+			openTags[i] -= count;
+		if (end < contents.size())
+		{
+			ChunkedBuffer remaining = new ChunkedBuffer(bufferSize);
+			contents.writeTo(remaining, end, contents.size() - end);
+			contents.clear();
+			contents = remaining;
+		}
+		else
+			contents.clear();
+	}
+	
+	/**
+	 * Flush all concluded tags to the underlying output stream and close it.
+	 */
+	@Override
+	public void close()
+	throws IOException
+	{
+		flush();
+		out.close();
+	}
+	
+	/*
+	 * Allocate the next tag, growing tag arrays if needed.
+	 */
+	private int nextTag()
+	{
+		if (tagCount == tagNumbers.length)
+		{
+			int count = tagCount * 2;
+			tagNumbers = grow(tagNumbers, count);
+			tagPositions = grow(tagPositions, count);
+			tagLengths = grow(tagLengths, count);
+			tagEnds = grow(tagEnds, count);
+			tagLasts = grow(tagLasts, count);
+			byte[] flags = new byte[count];
+			System.arraycopy(tagFlags, 0, flags, 0, tagCount);
+			tagFlags = flags;
+		}
+		return tagCount++;
+	}
+	
+	/*
+	 * Write the given range of concluded tags interleaved with contents from
+	 * the given position to the given end. Elements of sets are sorted.
+	 */
+	private void writeTags(OutputStream out, int first, int last, long pos,
+			long end)
+	throws IOException
+	{
+		int t = first;
+		while (t < last)
+		{
+			contents.writeTo(out, pos, tagPositions[t] - pos);
+			pos = tagPositions[t];
+			out.write(header, 0, writeHeader(t));
+			if (tagFlags[t] == FLAG_SET && tagNumbers[t] == ASN1Tag.TN_SET
+					&& tagLasts[t] > t + 1)
+			{
+				writeSorted(out, t);
+				pos = tagEnds[t];
+				t = tagLasts[t] + 1;
+			}
+			else
+				++t;
+		}
+		contents.writeTo(out, pos, end - pos);
+	}
+	
+	/*
+	 * Write elements of the given set sorted by their encodings.
+	 */
+	private void writeSorted(OutputStream out, int t)
+	throws IOException
+	{
+		List<byte[]> elements = new ArrayList<>();
+		ByteArrayOutputStream element = new ByteArrayOutputStream();
+		for (int e = t + 1; e <= tagLasts[t]; e = tagLasts[e] + 1)
+		{
+			writeTags(element, e, tagLasts[e] + 1, tagPositions[e],
+					tagEnds[e]);
+			elements.add(element.toByteArray());
+			element.reset();
+		}
+		Collections.sort(elements, encodingComparator);
+		for (byte[] e : elements)
+			out.write(e);
+	}
+	
+	/*
+	 * Check contents of an universal primitive tag against DER rules.
+	 */
+	private void checkContents(int tn, long pos, long length)
+	throws IOException, BEREncodingException
+	{
+		switch (tn)
+		{
+		case ASN1Tag.TN_BOOLEAN:
+			if (length != 1l || (contents.get(pos) != 0x00
+					&& contents.get(pos) != 0xff))
+				throw new BEREncodingException("Non DER boolean");
+			break;
+		case ASN1Tag.TN_INTEGER:
+		case ASN1Tag.TN_ENUMERATED:
+			if (length == 0l)
+				throw new BEREncodingException("Empty integer");
+			if (length > 1l)
+			{
+				// First nine bits must not be all zeros or all ones
+				int b9 = (contents.get(pos) << 1)
+						| (contents.get(pos + 1) >>> 7);
+				if (b9 == 0x000 || b9 == 0x1ff)
+					throw new BEREncodingException("Non minimal integer");
+			}
+			break;
+		case ASN1Tag.TN_BIT_STRING:
+			if (length == 0l)
+				throw new BEREncodingException("No padding octet available");
+			int padding = contents.get(pos);
+			if (padding > 7 || (length == 1l && padding > 0)
+					|| (contents.get(pos + length - 1) & ((1 << padding) - 1))
+					!= 0)
+				throw new BEREncodingException("Non DER bit string padding");
+			break;
+		case ASN1Tag.TN_NULL:
+			if (length != 0l)
+				throw new BEREncodingException("Non empty null");
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/*
+	 * Position of the next content byte, which must fit in tag positions.
+	 */
+	private int contentsPosition()
+	throws BEREncodingException
+	{
+		long position = contents.size();
+		if (position > Integer.MAX_VALUE)
+			throw new BEREncodingException("Length overflow");
+		return (int) position;
+	}
+	
+	/*
+	 * Size of identifier and length octets of the given concluded tag.
+	 */
+	private int headerSize(int t)
+	{
+		int size = 2;
+		int tn = tagNumbers[t];
+		if (tn > 30)
+			for (int num = tn; num > 0; num = num >>> 7)
+				++size;
+		int length = tagLengths[t];
+		if (length > 127)
+			for (int len = length; len > 0; len = len >>> 8)
+				++size;
+		return size;
+	}
+	
+	/*
+	 * Encode identifier and length octets of the given concluded tag into
+	 * the header buffer.
+	 */
+	private int writeHeader(int t)
+	{
+		if ((tagFlags[t] & FLAG_RAW) != 0)
+			return 0;
+		
+		int tn = tagNumbers[t];
+		int bi = tagFlags[t] << 5;
+		int i = 0;
+		
+		// Tag number: Short form
+		if (tn <= 30)
+			header[i++] = (byte) (bi | tn);
+		// Tag number: Long form
+		else
+		{
+			header[i++] = (byte) (bi | 0x1f);
+			int shift = 0;
+			for (int num = tn >>> 7; num > 0; num = num >>> 7)
+				shift += 7;
+			for (; shift > 0; shift -= 7)
+				header[i++] = (byte) (0x80 | ((tn >>> shift) & 0x7f));
+			header[i++] = (byte) (tn & 0x7f);
+		}
+		
+		// Tag length: Short form
+		int length = tagLengths[t];
+		if (length < 128)
+			header[i++] = (byte) length;
+		// Tag length: Long form
+		else
+		{
+			int shift = 0;
+			for (int len = length >>> 8; len > 0; len = len >>> 8)
+				shift += 8;
+			header[i++] = (byte) (0x80 | (shift / 8 + 1));
+			for (; shift >= 0; shift -= 8)
+				header[i++] = (byte) (length >>> shift);
+		}
+		return i;
+	}
+	
+	private void checkPrimitive()
+	throws IOException
+	{
+		if (depth == 0)
+			throw new IOException(new BEREncodingException(
+					"Writing byte to root output"));
+		if ((tagFlags[openTags[depth - 1]] & FLAG_CONSTRUCTED) != 0)
+			throw new IOException(new BEREncodingException(
+					"Writing byte to constructed output"));
+	}
+	
+	private void checkNotPrimitive()
+	throws BEREncodingException
+	{
+		if (depth > 0 && (tagFlags[openTags[depth - 1]]
+				& FLAG_CONSTRUCTED) == 0)
+			throw new BEREncodingException("Writing tag to primitive output");
+	}
+	
+	private static boolean isStringType(ASN1Tag tag)
+	{
+		if (!tag.getTagClass().equals(ASN1Class.UNIVERSAL))
+			return false;
+		int tn = tag.getTagNumber();
+		return tn == ASN1Tag.TN_BIT_STRING || tn == ASN1Tag.TN_OCTET_STRING
+				|| tn == ASN1Tag.TN_UTF8_STRING
+				|| (tn >= ASN1Tag.TN_NUMERIC_STRING
+				&& tn <= ASN1Tag.TN_BMP_STRING);
+	}
+	
+	private static int[] grow(int[] array, int length)
+	{
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+}
\ No newline at end of file
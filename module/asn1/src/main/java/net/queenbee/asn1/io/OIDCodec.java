@@ -0,0 +1,302 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Object identifier content octets codec working on primitive arcs.
+ * 
+ * <p>
+ * Static methods encode arcs into and decode arcs from caller provided
+ * arrays. An instance keeps a reusable byte array, so encoding arcs
+ * repeatedly does not allocate once it is large enough.
+ * </p>
+ * 
+ * <p>
+ * Arcs are handled as unsigned 32-bit values, and the first two of them are
+ * packed into a single sub-identifier as {@code arc1 * 40 + arc2}.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class OIDCodec
+{
+	private static final int INITIAL_SIZE = 32;
+	
+	private byte[] buffer;
+	private int length;
+	
+	/**
+	 * Creates a codec with an empty buffer.
+	 */
+	public OIDCodec()
+	{
+		buffer = new byte[INITIAL_SIZE];
+		length = 0;
+	}
+	
+	/**
+	 * Encode the given arcs into the buffer of this codec, replacing its
+	 * previous contents.
+	 * 
+	 * @param arcs
+	 * 			Arcs array.
+	 * @param count
+	 * 			Count of arcs to be encoded.
+	 * 
+	 * @return
+	 * 			Length of the encoded content octets.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If there are less than two arcs or the first two are not
+	 * 			valid.
+	 */
+	public int encode(int[] arcs, int count)
+	{
+		int len = encodedLength(arcs, count);
+		if (len > buffer.length)
+			buffer = new byte[Math.max(len, buffer.length * 2)];
+		length = encode(arcs, count, buffer, 0);
+		return length;
+	}
+	
+	/**
+	 * Buffer holding the last encoded content octets, from offset zero to
+	 * {@link #getLength()}. It is reused by following encodings.
+	 * 
+	 * @return
+	 * 			The buffer of this codec.
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+	
+	/**
+	 * Length of the last encoded content octets.
+	 * 
+	 * @return
+	 * 			Content octets length.
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * Write the last encoded content octets to the given output stream.
+	 * 
+	 * @param out
+	 * 			Output stream where content octets are written to.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeTo(OutputStream out)
+	throws IOException
+	{
+		out.write(buffer, 0, length);
+	}
+	
+	/**
+	 * Length of the content octets of the given arcs.
+	 * 
+	 * @param arcs
+	 * 			Arcs array.
+	 * @param count
+	 * 			Count of arcs.
+	 * 
+	 * @return
+	 * 			Content octets length.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If there are less than two arcs or the first two are not
+	 * 			valid.
+	 */
+	public static int encodedLength(int[] arcs, int count)
+	{
+		int len = base128Length(firstSubId(arcs, count));
+		for (int i = 2; i < count; ++i)
+			len += base128Length(arcs[i]);
+		return len;
+	}
+	
+	/**
+	 * Encode the content octets of the given arcs.
+	 * 
+	 * @param arcs
+	 * 			Arcs array.
+	 * @param count
+	 * 			Count of arcs.
+	 * @param dst
+	 * 			Destination array, with room for
+	 * 			{@link #encodedLength(int[], int)} bytes from the offset.
+	 * @param offset
+	 * 			Destination offset.
+	 * 
+	 * @return
+	 * 			Length of the encoded content octets.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If there are less than two arcs or the first two are not
+	 * 			valid.
+	 */
+	public static int encode(int[] arcs, int count, byte[] dst, int offset)
+	{
+		int pos = base128(dst, offset, firstSubId(arcs, count));
+		for (int i = 2; i < count; ++i)
+			pos = base128(dst, pos, arcs[i]);
+		return pos - offset;
+	}
+	
+	/**
+	 * Count of arcs of the given content octets.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param offset
+	 * 			Absolute offset of the content octets.
+	 * @param length
+	 * 			Length of the content octets.
+	 * 
+	 * @return
+	 * 			The arcs count.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If content octets are empty or incomplete.
+	 */
+	public static int arcCount(ByteBuffer src, int offset, int length)
+	throws BEREncodingException
+	{
+		if (length == 0)
+			throw new BEREncodingException("Empty object identifier");
+		if ((src.get(offset + length - 1) & 0x80) != 0)
+			throw new BEREncodingException("Incomplete object identifier");
+		
+		int count = 1;
+		for (int i = 0; i < length; ++i)
+			if ((src.get(offset + i) & 0x80) == 0)
+				++count;
+		return count;
+	}
+	
+	/**
+	 * Decode the arcs of the given content octets.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param offset
+	 * 			Absolute offset of the content octets.
+	 * @param length
+	 * 			Length of the content octets.
+	 * @param arcs
+	 * 			Destination array, with room for
+	 * 			{@link #arcCount(ByteBuffer, int, int)} arcs.
+	 * 
+	 * @return
+	 * 			The count of decoded arcs.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If content octets are not valid or some arc overflows.
+	 */
+	public static int decode(ByteBuffer src, int offset, int length,
+			int[] arcs)
+	throws BEREncodingException
+	{
+		if (length == 0)
+			throw new BEREncodingException("Empty object identifier");
+		
+		int count = 0;
+		int subId = 0;
+		boolean leading = true;
+		for (int i = 0; i < length; ++i)
+		{
+			int b = src.get(offset + i);
+			if (leading && b == (byte) 0x80)
+				throw new BEREncodingException("Non-minimal sub-identifier");
+			if ((subId & 0xfe000000) != 0)
+				throw new BEREncodingException("Sub-identifier overflow");
+			subId = (subId << 7) | (b & 0x7f);
+			leading = (b & 0x80) == 0;
+			if (leading)
+			{
+				if (count == 0)
+				{
+					int arc1 = subId >= 0 && subId < 80 ? subId / 40 : 2;
+					arcs[count++] = arc1;
+					arcs[count++] = subId - arc1 * 40;
+				}
+				else
+					arcs[count++] = subId;
+				subId = 0;
+			}
+		}
+		if (!leading)
+			throw new BEREncodingException("Incomplete object identifier");
+		return count;
+	}
+	
+	/*
+	 * First sub-identifier, packing the first two arcs.
+	 */
+	private static int firstSubId(int[] arcs, int count)
+	{
+		if (count < 2)
+			throw new IllegalArgumentException("Too short OID");
+		if (arcs[0] < 0 || arcs[0] > 2 || arcs[1] < 0
+				|| (arcs[0] < 2 && arcs[1] > 39))
+		{
+			StringBuilder msg = new StringBuilder();
+			msg.append("Invalid first OID arcs: ");
+			msg.append(arcs[0]).append('.').append(arcs[1]);
+			throw new IllegalArgumentException(msg.toString());
+		}
+		return arcs[0] * 40 + arcs[1];
+	}
+	
+	/*
+	 * Count of base 128 digits of an unsigned sub-identifier.
+	 */
+	private static int base128Length(int subId)
+	{
+		int len = 1;
+		for (int v = subId >>> 7; v != 0; v = v >>> 7)
+			++len;
+		return len;
+	}
+	
+	/*
+	 * Encode an unsigned sub-identifier in base 128, most significant digit
+	 * first, and return the position after it.
+	 */
+	private static int base128(byte[] dst, int pos, int subId)
+	{
+		int end = pos + base128Length(subId);
+		int v = subId;
+		dst[end - 1] = (byte) (v & 0x7f);
+		for (int i = end - 2; i >= pos; --i)
+		{
+			v = v >>> 7;
+			dst[i] = (byte) (0x80 | (v & 0x7f));
+		}
+		return end;
+	}
+}
\ No newline at end of file
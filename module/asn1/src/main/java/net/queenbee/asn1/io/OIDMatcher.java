@@ -0,0 +1,201 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.OID;
+
+/**
+ * Matcher of encoded object identifiers against a fixed set of known ones.
+ * 
+ * <p>
+ * Content octets are compared as they are in the decoded buffer, so no
+ * {@link OID} is built to dispatch on extension or algorithm types. Known
+ * OIDs are hashed by their content octets into an open addressing table,
+ * therefore matching costs a single pass over the encoded bytes and the
+ * comparison with a single candidate in the common case.
+ * </p>
+ * 
+ * <p>
+ * Matchers are immutable and may be shared between threads.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class OIDMatcher
+{
+	private OID[] oids;
+	private byte[][] contents;
+	private int[] slots;
+	private int mask;
+	
+	/**
+	 * Creates a matcher of the given object identifiers.
+	 * 
+	 * @param oids
+	 * 			Known object identifiers. Their positions are the indexes
+	 * 			returned on matching.
+	 */
+	public OIDMatcher(OID... oids)
+	{
+		this.oids = oids.clone();
+		contents = new byte[oids.length][];
+		
+		int size = 4;
+		while (size < oids.length * 2)
+			size = size << 1;
+		slots = new int[size];
+		mask = size - 1;
+		
+		for (int i = 0; i < oids.length; ++i)
+		{
+			contents[i] = oids[i].getContents();
+			int slot = hash(contents[i]) & mask;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = i + 1;
+		}
+	}
+	
+	/**
+	 * Count of known object identifiers.
+	 * 
+	 * @return
+	 * 			The count of known object identifiers.
+	 */
+	public int size()
+	{
+		return oids.length;
+	}
+	
+	/**
+	 * Known object identifier at the given index.
+	 * 
+	 * @param index
+	 * 			Index of the object identifier.
+	 * 
+	 * @return
+	 * 			The known object identifier.
+	 */
+	public OID get(int index)
+	{
+		return oids[index];
+	}
+	
+	/**
+	 * Match the current tag of the given decoder, which must be a universal
+	 * object identifier.
+	 * 
+	 * @param d
+	 * 			Decoder positioned at an object identifier.
+	 * 
+	 * @return
+	 * 			Index of the matched object identifier, or -1 if it is not a
+	 * 			known one.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If the current tag is not a universal object identifier.
+	 */
+	public int match(BERDecoder d)
+	throws BEREncodingException
+	{
+		if (!d.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_OBJECT_INDENTIFIER,
+				false))
+			throw new BEREncodingException("Object identifier expected");
+		return match(d.buffer(), d.getValueOffset(), d.getValueLength());
+	}
+	
+	/**
+	 * Match the given object identifier content octets.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param offset
+	 * 			Absolute offset of the content octets.
+	 * @param length
+	 * 			Length of the content octets.
+	 * 
+	 * @return
+	 * 			Index of the matched object identifier, or -1 if it is not a
+	 * 			known one.
+	 */
+	public int match(ByteBuffer src, int offset, int length)
+	{
+		int h = 0;
+		for (int i = 0; i < length; ++i)
+			h = 31 * h + src.get(offset + i);
+		h = mix(h);
+		
+		for (int slot = h & mask; slots[slot] != 0; slot = (slot + 1) & mask)
+		{
+			int index = slots[slot] - 1;
+			if (equal(contents[index], src, offset, length))
+				return index;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Match the given object identifier.
+	 * 
+	 * @param oid
+	 * 			Object identifier to be matched.
+	 * 
+	 * @return
+	 * 			Index of the matched object identifier, or -1 if it is not a
+	 * 			known one.
+	 */
+	public int match(OID oid)
+	{
+		byte[] c = oid.getContents();
+		return match(ByteBuffer.wrap(c), 0, c.length);
+	}
+	
+	private static boolean equal(byte[] c, ByteBuffer src, int offset,
+			int length)
+	{
+		if (c.length != length)
+			return false;
+		for (int i = 0; i < length; ++i)
+			if (c[i] != src.get(offset + i))
+				return false;
+		return true;
+	}
+	
+	private static int hash(byte[] c)
+	{
+		int h = 0;
+		for (byte b : c)
+			h = 31 * h + b;
+		return mix(h);
+	}
+	
+	/*
+	 * Spread hash bits, since encoded OIDs often share their last bytes.
+	 */
+	private static int mix(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+}
\ No newline at end of file
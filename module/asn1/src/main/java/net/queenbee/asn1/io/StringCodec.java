@@ -0,0 +1,288 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Character string content octets codec.
+ * 
+ * <p>
+ * Content octets are decoded from their known length straight into a
+ * string, and strings are encoded into a reusable byte array. Strings made
+ * only of ASCII characters, which are most of them in names and protocol
+ * messages, are converted byte by byte when the charset encodes them as
+ * single bytes, that is US-ASCII, ISO-8859-1 and UTF-8. Other ones go
+ * through a charset decoder or encoder kept by the codec, so neither
+ * readers nor writers are created per string.
+ * </p>
+ * 
+ * <p>
+ * Malformed input and unmappable characters are replaced as string
+ * constructors and {@link String#getBytes(Charset)} do.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class StringCodec
+{
+	private static final int INITIAL_SIZE = 64;
+	
+	private CharsetDecoder decoder;
+	private CharsetEncoder encoder;
+	private char[] chars;
+	private byte[] buffer;
+	private int length;
+	
+	/**
+	 * Creates a codec with empty buffers.
+	 */
+	public StringCodec()
+	{
+		decoder = null;
+		encoder = null;
+		chars = new char[INITIAL_SIZE];
+		buffer = new byte[INITIAL_SIZE];
+		length = 0;
+	}
+	
+	/**
+	 * Decode the given region of a byte array.
+	 * 
+	 * @param src
+	 * 			Array holding the content octets.
+	 * @param off
+	 * 			Offset of the first content octet.
+	 * @param len
+	 * 			Count of content octets.
+	 * @param charset
+	 * 			Character set of the content octets.
+	 * 
+	 * @return
+	 * 			The decoded string.
+	 */
+	public String decode(byte[] src, int off, int len, Charset charset)
+	{
+		if (!isASCIICompatible(charset))
+			return decodeNonASCII(ByteBuffer.wrap(src, off, len), charset);
+		
+		char[] cs = chars(len);
+		for (int i = 0; i < len; ++i)
+		{
+			int b = src[off + i];
+			if (b < 0)
+				return decodeNonASCII(ByteBuffer.wrap(src, off, len), charset);
+			cs[i] = (char) b;
+		}
+		return new String(cs, 0, len);
+	}
+	
+	/**
+	 * Decode the given region of a buffer. Position and limit of the buffer
+	 * are not modified.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param off
+	 * 			Absolute offset of the first content octet.
+	 * @param len
+	 * 			Count of content octets.
+	 * @param charset
+	 * 			Character set of the content octets.
+	 * 
+	 * @return
+	 * 			The decoded string.
+	 */
+	public String decode(ByteBuffer src, int off, int len, Charset charset)
+	{
+		if (src.hasArray())
+			return decode(src.array(), src.arrayOffset() + off, len, charset);
+		
+		if (!isASCIICompatible(charset))
+			return decodeNonASCII(src, off, len, charset);
+		
+		char[] cs = chars(len);
+		for (int i = 0; i < len; ++i)
+		{
+			int b = src.get(off + i);
+			if (b < 0)
+				return decodeNonASCII(src, off, len, charset);
+			cs[i] = (char) b;
+		}
+		return new String(cs, 0, len);
+	}
+	
+	/**
+	 * Encode the given string into the buffer of this codec, replacing its
+	 * previous contents.
+	 * 
+	 * @param str
+	 * 			String to be encoded.
+	 * @param charset
+	 * 			Character set of the content octets.
+	 * 
+	 * @return
+	 * 			Length of the encoded content octets.
+	 */
+	public int encode(String str, Charset charset)
+	{
+		if (!isASCIICompatible(charset))
+			return encodeNonASCII(str, charset);
+		
+		int len = str.length();
+		byte[] bs = buffer(len);
+		for (int i = 0; i < len; ++i)
+		{
+			char c = str.charAt(i);
+			if (c >= 0x80)
+				return encodeNonASCII(str, charset);
+			bs[i] = (byte) c;
+		}
+		length = len;
+		return length;
+	}
+	
+	/**
+	 * Buffer holding the last encoded content octets, from offset zero to
+	 * {@link #getLength()}. It is reused by following encodings.
+	 * 
+	 * @return
+	 * 			The buffer of this codec.
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+	
+	/**
+	 * Length of the last encoded content octets.
+	 * 
+	 * @return
+	 * 			Content octets length.
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * Write the last encoded content octets to the given output stream.
+	 * 
+	 * @param out
+	 * 			Output stream where content octets are written to.
+	 * 
+	 * @throws IOException
+	 * 			If some input/output stream error has been occurred.
+	 */
+	public void writeTo(OutputStream out)
+	throws IOException
+	{
+		out.write(buffer, 0, length);
+	}
+	
+	/*
+	 * Decode the given region of a buffer with the charset decoder.
+	 */
+	private String decodeNonASCII(ByteBuffer src, int off, int len,
+			Charset charset)
+	{
+		ByteBuffer view = src.duplicate();
+		view.limit(off + len).position(off);
+		return decodeNonASCII(view, charset);
+	}
+	
+	/*
+	 * Decode the remaining bytes of the given buffer with the charset
+	 * decoder. Used for non ASCII content and for charsets which are not
+	 * ASCII compatible.
+	 */
+	private String decodeNonASCII(ByteBuffer src, Charset charset)
+	{
+		if (decoder == null || !decoder.charset().equals(charset))
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		
+		int max = (int) Math.ceil(src.remaining()
+				* (double) decoder.maxCharsPerByte());
+		CharBuffer dst = CharBuffer.wrap(chars(max));
+		decoder.reset();
+		decoder.decode(src, dst, true);
+		decoder.flush(dst);
+		return new String(chars, 0, dst.position());
+	}
+	
+	/*
+	 * Encode the given string with the charset encoder.
+	 */
+	private int encodeNonASCII(String str, Charset charset)
+	{
+		if (encoder == null || !encoder.charset().equals(charset))
+			encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		
+		int max = (int) Math.ceil(str.length()
+				* (double) encoder.maxBytesPerChar());
+		ByteBuffer dst = ByteBuffer.wrap(buffer(max));
+		encoder.reset();
+		encoder.encode(CharBuffer.wrap(str), dst, true);
+		encoder.flush(dst);
+		length = dst.position();
+		return length;
+	}
+	
+	/*
+	 * Whether ASCII characters are encoded by the given charset as the same
+	 * single bytes, so they can be converted byte by byte.
+	 */
+	private static boolean isASCIICompatible(Charset charset)
+	{
+		return charset.equals(StandardCharsets.US_ASCII)
+				|| charset.equals(StandardCharsets.ISO_8859_1)
+				|| charset.equals(StandardCharsets.UTF_8);
+	}
+	
+	/*
+	 * Character buffer of at least the given size.
+	 */
+	private char[] chars(int size)
+	{
+		if (size > chars.length)
+			chars = new char[Math.max(size, chars.length * 2)];
+		return chars;
+	}
+	
+	/*
+	 * Byte buffer of at least the given size.
+	 */
+	private byte[] buffer(int size)
+	{
+		if (size > buffer.length)
+			buffer = new byte[Math.max(size, buffer.length * 2)];
+		return buffer;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,367 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.asn1.io;
+
+import java.nio.ByteBuffer;
+import java.util.TimeZone;
+
+/**
+ * UTCTime and GeneralizedTime codec working on epoch milliseconds.
+ * 
+ * <p>
+ * Digits are parsed straight from the encoded bytes and dates are converted
+ * to and from days since the epoch arithmetically, so neither
+ * {@link java.text.DateFormat} nor {@link java.util.Calendar} instances are
+ * involved. All methods are stateless and thread-safe.
+ * </p>
+ * 
+ * <p>
+ * Formatting follows DER: times are written in UTC with a trailing
+ * {@code Z}, seconds are always present and generalized time fractions have
+ * no trailing zeros. Parsing accepts the BER forms too, that is omitted
+ * seconds, time zone offsets and, for generalized time only, local time.
+ * </p>
+ * 
+ * @author Miquel A. Ferran &lt;miquel.ferran.gonzalez@gmail.com&gt;
+ */
+public class TimeCodec
+{
+	/**
+	 * Length of a formatted UTC time.
+	 */
+	public static final int UTC_TIME_LENGTH = 13;
+	
+	/**
+	 * Maximum length of a formatted generalized time.
+	 */
+	public static final int MAX_GENERALIZED_TIME_LENGTH = 19;
+	
+	private static final long MILLIS_PER_DAY = 86400000l;
+	
+	/*
+	 * Epoch milliseconds of 1950-01-01T00:00:00Z and 2050-01-01T00:00:00Z.
+	 */
+	private static final long UTC_TIME_MIN = -631152000000l;
+	private static final long UTC_TIME_MAX = 2524608000000l;
+	
+	/*
+	 * Epoch milliseconds of 0000-01-01T00:00:00Z and 10000-01-01T00:00:00Z.
+	 */
+	private static final long GENERALIZED_TIME_MIN = -62167219200000l;
+	private static final long GENERALIZED_TIME_MAX = 253402300800000l;
+	
+	private TimeCodec()
+	{
+	}
+	
+	/**
+	 * Whether the given time may be encoded as UTC time, that is from year
+	 * 1950 to year 2049.
+	 * 
+	 * @param time
+	 * 			Epoch milliseconds.
+	 * 
+	 * @return
+	 * 			{@code true} if, and only if it may be encoded as UTC time.
+	 */
+	public static boolean isUTCTime(long time)
+	{
+		return time >= UTC_TIME_MIN && time < UTC_TIME_MAX;
+	}
+	
+	/**
+	 * Parse UTC time content octets.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param offset
+	 * 			Absolute offset of the content octets.
+	 * @param length
+	 * 			Length of the content octets.
+	 * 
+	 * @return
+	 * 			Epoch milliseconds.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If content octets are not a valid UTC time.
+	 */
+	public static long parseUTCTime(ByteBuffer src, int offset, int length)
+	throws BEREncodingException
+	{
+		return parse(src, offset, offset + length, 2);
+	}
+	
+	/**
+	 * Parse generalized time content octets.
+	 * 
+	 * @param src
+	 * 			Buffer holding the content octets.
+	 * @param offset
+	 * 			Absolute offset of the content octets.
+	 * @param length
+	 * 			Length of the content octets.
+	 * 
+	 * @return
+	 * 			Epoch milliseconds.
+	 * 
+	 * @throws BEREncodingException
+	 * 			If content octets are not a valid generalized time.
+	 */
+	public static long parseGeneralizedTime(ByteBuffer src, int offset,
+			int length)
+	throws BEREncodingException
+	{
+		return parse(src, offset, offset + length, 4);
+	}
+	
+	/**
+	 * Format the given time as UTC time content octets.
+	 * 
+	 * @param time
+	 * 			Epoch milliseconds. Milliseconds of second are dropped.
+	 * @param dst
+	 * 			Destination array, with room for {@link #UTC_TIME_LENGTH}
+	 * 			bytes from the offset.
+	 * @param offset
+	 * 			Destination offset.
+	 * 
+	 * @return
+	 * 			Length of the content octets.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If time is out of the UTC time range.
+	 */
+	public static int formatUTCTime(long time, byte[] dst, int offset)
+	{
+		if (!isUTCTime(time))
+			throw new IllegalArgumentException("Out of UTC time range");
+		
+		int pos = format(time, dst, offset, 2);
+		dst[pos++] = 'Z';
+		return pos - offset;
+	}
+	
+	/**
+	 * Format the given time as generalized time content octets.
+	 * 
+	 * @param time
+	 * 			Epoch milliseconds.
+	 * @param dst
+	 * 			Destination array, with room for
+	 * 			{@link #MAX_GENERALIZED_TIME_LENGTH} bytes from the offset.
+	 * @param offset
+	 * 			Destination offset.
+	 * 
+	 * @return
+	 * 			Length of the content octets.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If year is out of four digits.
+	 */
+	public static int formatGeneralizedTime(long time, byte[] dst, int offset)
+	{
+		if (time < GENERALIZED_TIME_MIN || time >= GENERALIZED_TIME_MAX)
+			throw new IllegalArgumentException(
+					"Out of generalized time range");
+		
+		int pos = format(time, dst, offset, 4);
+		int millis = (int) floorMod(time, 1000l);
+		if (millis != 0)
+		{
+			dst[pos++] = '.';
+			for (int scale = 100; millis != 0; scale /= 10)
+			{
+				dst[pos++] = (byte) ('0' + millis / scale);
+				millis %= scale;
+			}
+		}
+		dst[pos++] = 'Z';
+		return pos - offset;
+	}
+	
+	/*
+	 * Parse UTC or generalized time, given its year digits.
+	 */
+	private static long parse(ByteBuffer src, int pos, int last,
+			int yearDigits)
+	throws BEREncodingException
+	{
+		int year = digits(src, pos, yearDigits, last);
+		pos += yearDigits;
+		if (yearDigits == 2)
+			year += year < 50 ? 2000 : 1900;
+		int month = digits(src, pos, 2, last);
+		int day = digits(src, pos + 2, 2, last);
+		int hour = digits(src, pos + 4, 2, last);
+		pos += 6;
+		
+		int minute = 0;
+		int second = 0;
+		int millis = 0;
+		if (isDigit(src, pos, last))
+		{
+			minute = digits(src, pos, 2, last);
+			pos += 2;
+			if (isDigit(src, pos, last))
+			{
+				second = digits(src, pos, 2, last);
+				pos += 2;
+				if (yearDigits == 4 && pos < last && (src.get(pos) == '.'
+						|| src.get(pos) == ','))
+				{
+					++pos;
+					if (!isDigit(src, pos, last))
+						throw new BEREncodingException("Invalid time");
+					for (int scale = 100; isDigit(src, pos, last); scale /= 10)
+						millis += digits(src, pos++, 1, last) * scale;
+				}
+			}
+		}
+		
+		if (month < 1 || month > 12 || day < 1
+				|| day > daysOfMonth(year, month) || hour > 23
+				|| minute > 59 || second > 59)
+			throw new BEREncodingException("Invalid time");
+		long time = daysFromCivil(year, month, day) * MILLIS_PER_DAY
+				+ ((hour * 60 + minute) * 60 + second) * 1000l + millis;
+		
+		if (pos == last)
+		{
+			// Local time is only allowed by generalized time
+			if (yearDigits == 2)
+				throw new BEREncodingException("Missing time zone");
+			TimeZone zone = TimeZone.getDefault();
+			return time - zone.getOffset(time - zone.getRawOffset());
+		}
+		if (src.get(pos) == 'Z')
+			++pos;
+		else if (src.get(pos) == '+' || src.get(pos) == '-')
+		{
+			int sign = src.get(pos) == '+' ? 1 : -1;
+			int zoneOffset = digits(src, pos + 1, 2, last) * 60;
+			pos += 3;
+			if (isDigit(src, pos, last))
+			{
+				zoneOffset += digits(src, pos, 2, last);
+				pos += 2;
+			}
+			time -= sign * zoneOffset * 60000l;
+		}
+		if (pos != last)
+			throw new BEREncodingException("Invalid time");
+		return time;
+	}
+	
+	/*
+	 * Format date and time digits in UTC, without fraction nor time zone.
+	 */
+	private static int format(long time, byte[] dst, int pos, int yearDigits)
+	{
+		long days = floorDiv(time, MILLIS_PER_DAY);
+		int secs = (int) (floorMod(time, MILLIS_PER_DAY) / 1000l);
+		
+		// Civil from days
+		long z = days + 719468l;
+		long era = (z >= 0l ? z : z - 146096l) / 146097l;
+		int doe = (int) (z - era * 146097l);
+		int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		int mp = (5 * doy + 2) / 153;
+		int day = doy - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = (int) (yoe + era * 400l) + (month <= 2 ? 1 : 0);
+		
+		pos = putDigits(dst, pos, year % (yearDigits == 2 ? 100 : 10000),
+				yearDigits);
+		pos = putDigits(dst, pos, month, 2);
+		pos = putDigits(dst, pos, day, 2);
+		pos = putDigits(dst, pos, secs / 3600, 2);
+		pos = putDigits(dst, pos, secs / 60 % 60, 2);
+		pos = putDigits(dst, pos, secs % 60, 2);
+		return pos;
+	}
+	
+	/*
+	 * Days since the epoch of the given proleptic Gregorian date.
+	 */
+	private static long daysFromCivil(int year, int month, int day)
+	{
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0l ? y : y - 399l) / 400l;
+		long yoe = y - era * 400l;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day
+				- 1;
+		long doe = yoe * 365l + yoe / 4l - yoe / 100l + doy;
+		return era * 146097l + doe - 719468l;
+	}
+	
+	private static int daysOfMonth(int year, int month)
+	{
+		if (month == 2)
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0
+					? 29 : 28;
+		return month == 4 || month == 6 || month == 9 || month == 11
+				? 30 : 31;
+	}
+	
+	private static int digits(ByteBuffer src, int offset, int count,
+			int last)
+	throws BEREncodingException
+	{
+		if (offset + count > last)
+			throw new BEREncodingException("Truncated time");
+		int value = 0;
+		for (int i = 0; i < count; ++i)
+		{
+			int c = src.get(offset + i) - '0';
+			if (c < 0 || c > 9)
+				throw new BEREncodingException("Invalid time digit");
+			value = value * 10 + c;
+		}
+		return value;
+	}
+	
+	private static boolean isDigit(ByteBuffer src, int offset, int last)
+	{
+		if (offset >= last)
+			return false;
+		byte c = src.get(offset);
+		return c >= '0' && c <= '9';
+	}
+	
+	private static int putDigits(byte[] dst, int pos, int value, int count)
+	{
+		for (int i = pos + count - 1; i >= pos; --i)
+		{
+			dst[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return pos + count;
+	}
+	
+	private static long floorDiv(long x, long y)
+	{
+		long q = x / y;
+		return (x % y != 0l && (x < 0l) != (y < 0l)) ? q - 1l : q;
+	}
+	
+	private static long floorMod(long x, long y)
+	{
+		return x - floorDiv(x, y) * y;
+	}
+}
\ No newline at end of file
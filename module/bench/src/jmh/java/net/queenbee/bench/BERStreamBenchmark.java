@@ -0,0 +1,105 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.io.BEREncodingException;
+import net.queenbee.asn1.io.BERInputStream;
+import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.security.cert.CertificateAuthorityException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BERStreamBenchmark
+{
+	private static final int BUFFER_SIZE = 4096;
+	
+	private byte[] encoded;
+	private byte[] buffer;
+	private ByteArrayOutputStream baos;
+	private BERInputStream in;
+	private BEROutputStream out;
+	
+	@Setup
+	public void setup()
+	throws GeneralSecurityException, CertificateAuthorityException
+	{
+		encoded = Fixtures.authority(Fixtures.keyPair()).engineSignedCert(
+				Fixtures.profile(Fixtures.keyPair().getPublic())).getEncoded();
+		buffer = new byte[BUFFER_SIZE];
+		baos = new ByteArrayOutputStream(encoded.length);
+		in = new BERInputStream(null);
+		out = new BEROutputStream(null);
+	}
+	
+	@Benchmark
+	public int read()
+	throws IOException, BEREncodingException
+	{
+		in.reset(new ByteArrayInputStream(encoded));
+		int count = 0;
+		int depth = 0;
+		do
+		{
+			ASN1Tag tag = in.readTag();
+			if (tag.isEOC())
+			{
+				in.skip();
+				--depth;
+			}
+			else if (tag.isConstructed())
+				++depth;
+			else
+			{
+				int n;
+				while ((n = in.read(buffer)) >= 0)
+					count += n;
+				in.skip();
+			}
+		}
+		while (depth > 0);
+		return count;
+	}
+	
+	@Benchmark
+	public int roundTrip()
+	throws IOException, BEREncodingException
+	{
+		in.reset(new ByteArrayInputStream(encoded));
+		baos.reset();
+		out.reset(baos);
+		Fixtures.copy(in, out, buffer);
+		out.flush();
+		return baos.size();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.queenbee.security.cert.CertificateAuthorityException;
+import net.queenbee.security.cert.X509CertificateAuthority;
+import net.queenbee.security.cert.X509CertificateProfile;
+import net.queenbee.security.cert.X509CertificateTemplate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CertificateAuthorityBenchmark
+{
+	private static final int BATCH_SIZE = 256;
+	
+	private X509CertificateAuthority authority;
+	private X509CertificateProfile profile;
+	private List<X509CertificateProfile> profiles;
+	private X509CertificateTemplate template;
+	
+	@Setup
+	public void setup()
+	throws GeneralSecurityException, CertificateAuthorityException
+	{
+		KeyPair keyPair = Fixtures.keyPair();
+		authority = Fixtures.authority(keyPair);
+		profile = Fixtures.profile(Fixtures.keyPair().getPublic());
+		profiles = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; ++i)
+			profiles.add(profile);
+		template = authority.compileTemplate(profile);
+	}
+	
+	@Benchmark
+	public Certificate engineSignedCert()
+	throws CertificateAuthorityException
+	{
+		return authority.engineSignedCert(profile);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<Certificate> engineSignedCerts()
+	throws CertificateAuthorityException
+	{
+		return authority.engineSignedCerts(profiles);
+	}
+	
+	@Benchmark
+	public Certificate templateSignedCert()
+	throws CertificateAuthorityException
+	{
+		return template.signedCert(profile.getSerialNumber(),
+				profile.getSubject(), profile.getPublicKey());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,450 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import javax.security.auth.x500.X500Principal;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
+import net.queenbee.asn1.OID;
+import net.queenbee.asn1.io.BERDecoder;
+import net.queenbee.asn1.io.BEREncodingException;
+import net.queenbee.asn1.io.DEROutputStream;
+import net.queenbee.security.cert.X509CertificateAuthority;
+import net.queenbee.security.cert.X509CertificateProfile;
+
+/**
+ * Fixed BER/DER codec workload compared against a baseline.
+ * 
+ * <p>
+ * Every certificate of a generated corpus is decoded into typed values with
+ * a {@link BERDecoder}, and encoded back with a {@link DEROutputStream}.
+ * Throughput, 99th percentile latency and allocated bytes per operation are
+ * measured for both operations, written to a results file and compared with
+ * the baseline file. Process exits with status {@code 1} if some metric is
+ * worse than the baseline beyond the given threshold.
+ * </p>
+ * 
+ * <p>
+ * Arguments are the baseline file, the results file, the threshold as a
+ * fraction of the baseline values and, optionally, {@code update} for
+ * replacing the baseline with the results.
+ * </p>
+ */
+public class CodecGate
+{
+	private static final int CORPUS_SIZE = 64;
+	private static final int WARMUP_ROUNDS = 2000;
+	private static final int MEASURED_ROUNDS = 400;
+	private static final int ITERATIONS = 7;
+	private static final double PERCENTILE = 0.99;
+	
+	private static final Object END = new Object();
+	
+	private static final String[] OPERATIONS = {
+		"decode",
+		"encode"
+	};
+	
+	private byte[][] corpus;
+	private List<List<Object>> decoded;
+	private ByteArrayOutputStream baos;
+	private DEROutputStream out;
+	private long sink;
+	
+	private CodecGate(byte[][] corpus)
+	{
+		this.corpus = corpus;
+		decoded = new ArrayList<>(corpus.length);
+		baos = new ByteArrayOutputStream();
+		out = new DEROutputStream(null);
+		sink = 0l;
+	}
+	
+	public static void main(String[] args)
+	throws Exception
+	{
+		if (args.length < 3)
+			throw new IllegalArgumentException(
+					"Usage: CodecGate baseline results threshold [update]");
+		File baselineFile = new File(args[0]);
+		File resultsFile = new File(args[1]);
+		double threshold = Double.parseDouble(args[2]);
+		boolean update = args.length > 3 && args[3].equals("update");
+		
+		CodecGate gate = new CodecGate(corpus());
+		gate.check();
+		Properties results = gate.run();
+		store(results, resultsFile);
+		if (update)
+		{
+			store(results, baselineFile);
+			System.out.println("Baseline updated: " + baselineFile);
+			return;
+		}
+		
+		if (!baselineFile.isFile())
+		{
+			System.err.println("No baseline found at " + baselineFile);
+			System.exit(1);
+		}
+		Properties baseline = load(baselineFile);
+		if (!compare(baseline, results, threshold))
+			System.exit(1);
+	}
+	
+	/*
+	 * Certificates of different shapes, all signed by the same authority.
+	 * Dates and serial numbers are fixed, so encodings have the same length
+	 * on every run.
+	 */
+	private static byte[][] corpus()
+	throws Exception
+	{
+		KeyPair keyPair = Fixtures.keyPair();
+		X509CertificateAuthority authority = Fixtures.authority(keyPair);
+		byte[][] corpus = new byte[CORPUS_SIZE][];
+		for (int i = 0; i < CORPUS_SIZE; ++i)
+		{
+			X509CertificateProfile profile = Fixtures.profile(
+					keyPair.getPublic());
+			StringBuilder cn = new StringBuilder("CN=host");
+			for (int j = 0; j < i % 8; ++j)
+				cn.append(".sub").append(j);
+			cn.append(".queenbee.net, O=QueenBee");
+			profile.setSubject(new X500Principal(cn.toString()));
+			profile.setSerialNumber(BigInteger.valueOf(1000003l * (i + 1)));
+			profile.setNotBefore(new Date(1420070400000l));
+			profile.setNotAfter(new Date(1420070400000l + (i + 1)
+					* 86400000l));
+			profile.setBasicConstraints(i % 2 == 0 ? -1 : i);
+			boolean[] keyUsage = new boolean[i % 9];
+			for (int j = 0; j < keyUsage.length; ++j)
+				keyUsage[j] = (i + j) % 3 != 0;
+			profile.setKeyUsage(keyUsage.length == 0 ? null : keyUsage);
+			List<String> eku = new ArrayList<>();
+			for (int j = 0; j < i % 4; ++j)
+				eku.add("1.3.6.1.5.5.7.3." + (j + 1));
+			profile.setExtendedKeyUsage(eku.isEmpty() ? null : eku);
+			corpus[i] = authority.engineSignedCert(profile).getEncoded();
+		}
+		return corpus;
+	}
+	
+	/*
+	 * Checks that encoding the decoded values gives back every certificate.
+	 */
+	private void check()
+	throws IOException, BEREncodingException
+	{
+		for (byte[] cert : corpus)
+		{
+			List<Object> items = decode(cert);
+			decoded.add(items);
+			if (!Arrays.equals(cert, encode(items)))
+				throw new IllegalStateException("Codec round trip mismatch");
+		}
+	}
+	
+	/*
+	 * Throughput and latency are the best of several iterations, since
+	 * interferences of the machine only make them worse.
+	 */
+	private Properties run()
+	throws IOException, BEREncodingException
+	{
+		Properties results = new Properties();
+		for (String operation : OPERATIONS)
+		{
+			measure(operation, WARMUP_ROUNDS);
+			double[] throughputs = new double[ITERATIONS];
+			double[] p99s = new double[ITERATIONS];
+			long[] latencies = new long[MEASURED_ROUNDS * corpus.length];
+			long allocated = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; ++i)
+			{
+				long start = System.nanoTime();
+				measure(operation, latencies);
+				long elapsed = System.nanoTime() - start;
+				
+				Arrays.sort(latencies);
+				int index = (int) Math.ceil(latencies.length * PERCENTILE) - 1;
+				throughputs[i] = latencies.length * 1e9 / elapsed;
+				p99s[i] = latencies[index] / 1e3;
+			}
+			allocated = allocatedBytes() - allocated;
+			long ops = (long) ITERATIONS * latencies.length;
+			
+			Arrays.sort(throughputs);
+			Arrays.sort(p99s);
+			results.setProperty(operation + ".throughput",
+					format(throughputs[ITERATIONS - 1]));
+			results.setProperty(operation + ".p99", format(p99s[0]));
+			results.setProperty(operation + ".allocated",
+					format(allocated < 0l ? -1.0 : (double) allocated / ops));
+		}
+		System.out.println("Workload checksum: " + sink);
+		return results;
+	}
+	
+	private void measure(String operation, int rounds)
+	throws IOException, BEREncodingException
+	{
+		measure(operation, new long[rounds * corpus.length]);
+	}
+	
+	private void measure(String operation, long[] latencies)
+	throws IOException, BEREncodingException
+	{
+		boolean decoding = operation.equals("decode");
+		int k = 0;
+		while (k < latencies.length)
+			for (int i = 0; i < corpus.length; ++i)
+			{
+				long start = System.nanoTime();
+				if (decoding)
+					sink += decode(corpus[i]).size();
+				else
+					sink += encode(decoded.get(i)).length;
+				latencies[k++] = System.nanoTime() - start;
+			}
+	}
+	
+	/*
+	 * Tags and typed values in encoding order, constructed contents being
+	 * followed by the end marker.
+	 */
+	private List<Object> decode(byte[] encoded)
+	throws BEREncodingException
+	{
+		List<Object> items = new ArrayList<>();
+		decode(new BERDecoder(encoded), items);
+		return items;
+	}
+	
+	private static void decode(BERDecoder d, List<Object> items)
+	throws BEREncodingException
+	{
+		while (d.next())
+		{
+			ASN1Tag tag = d.getTag();
+			items.add(tag);
+			if (tag.isConstructed())
+			{
+				d.enter();
+				decode(d, items);
+				d.exit();
+				items.add(END);
+			}
+			else
+				items.add(readValue(d, tag));
+		}
+	}
+	
+	private static Object readValue(BERDecoder d, ASN1Tag tag)
+	throws BEREncodingException
+	{
+		if (tag.getTagClass() == ASN1Class.UNIVERSAL)
+			switch (tag.getTagNumber())
+			{
+			case ASN1Tag.TN_BOOLEAN:
+				return d.readBoolean();
+			case ASN1Tag.TN_INTEGER:
+				return d.readInteger();
+			case ASN1Tag.TN_BIT_STRING:
+				return d.readBitString();
+			case ASN1Tag.TN_OCTET_STRING:
+				return d.readOctetString();
+			case ASN1Tag.TN_OBJECT_INDENTIFIER:
+				return d.readObjectIdentifier();
+			case ASN1Tag.TN_UTF8_STRING:
+				return d.readUTF8String();
+			case ASN1Tag.TN_IA5_STRING:
+				return d.readIA5String();
+			case ASN1Tag.TN_UTC_TIME:
+			case ASN1Tag.TN_GENERALIZED_TIME:
+				return d.readTime();
+			}
+		ByteBuffer value = d.getValue();
+		byte[] bytes = new byte[value.remaining()];
+		value.get(bytes);
+		return bytes;
+	}
+	
+	private byte[] encode(List<Object> items)
+	throws IOException, BEREncodingException
+	{
+		baos.reset();
+		out.reset(baos);
+		int i = 0;
+		while (i < items.size())
+		{
+			Object item = items.get(i++);
+			if (item == END)
+				out.conclude();
+			else
+			{
+				ASN1Tag tag = (ASN1Tag) item;
+				out.writeTag(tag);
+				if (!tag.isConstructed())
+				{
+					writeValue(tag, items.get(i++));
+					out.conclude();
+				}
+			}
+		}
+		out.flush();
+		return baos.toByteArray();
+	}
+	
+	private void writeValue(ASN1Tag tag, Object value)
+	throws IOException
+	{
+		if (value instanceof Boolean)
+			out.writeBoolean((Boolean) value);
+		else if (value instanceof BigInteger)
+			out.writeInteger((BigInteger) value);
+		else if (value instanceof BitString)
+			out.writeBitString((BitString) value);
+		else if (value instanceof OID)
+			out.writeObjectIdentifier((OID) value);
+		else if (value instanceof Long)
+		{
+			if (tag.getTagNumber() == ASN1Tag.TN_UTC_TIME)
+				out.writeUTCTime((Long) value);
+			else
+				out.writeGeneralizedTime((Long) value);
+		}
+		else if (value instanceof String)
+		{
+			if (tag.getTagNumber() == ASN1Tag.TN_UTF8_STRING)
+				out.writeUTF8String((String) value);
+			else
+				out.writeIA5String((String) value);
+		}
+		else
+			out.write((byte[]) value);
+	}
+	
+	/*
+	 * Bytes allocated by the current thread so far, or -1 if it cannot be
+	 * known on this virtual machine.
+	 */
+	private static long allocatedBytes()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1l;
+	}
+	
+	/*
+	 * Prints every metric against its baseline value, returning whether
+	 * none of them has regressed beyond the threshold. Throughput regresses
+	 * when it decreases, latency and allocation when they increase.
+	 */
+	private static boolean compare(Properties baseline, Properties results,
+			double threshold)
+	{
+		boolean passed = true;
+		for (String operation : OPERATIONS)
+			for (String metric : new String[] {
+				"throughput",
+				"p99",
+				"allocated"
+			})
+			{
+				String key = operation + "." + metric;
+				double current = Double.parseDouble(results.getProperty(key));
+				String value = baseline.getProperty(key);
+				if (value == null || current < 0.0)
+				{
+					System.out.println(key + " " + format(current)
+							+ " (no baseline)");
+					continue;
+				}
+				double base = Double.parseDouble(value);
+				double change = base == 0.0 ? 0.0 : (current - base) / base;
+				boolean regressed = metric.equals("throughput")
+						? change < -threshold : change > threshold;
+				
+				StringBuilder sb = new StringBuilder();
+				sb.append(key);
+				sb.append(" ");
+				sb.append(format(current));
+				sb.append(" (baseline ");
+				sb.append(value);
+				sb.append(", ");
+				sb.append(String.format("%+.1f%%", change * 100.0));
+				sb.append(")");
+				if (regressed)
+					sb.append(" REGRESSION");
+				System.out.println(sb.toString());
+				passed &= !regressed;
+			}
+		return passed;
+	}
+	
+	private static String format(double value)
+	{
+		return String.format("%.1f", value);
+	}
+	
+	private static Properties load(File file)
+	throws IOException
+	{
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file))
+		{
+			properties.load(in);
+		}
+		return properties;
+	}
+	
+	private static void store(Properties properties, File file)
+	throws IOException
+	{
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Could not create directory " + dir);
+		try (OutputStream out = new FileOutputStream(file))
+		{
+			properties.store(out, "ASN.1 codec gate");
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,1035 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import net.queenbee.asn1.ASN1Class;
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
+import net.queenbee.asn1.OID;
+import net.queenbee.asn1.io.BERDecoder;
+import net.queenbee.asn1.io.BEREncodingException;
+import net.queenbee.asn1.io.BERInputStream;
+import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.asn1.io.DEROutputStream;
+import net.queenbee.security.cert.X509CertificateAuthority;
+import net.queenbee.security.cert.X509CertificateProfile;
+import net.queenbee.security.cert.X509ExtensionEntries;
+import net.queenbee.security.cert.X509ExtensionEntry;
+
+/**
+ * Differential check and throughput comparison of the QueenBee decoders
+ * against the JDK X.509 certificate parser.
+ * 
+ * <p>
+ * A corpus of random, valid certificates is issued, with random names,
+ * serial numbers, validity periods, unique identifiers and extensions.
+ * Every certificate is decoded by each {@link FieldsDecoder} and by
+ * {@link CertificateFactory}, and all decoded fields must match. Then the
+ * throughput of every decoder is reported relative to the JDK parser. The
+ * JDK parser caches certificates by their encoding, so the corpus must be
+ * larger than that cache for its throughput to be meaningful.
+ * </p>
+ * 
+ * <p>
+ * Certificate signing requests are not part of the corpus, since there is
+ * neither an encoder for them in the project nor a public JDK parser to
+ * compare with.
+ * </p>
+ * 
+ * <p>
+ * Arguments are the corpus size and the random seed, both optional.
+ * Process exits with status {@code 1} if some mismatch has been found.
+ * </p>
+ */
+public class DifferentialHarness
+{
+	private static final int DEFAULT_CORPUS_SIZE = 2000;
+	private static final long DEFAULT_SEED = 1l;
+	private static final int KEY_PAIR_COUNT = 4;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 5;
+	private static final int MAX_REPORTED_MISMATCHES = 20;
+	
+	private static final String KEY_USAGE_OID = "2.5.29.15";
+	private static final String EXTENDED_KEY_USAGE_OID = "2.5.29.37";
+	private static final String BASIC_CONSTRAINTS_OID = "2.5.29.19";
+	private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+	private static final String PRIVATE_OID = "1.3.6.1.4.1.55555";
+	
+	private static final String[] DIGEST_ALGORITHMS = {
+		"SHA1",
+		"SHA256",
+		"SHA384",
+		"SHA512"
+	};
+	
+	private static final String[] EXTENDED_KEY_USAGES = {
+		"1.3.6.1.5.5.7.3.1",
+		"1.3.6.1.5.5.7.3.2",
+		"1.3.6.1.5.5.7.3.3",
+		"1.3.6.1.5.5.7.3.4",
+		"1.3.6.1.5.5.7.3.8",
+		"1.3.6.1.5.5.7.3.9"
+	};
+	
+	private static final String[] NAME_ATTRIBUTES = {
+		"CN",
+		"OU",
+		"O",
+		"L",
+		"ST"
+	};
+	
+	private static final String NAME_CHARACTERS =
+			"abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+			+ " -.\u00e0\u00e9\u00f1\u00e7\u03a9\u6f22";
+	
+	private Random random;
+	private List<byte[]> corpus;
+	private int mismatches;
+	
+	private DifferentialHarness(long seed)
+	{
+		random = new Random(seed);
+		corpus = new ArrayList<>();
+		mismatches = 0;
+	}
+	
+	public static void main(String[] args)
+	throws Exception
+	{
+		int size = args.length > 0 ? Integer.parseInt(args[0])
+				: DEFAULT_CORPUS_SIZE;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+		
+		DifferentialHarness harness = new DifferentialHarness(seed);
+		harness.generate(size);
+		
+		FieldsDecoder[] decoders = {
+			new StreamDecoder(),
+			new BufferDecoder()
+		};
+		harness.check(decoders);
+		harness.measure(decoders);
+		if (harness.mismatches > 0)
+		{
+			System.out.println(harness.mismatches + " mismatches found");
+			System.exit(1);
+		}
+	}
+	
+	/*
+	 * Issue the given count of random certificates.
+	 */
+	private void generate(int size)
+	throws Exception
+	{
+		KeyPair[] keyPairs = new KeyPair[KEY_PAIR_COUNT];
+		for (int i = 0; i < KEY_PAIR_COUNT; ++i)
+			keyPairs[i] = Fixtures.keyPair();
+		X509CertificateAuthority authority = Fixtures.authority(keyPairs[0]);
+		
+		for (int i = 0; i < size; ++i)
+		{
+			KeyPair keyPair = keyPairs[random.nextInt(KEY_PAIR_COUNT)];
+			X509CertificateProfile profile = new X509CertificateProfile(
+					keyPair.getPublic());
+			profile.setSubject(randomName());
+			profile.setSerialNumber(new BigInteger(1 + random.nextInt(159),
+					random).add(BigInteger.ONE));
+			
+			// Both UTC and generalized times
+			long notBefore = 315532800000l + (random.nextLong() >>> 1)
+					% 3155760000000l;
+			profile.setNotBefore(new Date(notBefore));
+			profile.setNotAfter(new Date(notBefore + (1l
+					+ random.nextInt(3650)) * 86400000l));
+			profile.setDigestAlgorithm(DIGEST_ALGORITHMS[random.nextInt(
+					DIGEST_ALGORITHMS.length)]);
+			if (random.nextInt(4) == 0)
+				profile.setSubjectUniqueID(randomBits(1 + random.nextInt(40)));
+			if (random.nextBoolean())
+				profile.setKeyUsage(randomBits(1 + random.nextInt(9)));
+			if (random.nextBoolean())
+				profile.setExtendedKeyUsage(randomExtendedKeyUsage());
+			
+			Set<X509ExtensionEntry> extensions = new HashSet<>();
+			if (random.nextBoolean())
+			{
+				int bc = random.nextInt(3) == 0 ? Integer.MAX_VALUE
+						: random.nextInt(1000);
+				profile.setBasicConstraints(bc);
+				extensions.add(X509ExtensionEntries.createBasicConstraints(bc,
+						true));
+			}
+			if (random.nextBoolean())
+				extensions.add(new RawExtension(SUBJECT_KEY_IDENTIFIER_OID,
+						false, octetString(randomBytes(20))));
+			for (int j = random.nextInt(3); j > 0; --j)
+				extensions.add(new RawExtension(PRIVATE_OID + "."
+						+ random.nextInt(Integer.MAX_VALUE), false,
+						randomStructure()));
+			profile.setExtensions(extensions);
+			
+			corpus.add(authority.engineSignedCert(profile).getEncoded());
+		}
+		System.out.println("Corpus: " + corpus.size() + " certificates");
+	}
+	
+	/*
+	 * Decode every certificate with all decoders and with the JDK, and
+	 * compare their fields.
+	 */
+	private void check(FieldsDecoder[] decoders)
+	throws GeneralSecurityException
+	{
+		CertificateFactory factory = CertificateFactory.getInstance("X.509");
+		for (int i = 0; i < corpus.size(); ++i)
+		{
+			byte[] encoded = corpus.get(i);
+			X509Certificate expected = (X509Certificate)
+					factory.generateCertificate(new ByteArrayInputStream(
+					encoded));
+			for (FieldsDecoder decoder : decoders)
+				try
+				{
+					compare(i, decoder.getName(), expected,
+							decoder.decode(encoded));
+				}
+				catch (IOException | BEREncodingException
+						| RuntimeException exception)
+				{
+					mismatch(i, decoder.getName(), "decoding",
+							exception.toString());
+				}
+		}
+		System.out.println("Checked with " + decoders.length + " decoders");
+	}
+	
+	private void compare(int index, String decoder, X509Certificate expected,
+			CertificateFields actual)
+	{
+		expect(index, decoder, "version", expected.getVersion(),
+				actual.version);
+		expect(index, decoder, "serialNumber", expected.getSerialNumber(),
+				actual.serialNumber);
+		expect(index, decoder, "signature", expected.getSigAlgOID(),
+				actual.signature);
+		expect(index, decoder, "issuer", hex(expected.getIssuerX500Principal()
+				.getEncoded()), hex(actual.issuer));
+		expect(index, decoder, "notBefore", expected.getNotBefore().getTime(),
+				actual.notBefore);
+		expect(index, decoder, "notAfter", expected.getNotAfter().getTime(),
+				actual.notAfter);
+		expect(index, decoder, "subject", hex(expected
+				.getSubjectX500Principal().getEncoded()), hex(actual.subject));
+		expect(index, decoder, "subjectPublicKeyInfo",
+				hex(expected.getPublicKey().getEncoded()),
+				hex(actual.subjectPublicKeyInfo));
+		expect(index, decoder, "issuerUniqueID",
+				BitString.valueOf(expected.getIssuerUniqueID()),
+				actual.issuerUniqueID);
+		expect(index, decoder, "subjectUniqueID",
+				BitString.valueOf(expected.getSubjectUniqueID()),
+				actual.subjectUniqueID);
+		expect(index, decoder, "criticalExtensions",
+				sorted(expected.getCriticalExtensionOIDs()),
+				sorted(actual.criticalExtensions));
+		
+		Set<String> expectedOIDs = new HashSet<>();
+		if (expected.getCriticalExtensionOIDs() != null)
+			expectedOIDs.addAll(expected.getCriticalExtensionOIDs());
+		if (expected.getNonCriticalExtensionOIDs() != null)
+			expectedOIDs.addAll(expected.getNonCriticalExtensionOIDs());
+		expect(index, decoder, "extensions", sorted(expectedOIDs),
+				sorted(actual.extensions.keySet()));
+		for (String oid : expectedOIDs)
+			expect(index, decoder, "extension " + oid,
+					hex(octetStringContents(expected.getExtensionValue(oid))),
+					hex(actual.extensions.get(oid)));
+		
+		expect(index, decoder, "keyUsage", bits(expected.getKeyUsage()),
+				bits(actual.keyUsage));
+		try
+		{
+			expect(index, decoder, "extendedKeyUsage",
+					expected.getExtendedKeyUsage(), actual.extendedKeyUsage);
+		}
+		catch (GeneralSecurityException exception)
+		{
+			mismatch(index, decoder, "extendedKeyUsage",
+					exception.toString());
+		}
+		expect(index, decoder, "basicConstraints",
+				expected.getBasicConstraints(), actual.basicConstraints);
+		expect(index, decoder, "signatureAlgorithm", expected.getSigAlgOID(),
+				actual.signatureAlgorithm);
+		expect(index, decoder, "signatureValue", hex(expected.getSignature()),
+				hex(actual.signatureValue));
+	}
+	
+	/*
+	 * Decoding throughput of every decoder relative to the JDK parser.
+	 */
+	private void measure(FieldsDecoder[] decoders)
+	throws Exception
+	{
+		final CertificateFactory factory = CertificateFactory.getInstance(
+				"X.509");
+		FieldsDecoder jdk = new FieldsDecoder()
+		{
+			@Override
+			public String getName()
+			{
+				return "JDK CertificateFactory";
+			}
+			
+			@Override
+			public CertificateFields decode(byte[] encoded)
+			throws IOException, BEREncodingException
+			{
+				try
+				{
+					factory.generateCertificate(new ByteArrayInputStream(
+							encoded));
+					return null;
+				}
+				catch (GeneralSecurityException exception)
+				{
+					throw new IOException(exception);
+				}
+			}
+		};
+		
+		double reference = throughput(jdk);
+		System.out.println(String.format("%-24s %12.0f ops/s", jdk.getName(),
+				reference));
+		for (FieldsDecoder decoder : decoders)
+		{
+			double throughput = throughput(decoder);
+			System.out.println(String.format("%-24s %12.0f ops/s %6.2fx",
+					decoder.getName(), throughput, throughput / reference));
+		}
+	}
+	
+	private double throughput(FieldsDecoder decoder)
+	throws IOException, BEREncodingException
+	{
+		for (int i = 0; i < WARMUP_ROUNDS; ++i)
+			for (byte[] encoded : corpus)
+				decoder.decode(encoded);
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; ++i)
+			for (byte[] encoded : corpus)
+				decoder.decode(encoded);
+		long elapsed = System.nanoTime() - start;
+		return (double) MEASURED_ROUNDS * corpus.size() * 1e9 / elapsed;
+	}
+	
+	private void expect(int index, String decoder, String field,
+			Object expected, Object actual)
+	{
+		if (expected == null ? actual != null : !expected.equals(actual))
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("expected ");
+			sb.append(expected);
+			sb.append(" but was ");
+			sb.append(actual);
+			mismatch(index, decoder, field, sb.toString());
+		}
+	}
+	
+	private void mismatch(int index, String decoder, String field,
+			String message)
+	{
+		if (++mismatches <= MAX_REPORTED_MISMATCHES)
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("Certificate ");
+			sb.append(index);
+			sb.append(", ");
+			sb.append(decoder);
+			sb.append(", ");
+			sb.append(field);
+			sb.append(": ");
+			sb.append(message);
+			System.out.println(sb.toString());
+		}
+	}
+	
+	private X500Principal randomName()
+	{
+		StringBuilder sb = new StringBuilder();
+		int count = 1 + random.nextInt(NAME_ATTRIBUTES.length);
+		for (int i = 0; i < count; ++i)
+		{
+			sb.append(NAME_ATTRIBUTES[i]);
+			sb.append('=');
+			int length = 1 + random.nextInt(40);
+			for (int j = 0; j < length; ++j)
+			{
+				char c = NAME_CHARACTERS.charAt(random.nextInt(
+						NAME_CHARACTERS.length()));
+				// No leading or trailing spaces
+				sb.append(c == ' ' && (j == 0 || j == length - 1) ? 'x' : c);
+			}
+			sb.append(", ");
+		}
+		sb.append("C=ES");
+		return new X500Principal(sb.toString());
+	}
+	
+	private List<String> randomExtendedKeyUsage()
+	{
+		List<String> eku = new ArrayList<>();
+		for (String oid : EXTENDED_KEY_USAGES)
+			if (random.nextBoolean())
+				eku.add(oid);
+		if (eku.isEmpty() || random.nextBoolean())
+			eku.add(PRIVATE_OID + "." + random.nextInt(Integer.MAX_VALUE)
+					+ "." + random.nextInt(Integer.MAX_VALUE));
+		return eku;
+	}
+	
+	private boolean[] randomBits(int length)
+	{
+		boolean[] bits = new boolean[length];
+		for (int i = 0; i < length; ++i)
+			bits[i] = random.nextBoolean();
+		return bits;
+	}
+	
+	private byte[] randomBytes(int length)
+	{
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+	
+	/*
+	 * Random sequence of primitive values, as a private extension value.
+	 */
+	private byte[] randomStructure()
+	throws IOException, BEREncodingException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DEROutputStream out = new DEROutputStream(baos);
+		out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+				true));
+		for (int i = random.nextInt(6); i > 0; --i)
+			switch (random.nextInt(4))
+			{
+			case 0:
+				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_INTEGER, false));
+				out.writeInteger(new BigInteger(1 + random.nextInt(200),
+						random).subtract(BigInteger.ONE.shiftLeft(100)));
+				out.conclude();
+				break;
+			case 1:
+				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_UTF8_STRING, false));
+				out.writeUTF8String(NAME_CHARACTERS.substring(
+						random.nextInt(NAME_CHARACTERS.length())));
+				out.conclude();
+				break;
+			case 2:
+				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_OCTET_STRING, false));
+				out.writeOctetString(randomBytes(random.nextInt(300)));
+				out.conclude();
+				break;
+			default:
+				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_BOOLEAN, false));
+				out.writeBoolean(random.nextBoolean());
+				out.conclude();
+			}
+		out.conclude();
+		out.flush();
+		return baos.toByteArray();
+	}
+	
+	private static byte[] octetString(byte[] contents)
+	throws IOException, BEREncodingException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DEROutputStream out = new DEROutputStream(baos);
+		out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_OCTET_STRING,
+				false));
+		out.writeOctetString(contents);
+		out.conclude();
+		out.flush();
+		return baos.toByteArray();
+	}
+	
+	/*
+	 * Contents of a DER octet string, parsed by hand so the check does not
+	 * depend on the decoders under test.
+	 */
+	private static byte[] octetStringContents(byte[] encoded)
+	{
+		if (encoded == null || encoded.length < 2 || encoded[0] != 0x04)
+			return encoded;
+		int offset = 2;
+		int length = encoded[1] & 0xff;
+		if (length > 0x80)
+		{
+			int octets = length & 0x7f;
+			length = 0;
+			for (int i = 0; i < octets; ++i)
+				length = (length << 8) | (encoded[offset++] & 0xff);
+		}
+		return Arrays.copyOfRange(encoded, offset, offset + length);
+	}
+	
+	/*
+	 * Bit string as text, ignoring trailing zero bits, since the JDK pads
+	 * key usage to nine bits.
+	 */
+	private static String bits(boolean[] bits)
+	{
+		if (bits == null)
+			return null;
+		int length = bits.length;
+		while (length > 0 && !bits[length - 1])
+			--length;
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; ++i)
+			sb.append(bits[i] ? '1' : '0');
+		return sb.toString();
+	}
+	
+	private static String bits(BitString bits)
+	{
+		return bits == null ? null : bits(bits.toBooleanArray());
+	}
+	
+	private static List<String> sorted(Set<String> set)
+	{
+		if (set == null || set.isEmpty())
+			return Collections.emptyList();
+		List<String> list = new ArrayList<>(set);
+		Collections.sort(list);
+		return list;
+	}
+	
+	private static String hex(byte[] bytes)
+	{
+		if (bytes == null)
+			return null;
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+	
+	/*
+	 * Certificate fields as decoded by a decoder under test. Extension
+	 * values are their octet string contents.
+	 */
+	static class CertificateFields
+	{
+		public int version;
+		public BigInteger serialNumber;
+		public String signature;
+		public byte[] issuer;
+		public long notBefore;
+		public long notAfter;
+		public byte[] subject;
+		public byte[] subjectPublicKeyInfo;
+		public BitString issuerUniqueID;
+		public BitString subjectUniqueID;
+		public Map<String, byte[]> extensions;
+		public Set<String> criticalExtensions;
+		public BitString keyUsage;
+		public List<String> extendedKeyUsage;
+		public int basicConstraints;
+		public String signatureAlgorithm;
+		public byte[] signatureValue;
+		
+		public CertificateFields()
+		{
+			version = 1;
+			extensions = new HashMap<>();
+			criticalExtensions = new HashSet<>();
+			basicConstraints = -1;
+		}
+	}
+	
+	/*
+	 * Certificate decoder under test.
+	 */
+	static interface FieldsDecoder
+	{
+		public String getName();
+		
+		public CertificateFields decode(byte[] encoded)
+		throws IOException, BEREncodingException;
+	}
+	
+	/*
+	 * Decoder built on BERInputStream.
+	 */
+	static class StreamDecoder
+	implements FieldsDecoder
+	{
+		private byte[] buffer;
+		private ByteArrayOutputStream baos;
+		private BEROutputStream out;
+		
+		public StreamDecoder()
+		{
+			buffer = new byte[256];
+			baos = new ByteArrayOutputStream();
+			out = new BEROutputStream(null);
+		}
+		
+		@Override
+		public String getName()
+		{
+			return "BERInputStream";
+		}
+		
+		@Override
+		public CertificateFields decode(byte[] encoded)
+		throws IOException, BEREncodingException
+		{
+			CertificateFields fields = new CertificateFields();
+			BERInputStream in = new BERInputStream(new ByteArrayInputStream(
+					encoded));
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+					true);
+			
+			// TBS certificate
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+					true);
+			ASN1Tag tag = in.readTag();
+			if (is(tag, ASN1Class.CONTEXT_SPECIFIC, 0, true))
+			{
+				expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER,
+						false);
+				fields.version = (int) in.readLong() + 1;
+				in.skip();
+				end(in);
+				tag = in.readTag();
+			}
+			expect(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER, false);
+			fields.serialNumber = in.readInteger();
+			in.skip();
+			fields.signature = algorithm(in);
+			fields.issuer = copy(in);
+			
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+					true);
+			fields.notBefore = time(in);
+			fields.notAfter = time(in);
+			end(in);
+			
+			fields.subject = copy(in);
+			fields.subjectPublicKeyInfo = copy(in);
+			tag = in.readTag();
+			if (is(tag, ASN1Class.CONTEXT_SPECIFIC, 1, false))
+			{
+				fields.issuerUniqueID = in.readBitString();
+				in.skip();
+				tag = in.readTag();
+			}
+			if (is(tag, ASN1Class.CONTEXT_SPECIFIC, 2, false))
+			{
+				fields.subjectUniqueID = in.readBitString();
+				in.skip();
+				tag = in.readTag();
+			}
+			if (is(tag, ASN1Class.CONTEXT_SPECIFIC, 3, true))
+			{
+				extensions(in, fields);
+				end(in);
+				tag = in.readTag();
+			}
+			if (!tag.isEOC())
+				throw new BEREncodingException("Unexpected TBS field");
+			in.skip();
+			
+			fields.signatureAlgorithm = algorithm(in);
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING,
+					false);
+			fields.signatureValue = in.readBitString().getBytes();
+			in.skip();
+			end(in);
+			return fields;
+		}
+		
+		private void extensions(BERInputStream in, CertificateFields fields)
+		throws IOException, BEREncodingException
+		{
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+					true);
+			ASN1Tag tag;
+			while (!(tag = in.readTag()).isEOC())
+			{
+				expect(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+				expect(in.readTag(), ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_OBJECT_INDENTIFIER, false);
+				String oid = in.readObjectIdentifier().toString();
+				in.skip();
+				tag = in.readTag();
+				if (is(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_BOOLEAN, false))
+				{
+					if (in.readBoolean())
+						fields.criticalExtensions.add(oid);
+					in.skip();
+					tag = in.readTag();
+				}
+				expect(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_OCTET_STRING,
+						false);
+				byte[] value = in.readOctetString();
+				in.skip();
+				end(in);
+				
+				fields.extensions.put(oid, value);
+				BERInputStream vin = new BERInputStream(
+						new ByteArrayInputStream(value));
+				if (oid.equals(KEY_USAGE_OID))
+				{
+					expect(vin.readTag(), ASN1Class.UNIVERSAL,
+							ASN1Tag.TN_BIT_STRING, false);
+					fields.keyUsage = vin.readBitString();
+				}
+				else if (oid.equals(EXTENDED_KEY_USAGE_OID))
+				{
+					expect(vin.readTag(), ASN1Class.UNIVERSAL,
+							ASN1Tag.TN_SEQUENCE, true);
+					fields.extendedKeyUsage = new ArrayList<>();
+					while (!(tag = vin.readTag()).isEOC())
+					{
+						expect(tag, ASN1Class.UNIVERSAL,
+								ASN1Tag.TN_OBJECT_INDENTIFIER, false);
+						fields.extendedKeyUsage.add(
+								vin.readObjectIdentifier().toString());
+						vin.skip();
+					}
+				}
+				else if (oid.equals(BASIC_CONSTRAINTS_OID))
+				{
+					expect(vin.readTag(), ASN1Class.UNIVERSAL,
+							ASN1Tag.TN_SEQUENCE, true);
+					tag = vin.readTag();
+					if (is(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_BOOLEAN, false))
+					{
+						boolean ca = vin.readBoolean();
+						vin.skip();
+						tag = vin.readTag();
+						if (ca)
+							fields.basicConstraints = Integer.MAX_VALUE;
+					}
+					if (is(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER, false)
+							&& fields.basicConstraints >= 0)
+						fields.basicConstraints = (int) vin.readLong();
+				}
+			}
+			in.skip();
+		}
+		
+		private static String algorithm(BERInputStream in)
+		throws IOException, BEREncodingException
+		{
+			expect(in.readTag(), ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
+					true);
+			expect(in.readTag(), ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_OBJECT_INDENTIFIER, false);
+			String oid = in.readObjectIdentifier().toString();
+			in.skip();
+			while (!in.readTag().isEOC())
+				in.skip();
+			in.skip();
+			return oid;
+		}
+		
+		private static long time(BERInputStream in)
+		throws IOException, BEREncodingException
+		{
+			ASN1Tag tag = in.readTag();
+			long time;
+			if (is(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_UTC_TIME, false))
+				time = in.readUTCTime().getTime();
+			else
+			{
+				expect(tag, ASN1Class.UNIVERSAL, ASN1Tag.TN_GENERALIZED_TIME,
+						false);
+				time = in.readGeneralizedTime().getTime();
+			}
+			in.skip();
+			return time;
+		}
+		
+		/*
+		 * Whole encoding of the next tag.
+		 */
+		private byte[] copy(BERInputStream in)
+		throws IOException, BEREncodingException
+		{
+			baos.reset();
+			out.reset(baos);
+			Fixtures.copy(in, out, buffer);
+			out.flush();
+			return baos.toByteArray();
+		}
+		
+		private static void end(BERInputStream in)
+		throws IOException, BEREncodingException
+		{
+			if (!in.readTag().isEOC())
+				throw new BEREncodingException("Unexpected trailing field");
+			in.skip();
+		}
+		
+		private static void expect(ASN1Tag tag, ASN1Class tagClass,
+				int tagNumber, boolean constructed)
+		throws BEREncodingException
+		{
+			if (!is(tag, tagClass, tagNumber, constructed))
+				throw new BEREncodingException("Unexpected tag " + tag);
+		}
+		
+		private static boolean is(ASN1Tag tag, ASN1Class tagClass,
+				int tagNumber, boolean constructed)
+		{
+			return tag.getTagClass() == tagClass
+					&& tag.getTagNumber() == tagNumber
+					&& tag.isConstructed() == constructed;
+		}
+	}
+	
+	/*
+	 * Decoder built on BERDecoder.
+	 */
+	static class BufferDecoder
+	implements FieldsDecoder
+	{
+		@Override
+		public String getName()
+		{
+			return "BERDecoder";
+		}
+		
+		@Override
+		public CertificateFields decode(byte[] encoded)
+		throws IOException, BEREncodingException
+		{
+			CertificateFields fields = new CertificateFields();
+			BERDecoder d = new BERDecoder(encoded);
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+			d.enter();
+			
+			// TBS certificate
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+			d.enter();
+			d.next();
+			if (d.isTag(ASN1Class.CONTEXT_SPECIFIC, 0, true))
+			{
+				d.enter();
+				next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER, false);
+				fields.version = (int) d.readLong() + 1;
+				d.exit();
+				d.next();
+			}
+			expect(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER, false);
+			fields.serialNumber = d.readInteger();
+			fields.signature = algorithm(d);
+			d.next();
+			fields.issuer = d.readEncoded();
+			
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+			d.enter();
+			d.next();
+			fields.notBefore = d.readTime();
+			d.next();
+			fields.notAfter = d.readTime();
+			d.exit();
+			
+			d.next();
+			fields.subject = d.readEncoded();
+			d.next();
+			fields.subjectPublicKeyInfo = d.readEncoded();
+			boolean more = d.next();
+			if (more && d.isTag(ASN1Class.CONTEXT_SPECIFIC, 1, false))
+			{
+				fields.issuerUniqueID = d.readBitString();
+				more = d.next();
+			}
+			if (more && d.isTag(ASN1Class.CONTEXT_SPECIFIC, 2, false))
+			{
+				fields.subjectUniqueID = d.readBitString();
+				more = d.next();
+			}
+			if (more && d.isTag(ASN1Class.CONTEXT_SPECIFIC, 3, true))
+			{
+				d.enter();
+				next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+				extensions(d, fields);
+				d.exit();
+				more = d.next();
+			}
+			if (more)
+				throw new BEREncodingException("Unexpected TBS field");
+			d.exit();
+			
+			fields.signatureAlgorithm = algorithm(d);
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING, false);
+			fields.signatureValue = d.readBitString().getBytes();
+			return fields;
+		}
+		
+		private static void extensions(BERDecoder d, CertificateFields fields)
+		throws BEREncodingException
+		{
+			d.enter();
+			while (d.next())
+			{
+				expect(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+				d.enter();
+				next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_OBJECT_INDENTIFIER,
+						false);
+				OID oid = d.readObjectIdentifier();
+				d.next();
+				if (d.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BOOLEAN, false))
+				{
+					if (d.readBoolean())
+						fields.criticalExtensions.add(oid.toString());
+					d.next();
+				}
+				expect(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_OCTET_STRING, false);
+				byte[] value = d.readOctetString();
+				d.exit();
+				
+				fields.extensions.put(oid.toString(), value);
+				BERDecoder v = new BERDecoder(value);
+				if (oid.toString().equals(KEY_USAGE_OID))
+				{
+					next(v, ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING, false);
+					fields.keyUsage = v.readBitString();
+				}
+				else if (oid.toString().equals(EXTENDED_KEY_USAGE_OID))
+				{
+					next(v, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+					v.enter();
+					fields.extendedKeyUsage = new ArrayList<>();
+					while (v.next())
+					{
+						expect(v, ASN1Class.UNIVERSAL,
+								ASN1Tag.TN_OBJECT_INDENTIFIER, false);
+						fields.extendedKeyUsage.add(
+								v.readObjectIdentifier().toString());
+					}
+				}
+				else if (oid.toString().equals(BASIC_CONSTRAINTS_OID))
+				{
+					next(v, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+					v.enter();
+					boolean more = v.next();
+					if (more && v.isTag(ASN1Class.UNIVERSAL,
+							ASN1Tag.TN_BOOLEAN, false))
+					{
+						if (v.readBoolean())
+							fields.basicConstraints = Integer.MAX_VALUE;
+						more = v.next();
+					}
+					if (more && v.isTag(ASN1Class.UNIVERSAL,
+							ASN1Tag.TN_INTEGER, false)
+							&& fields.basicConstraints >= 0)
+						fields.basicConstraints = (int) v.readLong();
+				}
+			}
+			d.exit();
+		}
+		
+		private static String algorithm(BERDecoder d)
+		throws BEREncodingException
+		{
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true);
+			d.enter();
+			next(d, ASN1Class.UNIVERSAL, ASN1Tag.TN_OBJECT_INDENTIFIER, false);
+			String oid = d.readObjectIdentifier().toString();
+			d.exit();
+			return oid;
+		}
+		
+		private static void next(BERDecoder d, ASN1Class tagClass,
+				int tagNumber, boolean constructed)
+		throws BEREncodingException
+		{
+			if (!d.next())
+				throw new BEREncodingException("Missing field");
+			expect(d, tagClass, tagNumber, constructed);
+		}
+		
+		private static void expect(BERDecoder d, ASN1Class tagClass,
+				int tagNumber, boolean constructed)
+		throws BEREncodingException
+		{
+			if (!d.isTag(tagClass, tagNumber, constructed))
+				throw new BEREncodingException("Unexpected tag");
+		}
+	}
+	
+	/*
+	 * Extension with an already encoded value.
+	 */
+	private static class RawExtension
+	extends X509ExtensionEntry
+	{
+		private static final long serialVersionUID = 1l;
+		
+		private byte[] value;
+		
+		public RawExtension(String oid, boolean critical, byte[] value)
+		{
+			super(oid, critical);
+			this.value = value;
+		}
+		
+		@Override
+		public byte[] getValue()
+		{
+			return value;
+		}
+	}
+}
\ No newline at end of file
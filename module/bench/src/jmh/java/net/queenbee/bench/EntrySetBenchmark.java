@@ -0,0 +1,86 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.Certificate;
+import java.util.concurrent.TimeUnit;
+
+import net.queenbee.security.qbks.Entry;
+import net.queenbee.security.qbks.EntrySet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntrySetBenchmark
+{
+	private static final int LOOKUP_COUNT = 1024;
+	
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+	
+	private EntrySet entrySet;
+	private String[] aliases;
+	private int next;
+	
+	@Setup
+	public void setup()
+	throws GeneralSecurityException
+	{
+		KeyPair keyPair = Fixtures.keyPair();
+		Certificate cert = Fixtures.certificate(keyPair);
+		entrySet = new EntrySet();
+		for (int i = 0; i < size; ++i)
+			entrySet.put(alias(i), cert);
+		
+		// Spread over the whole set, in a fixed order
+		aliases = new String[LOOKUP_COUNT];
+		for (int i = 0; i < LOOKUP_COUNT; ++i)
+			aliases[i] = alias((int) ((i * 2654435761l) % size));
+		next = 0;
+	}
+	
+	@Benchmark
+	public Entry findPresent()
+	{
+		String alias = aliases[next];
+		next = (next + 1) % LOOKUP_COUNT;
+		return entrySet.find(alias);
+	}
+	
+	@Benchmark
+	public Entry findAbsent()
+	{
+		return entrySet.find("absent");
+	}
+	
+	private static String alias(int i)
+	{
+		return "entry-" + i;
+	}
+}
\ No newline at end of file
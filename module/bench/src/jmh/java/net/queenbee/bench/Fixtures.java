@@ -0,0 +1,154 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
+import net.queenbee.asn1.io.BEREncodingException;
+import net.queenbee.asn1.io.BERInputStream;
+import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.security.cert.CertificateAuthorityException;
+import net.queenbee.security.cert.X509CertificateAuthority;
+import net.queenbee.security.cert.X509CertificateProfile;
+import net.queenbee.security.cert.X509CertificateV3;
+import net.queenbee.security.cert.X509ExtensionEntries;
+import net.queenbee.security.cert.X509ExtensionEntry;
+
+class Fixtures
+{
+	public static final String DIGEST_ALGORITHM = "SHA256";
+	public static final int KEY_SIZE = 2048;
+	
+	private static final long VALIDITY = 365l * 24l * 60l * 60l * 1000l;
+	
+	private static final X500Principal ISSUER;
+	private static final X500Principal SUBJECT;
+	
+	static
+	{
+		ISSUER = new X500Principal("CN=QueenBee Bench CA, O=QueenBee");
+		SUBJECT = new X500Principal(
+				"CN=bench.queenbee.net, OU=Bench, O=QueenBee, C=ES");
+	}
+	
+	public static KeyPair keyPair()
+	throws GeneralSecurityException
+	{
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(KEY_SIZE);
+		return generator.generateKeyPair();
+	}
+	
+	public static X509CertificateProfile profile(PublicKey publicKey)
+	{
+		Date now = new Date();
+		X509CertificateProfile profile = new X509CertificateProfile(
+				publicKey);
+		profile.setSerialNumber(new BigInteger(64, new Random(1l)));
+		profile.setSubject(SUBJECT);
+		profile.setNotBefore(now);
+		profile.setNotAfter(new Date(now.getTime() + VALIDITY));
+		profile.setDigestAlgorithm(DIGEST_ALGORITHM);
+		profile.setKeyUsage(new boolean[] {
+			true, false, true
+		});
+		profile.setExtendedKeyUsage(Arrays.asList(
+				"1.3.6.1.5.5.7.3.1",
+				"1.3.6.1.5.5.7.3.2"));
+		return profile;
+	}
+	
+	public static X509CertificateAuthority authority(KeyPair keyPair)
+	throws CertificateAuthorityException
+	{
+		X509CertificateAuthority authority = new X509CertificateAuthority();
+		authority.engineInit(keyPair.getPrivate());
+		return authority;
+	}
+	
+	public static X509CertificateV3 certificate(KeyPair keyPair)
+	{
+		X509CertificateProfile profile = profile(keyPair.getPublic());
+		X509CertificateV3 cert = new X509CertificateV3(keyPair.getPublic());
+		cert.setIssuer(ISSUER);
+		cert.setSubject(profile.getSubject());
+		cert.setSerialNumber(profile.getSerialNumber());
+		cert.setNotBefore(profile.getNotBefore());
+		cert.setNotAfter(profile.getNotAfter());
+		cert.setDigestAlgorithm(profile.getDigestAlgorithm());
+		
+		Set<X509ExtensionEntry> extensions = new HashSet<>();
+		extensions.add(X509ExtensionEntries.createBasicConstraints(-1, true));
+		extensions.add(X509ExtensionEntries.createKeyUsage(
+				BitString.valueOf(profile.getKeyUsage()), true));
+		extensions.add(X509ExtensionEntries.createExtendedKeyUsage(
+				profile.getExtendedKeyUsage(), false));
+		cert.setExtensions(extensions);
+		return cert;
+	}
+	
+	/*
+	 * Copy the next tag, with all its contents, from the given input to the
+	 * given output.
+	 */
+	public static void copy(BERInputStream in, BEROutputStream out,
+			byte[] buffer)
+	throws IOException, BEREncodingException
+	{
+		int depth = 0;
+		do
+		{
+			ASN1Tag tag = in.readTag();
+			if (tag.isEOC())
+			{
+				in.skip();
+				out.conclude(false);
+				--depth;
+			}
+			else
+			{
+				out.writeTag(tag);
+				if (tag.isConstructed())
+					++depth;
+				else
+				{
+					int n;
+					while ((n = in.read(buffer)) >= 0)
+						out.write(buffer, 0, n);
+					in.skip();
+					out.conclude(false);
+				}
+			}
+		}
+		while (depth > 0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.bench;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.CertificateParsingException;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.x500.X500Principal;
+
+import net.queenbee.security.cert.X509CertificateV3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class X509CertificateBenchmark
+{
+	private KeyPair keyPair;
+	private X509CertificateV3 signed;
+	private byte[] encoded;
+	
+	@Setup
+	public void setup()
+	throws GeneralSecurityException
+	{
+		keyPair = Fixtures.keyPair();
+		signed = Fixtures.certificate(keyPair);
+		signed.sign(keyPair.getPrivate());
+		encoded = signed.getEncoded();
+	}
+	
+	@Benchmark
+	public X500Principal decodeSubject()
+	throws CertificateParsingException
+	{
+		return X509CertificateV3.decode(encoded).getSubjectX500Principal();
+	}
+	
+	@Benchmark
+	public byte[] getEncoded(Unencoded state)
+	throws GeneralSecurityException
+	{
+		return state.cert.getEncoded();
+	}
+	
+	@Benchmark
+	public X509CertificateV3 sign()
+	throws GeneralSecurityException
+	{
+		X509CertificateV3 cert = Fixtures.certificate(keyPair);
+		cert.sign(keyPair.getPrivate());
+		return cert;
+	}
+	
+	@Benchmark
+	public void verify()
+	throws GeneralSecurityException
+	{
+		signed.verify(keyPair.getPublic());
+	}
+	
+	/*
+	 * Signed certificate whose encoding has not been cached yet. Signing
+	 * happens out of the measured time, and once per invocation since
+	 * certificate caches its encoding.
+	 */
+	@State(Scope.Thread)
+	public static class Unencoded
+	{
+		private KeyPair keyPair;
+		private X509CertificateV3 cert;
+		
+		@Setup
+		public void setup()
+		throws GeneralSecurityException
+		{
+			keyPair = Fixtures.keyPair();
+		}
+		
+		@Setup(Level.Invocation)
+		public void sign()
+		throws GeneralSecurityException
+		{
+			cert = Fixtures.certificate(keyPair);
+			cert.sign(keyPair.getPrivate());
+		}
+	}
+}
\ No newline at end of file
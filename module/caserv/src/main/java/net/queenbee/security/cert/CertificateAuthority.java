@@ -17,6 +17,7 @@
 
 package net.queenbee.security.cert;
 
+import java.nio.channels.CompletionHandler;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
@@ -24,6 +25,9 @@ import java.security.Provider;
 import java.security.Provider.Service;
 import java.security.Security;
 import java.security.cert.Certificate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Certificate Authority.
@@ -126,6 +130,219 @@ public final class CertificateAuthority
 		return authoritySpi.engineSignedCert(profile, issuerCert);
 	}
 	
+	/**
+	 * Emits a signed certificate for each one of the given profiles.
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * 
+	 * @return
+	 * 			Signed certificates, in the same order as their profiles.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If some error has been occurred.
+	 */
+	public final List<Certificate> signedCerts(
+			Collection<? extends CertificateProfile> profiles)
+	throws CertificateAuthorityException
+	{
+		return authoritySpi.engineSignedCerts(profiles);
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles and the
+	 * given issuer certificate.
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param issuerCert
+	 * 			Issuer certificate.
+	 * 
+	 * @return
+	 * 			Signed certificates, in the same order as their profiles.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If some error has been occurred.
+	 */
+	public final List<Certificate> signedCerts(
+			Collection<? extends CertificateProfile> profiles,
+			Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		return authoritySpi.engineSignedCerts(profiles, issuerCert);
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles without
+	 * blocking until all of them are signed. Every certificate is given to
+	 * the handler as soon as it has been signed, so results are streamed
+	 * instead of collected, and a failed emission does not stop the other
+	 * ones.
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param handler
+	 * 			Handler notified for each profile when its certificate has
+	 * 			been signed or its emission failed. The profile is given as
+	 * 			attachment. It may be notified from several threads at once.
+	 * 
+	 * @return
+	 * 			Future completed when all profiles have been handled. An
+	 * 			exception thrown by the handler does not stop the other
+	 * 			emissions, but the first one fails this future.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 * @throws IllegalArgumentException
+	 * 			If handler is {@code null}.
+	 */
+	public final <P extends CertificateProfile> Future<Void> signedCertsAsync(
+			Collection<? extends P> profiles,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException, IllegalArgumentException
+	{
+		if (handler == null)
+			throw new IllegalArgumentException("Null handler");
+		return authoritySpi.engineSignedCertsAsync(profiles, handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles and the
+	 * given issuer certificate without blocking until all of them are
+	 * signed. Every certificate is given to the handler as soon as it has
+	 * been signed, so results are streamed instead of collected, and a
+	 * failed emission does not stop the other ones.
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param issuerCert
+	 * 			Issuer certificate.
+	 * @param handler
+	 * 			Handler notified for each profile when its certificate has
+	 * 			been signed or its emission failed. The profile is given as
+	 * 			attachment. It may be notified from several threads at once.
+	 * 
+	 * @return
+	 * 			Future completed when all profiles have been handled. An
+	 * 			exception thrown by the handler does not stop the other
+	 * 			emissions, but the first one fails this future.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 * @throws IllegalArgumentException
+	 * 			If handler is {@code null}.
+	 */
+	public final <P extends CertificateProfile> Future<Void> signedCertsAsync(
+			Collection<? extends P> profiles, Certificate issuerCert,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException, IllegalArgumentException
+	{
+		if (handler == null)
+			throw new IllegalArgumentException("Null handler");
+		return authoritySpi.engineSignedCertsAsync(profiles, issuerCert,
+				handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile without blocking
+	 * until it is signed.
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * 
+	 * @return
+	 * 			Future signed certificate.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public final Future<Certificate> signedCertAsync(
+			CertificateProfile profile)
+	throws CertificateAuthorityException
+	{
+		return authoritySpi.engineSignedCertAsync(profile, null, null);
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile without blocking
+	 * until it is signed, notifying the given handler when it is done.
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * @param attachment
+	 * 			Object given to the handler.
+	 * @param handler
+	 * 			Handler notified when certificate has been signed or emission
+	 * 			failed.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 * @throws IllegalArgumentException
+	 * 			If handler is {@code null}.
+	 */
+	public final <A> void signedCertAsync(CertificateProfile profile,
+			A attachment, CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException, IllegalArgumentException
+	{
+		if (handler == null)
+			throw new IllegalArgumentException("Null handler");
+		authoritySpi.engineSignedCertAsync(profile, attachment, handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile and issuer
+	 * certificate without blocking until it is signed.
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * @param issuerCert
+	 * 			Issuer certificate.
+	 * 
+	 * @return
+	 * 			Future signed certificate.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public final Future<Certificate> signedCertAsync(
+			CertificateProfile profile, Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		return authoritySpi.engineSignedCertAsync(profile, issuerCert, null,
+				null);
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile and issuer
+	 * certificate without blocking until it is signed, notifying the given
+	 * handler when it is done.
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * @param issuerCert
+	 * 			Issuer certificate.
+	 * @param attachment
+	 * 			Object given to the handler.
+	 * @param handler
+	 * 			Handler notified when certificate has been signed or emission
+	 * 			failed.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 * @throws IllegalArgumentException
+	 * 			If handler is {@code null}.
+	 */
+	public final <A> void signedCertAsync(CertificateProfile profile,
+			Certificate issuerCert, A attachment,
+			CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException, IllegalArgumentException
+	{
+		if (handler == null)
+			throw new IllegalArgumentException("Null handler");
+		authoritySpi.engineSignedCertAsync(profile, issuerCert, attachment,
+				handler);
+	}
+	
 	/**
 	 * Retrieves an instance of a Certificate Authority of the given type.
 	 * 
@@ -17,8 +17,16 @@
 
 package net.queenbee.security.cert;
 
+import java.nio.channels.CompletionHandler;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Certificate Authority SPI.
@@ -79,4 +87,297 @@ public abstract class CertificateAuthoritySpi
 	public abstract Certificate engineSignedCert(CertificateProfile profile,
 			Certificate issuerCert)
 	throws CertificateAuthorityException;
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles.
+	 * 
+	 * <p>
+	 * Default implementation emits them one by one. Implementations may
+	 * override it to emit them in parallel.
+	 * </p>
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * 
+	 * @return
+	 * 			Signed certificates, in the same order as their profiles.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If an error has been occurred.
+	 */
+	public List<Certificate> engineSignedCerts(
+			Collection<? extends CertificateProfile> profiles)
+	throws CertificateAuthorityException
+	{
+		List<Certificate> certs = new ArrayList<>(profiles.size());
+		for (CertificateProfile profile : profiles)
+			certs.add(engineSignedCert(profile));
+		return certs;
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles and the
+	 * given issued certificate.
+	 * 
+	 * <p>
+	 * Default implementation emits them one by one. Implementations may
+	 * override it to emit them in parallel.
+	 * </p>
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param issuerCert
+	 * 			Issued certificate.
+	 * 
+	 * @return
+	 * 			Signed certificates, in the same order as their profiles.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If an error has been occurred.
+	 */
+	public List<Certificate> engineSignedCerts(
+			Collection<? extends CertificateProfile> profiles,
+			Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		List<Certificate> certs = new ArrayList<>(profiles.size());
+		for (CertificateProfile profile : profiles)
+			certs.add(engineSignedCert(profile, issuerCert));
+		return certs;
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile without blocking the
+	 * caller until it is signed.
+	 * 
+	 * <p>
+	 * Default implementation emits it on the calling thread, so returned
+	 * future is already done. Implementations are encouraged to override
+	 * it when signing may take long.
+	 * </p>
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * @param attachment
+	 * 			Object given to the handler.
+	 * @param handler
+	 * 			Handler notified when certificate has been signed or emission
+	 * 			failed. May be {@code null}.
+	 * 
+	 * @return
+	 * 			Future signed certificate.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public <A> Future<Certificate> engineSignedCertAsync(
+			final CertificateProfile profile, A attachment,
+			CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		return done(new Callable<Certificate>()
+		{
+			@Override
+			public Certificate call()
+			throws CertificateAuthorityException
+			{
+				return engineSignedCert(profile);
+			}
+		}, attachment, handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for the given profile and the given issued
+	 * certificate without blocking the caller until it is signed.
+	 * 
+	 * <p>
+	 * Default implementation emits it on the calling thread, so returned
+	 * future is already done. Implementations are encouraged to override
+	 * it when signing may take long.
+	 * </p>
+	 * 
+	 * @param profile
+	 * 			Certificate profile.
+	 * @param issuerCert
+	 * 			Issued certificate.
+	 * @param attachment
+	 * 			Object given to the handler.
+	 * @param handler
+	 * 			Handler notified when certificate has been signed or emission
+	 * 			failed. May be {@code null}.
+	 * 
+	 * @return
+	 * 			Future signed certificate.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public <A> Future<Certificate> engineSignedCertAsync(
+			final CertificateProfile profile, final Certificate issuerCert,
+			A attachment, CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		return done(new Callable<Certificate>()
+		{
+			@Override
+			public Certificate call()
+			throws CertificateAuthorityException
+			{
+				return engineSignedCert(profile, issuerCert);
+			}
+		}, attachment, handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles without
+	 * blocking the caller until all of them are signed, handing each one to
+	 * the handler as soon as it has been signed.
+	 * 
+	 * <p>
+	 * Default implementation emits them one by one on the calling thread,
+	 * so returned future is already done. Implementations are encouraged to
+	 * override it to emit them in parallel.
+	 * </p>
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param handler
+	 * 			Handler notified for each profile when its certificate has
+	 * 			been signed or its emission failed. The profile is given as
+	 * 			attachment.
+	 * 
+	 * @return
+	 * 			Future completed when all profiles have been handled. It must
+	 * 			fail with the first exception thrown by the handler, after
+	 * 			the other profiles have been handled anyway.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public <P extends CertificateProfile> Future<Void> engineSignedCertsAsync(
+			Collection<? extends P> profiles,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException
+	{
+		return doneEach(profiles, null, handler);
+	}
+	
+	/**
+	 * Emits a signed certificate for each one of the given profiles and the
+	 * given issued certificate without blocking the caller until all of them
+	 * are signed, handing each one to the handler as soon as it has been
+	 * signed.
+	 * 
+	 * <p>
+	 * Default implementation emits them one by one on the calling thread,
+	 * so returned future is already done. Implementations are encouraged to
+	 * override it to emit them in parallel.
+	 * </p>
+	 * 
+	 * @param profiles
+	 * 			Certificate profiles.
+	 * @param issuerCert
+	 * 			Issued certificate.
+	 * @param handler
+	 * 			Handler notified for each profile when its certificate has
+	 * 			been signed or its emission failed. The profile is given as
+	 * 			attachment.
+	 * 
+	 * @return
+	 * 			Future completed when all profiles have been handled. It must
+	 * 			fail with the first exception thrown by the handler, after
+	 * 			the other profiles have been handled anyway.
+	 * 
+	 * @throws CertificateAuthorityException
+	 * 			If emission could not be started.
+	 */
+	public <P extends CertificateProfile> Future<Void> engineSignedCertsAsync(
+			Collection<? extends P> profiles, Certificate issuerCert,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException
+	{
+		return doneEach(profiles, issuerCert, handler);
+	}
+	
+	/*
+	 * Runs the given emission on the calling thread and notifies the handler.
+	 */
+	private static <A> Future<Certificate> done(Callable<Certificate> emission,
+			A attachment, CompletionHandler<Certificate, ? super A> handler)
+	{
+		FutureTask<Certificate> task = new FutureTask<>(emission);
+		task.run();
+		if (handler != null)
+			try
+			{
+				handler.completed(task.get(), attachment);
+			}
+			catch (ExecutionException exception)
+			{
+				handler.failed(exception.getCause(), attachment);
+			}
+			catch (InterruptedException exception)
+			{
+				// Task is already done
+				Thread.currentThread().interrupt();
+			}
+		return task;
+	}
+	
+	/*
+	 * Runs the emission of all the given profiles on the calling thread and
+	 * notifies the handler for each one.
+	 */
+	private <P extends CertificateProfile> Future<Void> doneEach(
+			final Collection<? extends P> profiles,
+			final Certificate issuerCert,
+			final CompletionHandler<Certificate, ? super P> handler)
+	{
+		FutureTask<Void> task = new FutureTask<>(new Callable<Void>()
+		{
+			@Override
+			public Void call()
+			{
+				RuntimeException handlerFailure = null;
+				for (P profile : profiles)
+				{
+					Certificate cert = null;
+					CertificateAuthorityException failure = null;
+					try
+					{
+						cert = issuerCert == null ? engineSignedCert(profile)
+								: engineSignedCert(profile, issuerCert);
+					}
+					catch (CertificateAuthorityException exception)
+					{
+						failure = exception;
+					}
+					catch (Exception exception)
+					{
+						// Engine failures must not stop the other profiles
+						failure = new CertificateAuthorityException(exception);
+					}
+					
+					// Neither do handler failures, first one fails the task
+					try
+					{
+						if (failure == null)
+							handler.completed(cert, profile);
+						else
+							handler.failed(failure, profile);
+					}
+					catch (RuntimeException exception)
+					{
+						if (handlerFailure == null)
+							handlerFailure = exception;
+					}
+				}
+				if (handlerFailure != null)
+					throw handlerFailure;
+				return null;
+			}
+		});
+		task.run();
+		return task;
+	}
 }
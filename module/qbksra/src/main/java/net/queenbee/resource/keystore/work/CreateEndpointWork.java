@@ -23,20 +23,28 @@ import java.util.logging.Logger;
 
 import javax.resource.spi.work.Work;
 
-import net.queenbee.asn1.ASN1Class;
-import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.io.BERDecoder;
+import net.queenbee.asn1.io.BERDecodingPolicy;
 import net.queenbee.asn1.io.BEREncodingException;
-import net.queenbee.asn1.io.BERInputStream;
+import net.queenbee.resource.keystore.asn1.Login;
 import net.queenbee.resource.keystore.util.Util;
 
 public class CreateEndpointWork
 implements Work
 {
+	private static final int MAX_LOGIN_DEPTH = 2;
+	private static final int MAX_LOGIN_LENGTH = 4096;
+	private static final int MAX_LOGIN_FIELD_LENGTH = 1024;
+	private static final int LOGIN_TIMEOUT = 10000;
+	
 	private static final Logger logger;
+	private static final BERDecodingPolicy loginPolicy;
 	
 	static
 	{
 		logger = Util.getPackageLogger();
+		loginPolicy = new BERDecodingPolicy(MAX_LOGIN_DEPTH, MAX_LOGIN_LENGTH,
+				MAX_LOGIN_FIELD_LENGTH, LOGIN_TIMEOUT);
 	}
 	
 	private PortWork portWork;
@@ -71,45 +79,25 @@ implements Work
 	private void createEndpointWork()
 	throws IOException
 	{
-		try (BERInputStream in = new BERInputStream(socket.getInputStream()))
+		try
 		{
-			String listenerName = null;
-			String keyStoreName = null;
-			char[] password = null;
-			
-			ASN1Tag tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_SEQUENCE, true)))
+			int soTimeout = socket.getSoTimeout();
+			socket.setSoTimeout(LOGIN_TIMEOUT);
+			BERDecoder d = BERDecoder.read(socket.getInputStream(),
+					loginPolicy);
+			socket.setSoTimeout(soTimeout);
+			d.next();
+			if (!Login.matches(d))
 				throw new IOException("Bad login sequence");
 			
-			tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_IA5_STRING, false)))
-				throw new IOException("Bad listener name type");
-			listenerName = in.readIA5String();
-			if (listenerName.isEmpty())
+			Login login = Login.decode(d);
+			if (login.listenerName.isEmpty())
 				throw new IOException("Listener name is empty");
-			in.skip();
-			
-			tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_IA5_STRING, false)))
-				throw new IOException("Bad keystore name type");
-			keyStoreName = in.readIA5String();
-			if (keyStoreName.isEmpty())
+			if (login.keyStoreName.isEmpty())
 				throw new IOException("Keystore name is empty");
-			in.skip();
-			
-			tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_IA5_STRING, false)))
-				throw new IOException("Bad password type");
-			password = in.readIA5String().toCharArray();
-			in.skip();
 			
-			in.skip();
-			portWork.createEndpointWork(listenerName, keyStoreName, password,
-					socket);
+			portWork.createEndpointWork(login.listenerName,
+					login.keyStoreName, login.password.toCharArray(), socket);
 		}
 		catch (BEREncodingException exception)
 		{
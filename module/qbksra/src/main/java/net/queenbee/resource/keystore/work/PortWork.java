@@ -18,7 +18,6 @@
 package net.queenbee.resource.keystore.work;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
@@ -35,6 +34,7 @@ import net.queenbee.asn1.ASN1Class;
 import net.queenbee.asn1.ASN1Tag;
 import net.queenbee.asn1.io.BEREncodingException;
 import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.asn1.io.CodecPool;
 import net.queenbee.resource.keystore.util.Util;
 
 public class PortWork
@@ -43,10 +43,28 @@ implements Work
 	private static final Logger logger;
 	
 	private static final int CODE_UNAVAILABLE_LISTENER = 1;
+	private static final int OUTPUT_POOL_SIZE = 4;
+	
+	private static final CodecPool<BEROutputStream> outputPool;
 	
 	static
 	{
 		logger = Util.getPackageLogger();
+		outputPool = new CodecPool<BEROutputStream>(OUTPUT_POOL_SIZE)
+		{
+			@Override
+			protected BEROutputStream create()
+			{
+				return new BEROutputStream(null);
+			}
+			
+			@Override
+			protected void clear(BEROutputStream out)
+			throws IOException
+			{
+				out.reset(null);
+			}
+		};
 	}
 	
 	private WorkManager workManager;
@@ -152,25 +170,37 @@ implements Work
 			Socket socket)
 	throws IOException
 	{
-		try (BEROutputStream out = new BEROutputStream(
-				socket.getOutputStream()))
+		BEROutputStream out = outputPool.take();
+		try
 		{
+			out.reset(socket.getOutputStream());
+			
 			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
 					true));
 			
-			out.writeInteger(BigInteger.valueOf(CODE_UNAVAILABLE_LISTENER));
+			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER,
+					false));
+			out.writeInteger(CODE_UNAVAILABLE_LISTENER);
 			out.conclude(true);
 			
 			StringBuilder msg = new StringBuilder();
 			msg.append("Unavailable listener ").append(listenerName);
+			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_IA5_STRING, false));
 			out.writeIA5String(msg.toString());
 			out.conclude(true);
 			
 			out.conclude(true);
+			out.flush();
 		}
 		catch (IOException | BEREncodingException exception)
 		{
 			logger.severe(exception.getMessage());
 		}
+		finally
+		{
+			outputPool.release(out);
+			socket.close();
+		}
 	}
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ package net.queenbee.security;
 import java.security.Provider;
 
 import net.queenbee.security.cert.X509CertificateAuthorityService;
+import net.queenbee.security.cert.X509CertificateFactoryService;
 
 public final class QueenBeeProvider
 extends Provider
@@ -33,6 +34,7 @@ extends Provider
 	{
 		super(NAME, VERSION, providerInfo());
 		putService(new X509CertificateAuthorityService(this));
+		putService(new X509CertificateFactoryService(this));
 		putService(new JKSPKeyStoreService(this));
 		// TODO putService(new PKCS10CertificateRequestFactoryService(this));
 	}
@@ -42,8 +44,9 @@ extends Provider
 		StringBuilder sb = new StringBuilder();
 		sb.append("Queen Bee provider v");
 		sb.append(VERSION);
-		sb.append(", implementing X.509 Certificate Authority services and ");
-		sb.append("XML and XRKS KeyStore");
+		sb.append(", implementing X.509 Certificate Authority, lazy X.509 ");
+		sb.append("Certificate Factory (QBX509) services and XML and XRKS ");
+		sb.append("KeyStore");
 		return sb.toString();
 	}
 }
\ No newline at end of file
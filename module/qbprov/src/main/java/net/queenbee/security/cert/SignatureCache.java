@@ -0,0 +1,109 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Verification engines held per thread and keyed by provider and
+ * algorithm, so provider lookup is done once per thread instead of once per
+ * certificate. Engines are initialized again on every retrieval. Signing
+ * engines are not held here, since they would keep private keys reachable
+ * from every thread which signed; see SigningEngines.
+ */
+class SignatureCache
+{
+	private static final String DEFAULT_PROVIDER = "";
+	
+	private static final ThreadLocal<Map<String, Map<String, Signature>>>
+			engines;
+	
+	static
+	{
+		engines = new ThreadLocal<Map<String, Map<String, Signature>>>()
+		{
+			@Override
+			protected Map<String, Map<String, Signature>> initialValue()
+			{
+				return new HashMap<>();
+			}
+		};
+	}
+	
+	private SignatureCache()
+	{
+	}
+	
+	public static Signature verification(String algorithm, String provider,
+			PublicKey key)
+	throws NoSuchAlgorithmException, NoSuchProviderException,
+			InvalidKeyException
+	{
+		if (provider == null)
+			return verification(algorithm, key);
+		
+		Map<String, Signature> algorithms = algorithms(provider);
+		Signature signature = algorithms.get(algorithm);
+		if (signature == null)
+		{
+			signature = Signature.getInstance(algorithm, provider);
+			algorithms.put(algorithm, signature);
+		}
+		signature.initVerify(key);
+		return signature;
+	}
+	
+	private static Signature verification(String algorithm, PublicKey key)
+	throws NoSuchAlgorithmException, InvalidKeyException
+	{
+		Map<String, Signature> algorithms = algorithms(DEFAULT_PROVIDER);
+		Signature signature = algorithms.get(algorithm);
+		if (signature != null)
+			try
+			{
+				signature.initVerify(key);
+				return signature;
+			}
+			catch (InvalidKeyException exception)
+			{
+				// Engine may be bound to the provider of a former key
+			}
+		signature = Signature.getInstance(algorithm);
+		signature.initVerify(key);
+		algorithms.put(algorithm, signature);
+		return signature;
+	}
+	
+	private static Map<String, Signature> algorithms(String provider)
+	{
+		Map<String, Map<String, Signature>> providers = engines.get();
+		Map<String, Signature> algorithms = providers.get(provider);
+		if (algorithms == null)
+		{
+			algorithms = new HashMap<>();
+			providers.put(provider, algorithms);
+		}
+		return algorithms;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Signature engines initialized once with the private key of a certificate
+ * authority and kept by algorithm for reuse, since signing leaves an engine
+ * initialized with the same key. Engines belong to the authority instance,
+ * so the key is never left reachable from the threads which signed with it.
+ * Idle engines are at most as many as concurrent signers have ever been.
+ */
+class SigningEngines
+{
+	private PrivateKey privateKey;
+	private ConcurrentMap<String, Queue<Signature>> idle;
+	
+	public SigningEngines(PrivateKey privateKey)
+	{
+		this.privateKey = privateKey;
+		idle = new ConcurrentHashMap<>();
+	}
+	
+	public void sign(X509CertificateV3 cert)
+	throws GeneralSecurityException
+	{
+		String algorithm = cert.getSigAlgName();
+		Signature signature = take(algorithm);
+		cert.sign(signature);
+		
+		// Engines which failed are discarded, since their state is unknown
+		engines(algorithm).offer(signature);
+	}
+	
+	private Signature take(String algorithm)
+	throws NoSuchAlgorithmException, InvalidKeyException
+	{
+		Signature signature = engines(algorithm).poll();
+		if (signature == null)
+		{
+			signature = Signature.getInstance(algorithm);
+			signature.initSign(privateKey);
+		}
+		return signature;
+	}
+	
+	private Queue<Signature> engines(String algorithm)
+	{
+		Queue<Signature> engines = idle.get(algorithm);
+		if (engines == null)
+		{
+			engines = new ConcurrentLinkedQueue<>();
+			Queue<Signature> current = idle.putIfAbsent(algorithm, engines);
+			if (current != null)
+				engines = current;
+		}
+		return engines;
+	}
+}
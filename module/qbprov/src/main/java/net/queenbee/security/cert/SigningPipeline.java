@@ -0,0 +1,235 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.nio.channels.CompletionHandler;
+import java.security.cert.Certificate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Certificate emission in three stages: TBS encoding, signing and final
+ * encoding. Encoding stages run on one bounded pool and signing on
+ * another, so a slow signature never holds an encoding thread. Only the
+ * first stage may be rejected; following ones run on the thread which
+ * concluded the previous stage when their pool is full.
+ */
+class SigningPipeline
+{
+	private static final int QUEUE_CAPACITY = 1024;
+	
+	private static final Executor encoders;
+	private static final Executor signers;
+	
+	static
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		encoders = pool("queenbee-encoder-", threads);
+		signers = pool("queenbee-signer-", threads);
+	}
+	
+	private SigningPipeline()
+	{
+	}
+	
+	public static <A> Future<Certificate> submit(
+			Callable<X509CertificateV3> builder, SigningEngines engines,
+			A attachment, CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		Emission<A> emission = new Emission<>(builder, engines, attachment,
+				handler);
+		try
+		{
+			encoders.execute(emission.encodingStage());
+			return emission;
+		}
+		catch (RejectedExecutionException exception)
+		{
+			throw new CertificateAuthorityException(
+					"Too many pending certificates", exception);
+		}
+	}
+	
+	private static void execute(Executor executor, Runnable stage)
+	{
+		try
+		{
+			executor.execute(stage);
+		}
+		catch (RejectedExecutionException exception)
+		{
+			stage.run();
+		}
+	}
+	
+	private static Executor pool(final String prefix, int threads)
+	{
+		ThreadFactory factory = new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, prefix
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+				threads, 60l, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), factory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	private static class Emission<A>
+	extends FutureTask<Certificate>
+	{
+		private Callable<X509CertificateV3> builder;
+		private SigningEngines engines;
+		private A attachment;
+		private CompletionHandler<Certificate, ? super A> handler;
+		private X509CertificateV3 cert;
+		
+		public Emission(Callable<X509CertificateV3> builder,
+				SigningEngines engines, A attachment,
+				CompletionHandler<Certificate, ? super A> handler)
+		{
+			super(new Callable<Certificate>()
+			{
+				@Override
+				public Certificate call()
+				{
+					throw new IllegalStateException("Emission is staged");
+				}
+			});
+			this.builder = builder;
+			this.engines = engines;
+			this.attachment = attachment;
+			this.handler = handler;
+			cert = null;
+		}
+		
+		public Runnable encodingStage()
+		{
+			return new Stage()
+			{
+				@Override
+				protected void perform()
+				throws Exception
+				{
+					cert = builder.call();
+					cert.getTBSCertificate();
+					execute(signers, signingStage());
+				}
+			};
+		}
+		
+		private Runnable signingStage()
+		{
+			return new Stage()
+			{
+				@Override
+				protected void perform()
+				throws Exception
+				{
+					engines.sign(cert);
+					execute(encoders, assemblyStage());
+				}
+			};
+		}
+		
+		private Runnable assemblyStage()
+		{
+			return new Stage()
+			{
+				@Override
+				protected void perform()
+				throws Exception
+				{
+					cert.getEncoded();
+					set(cert);
+				}
+			};
+		}
+		
+		@Override
+		protected void done()
+		{
+			if (handler == null)
+				return;
+			
+			if (isCancelled())
+				handler.failed(new CancellationException(), attachment);
+			else
+				try
+				{
+					handler.completed(get(), attachment);
+				}
+				catch (ExecutionException exception)
+				{
+					handler.failed(exception.getCause(), attachment);
+				}
+				catch (InterruptedException exception)
+				{
+					// Emission is already done
+					Thread.currentThread().interrupt();
+				}
+		}
+		
+		private abstract class Stage
+		implements Runnable
+		{
+			@Override
+			public void run()
+			{
+				if (isDone())
+					return;
+				
+				try
+				{
+					perform();
+				}
+				catch (CertificateAuthorityException exception)
+				{
+					setException(exception);
+				}
+				catch (Exception exception)
+				{
+					setException(new CertificateAuthorityException(exception));
+				}
+			}
+			
+			protected abstract void perform()
+			throws Exception;
+		}
+	}
+}
\ No newline at end of file
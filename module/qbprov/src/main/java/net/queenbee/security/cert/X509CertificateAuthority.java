@@ -17,31 +17,46 @@
 
 package net.queenbee.security.cert;
 
+import java.nio.channels.CompletionHandler;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.security.auth.x500.X500Principal;
 
+import net.queenbee.asn1.BitString;
+
 public class X509CertificateAuthority
 extends CertificateAuthoritySpi
 {
-	private PrivateKey privateKey;
+	private static final int TASKS_PER_WORKER = 4;
+	
+	private static final ForkJoinPool signingPool = new ForkJoinPool();
+	
+	private SigningEngines signers;
 	
 	public X509CertificateAuthority()
 	{
-		privateKey = null;
+		signers = null;
 	}
 	
 	@Override
 	public void engineInit(PrivateKey privateKey)
 	throws CertificateAuthorityException
 	{
-		this.privateKey = privateKey;
+		signers = privateKey == null ? null : new SigningEngines(privateKey);
 	}
 
 	@Override
@@ -49,7 +64,8 @@ extends CertificateAuthoritySpi
 	throws CertificateAuthorityException
 	{
 		X509CertificateProfile prof = profileCast(profile);
-		return signedCert(prof, prof.getSubject(), prof.getSubjectUniqueID());
+		return signedCert(prof, prof.getSubject(),
+				BitString.valueOf(prof.getSubjectUniqueID()));
 	}
 
 	@Override
@@ -60,16 +76,190 @@ extends CertificateAuthoritySpi
 		X509CertificateProfile prof = profileCast(profile);
 		X509Certificate cert = certificateCast(issuerCert);
 		return signedCert(prof, cert.getSubjectX500Principal(),
-				cert.getSubjectUniqueID());
+				BitString.valueOf(cert.getSubjectUniqueID()));
+	}
+	
+	@Override
+	public List<Certificate> engineSignedCerts(
+			Collection<? extends CertificateProfile> profiles)
+	throws CertificateAuthorityException
+	{
+		return signedCerts(profilesCast(profiles), null);
+	}
+	
+	@Override
+	public List<Certificate> engineSignedCerts(
+			Collection<? extends CertificateProfile> profiles,
+			Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		return signedCerts(profilesCast(profiles),
+				certificateCast(issuerCert));
+	}
+	
+	@Override
+	public <P extends CertificateProfile> Future<Void> engineSignedCertsAsync(
+			Collection<? extends P> profiles,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException
+	{
+		return signedCertsAsync(profiles, null, handler);
+	}
+	
+	@Override
+	public <P extends CertificateProfile> Future<Void> engineSignedCertsAsync(
+			Collection<? extends P> profiles, Certificate issuerCert,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException
+	{
+		return signedCertsAsync(profiles, certificateCast(issuerCert),
+				handler);
+	}
+	
+	@Override
+	public <A> Future<Certificate> engineSignedCertAsync(
+			CertificateProfile profile, A attachment,
+			CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		X509CertificateProfile prof = profileCast(profile);
+		return signedCertAsync(prof, prof.getSubject(),
+				BitString.valueOf(prof.getSubjectUniqueID()), attachment,
+				handler);
+	}
+	
+	@Override
+	public <A> Future<Certificate> engineSignedCertAsync(
+			CertificateProfile profile, Certificate issuerCert, A attachment,
+			CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		X509CertificateProfile prof = profileCast(profile);
+		X509Certificate cert = certificateCast(issuerCert);
+		return signedCertAsync(prof, cert.getSubjectX500Principal(),
+				BitString.valueOf(cert.getSubjectUniqueID()), attachment,
+				handler);
+	}
+	
+	public X509CertificateTemplate compileTemplate(
+			X509CertificateProfile profile)
+	throws CertificateAuthorityException
+	{
+		return compileTemplate(profile, null,
+				BitString.valueOf(profile.getSubjectUniqueID()));
+	}
+	
+	public X509CertificateTemplate compileTemplate(
+			X509CertificateProfile profile, Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		X509Certificate cert = certificateCast(issuerCert);
+		return compileTemplate(profile, cert.getSubjectX500Principal(),
+				BitString.valueOf(cert.getSubjectUniqueID()));
 	}
 	
 	private X509Certificate signedCert(X509CertificateProfile profile,
-			X500Principal issuerPrincipal, boolean[] issuerUniqueID)
+			X500Principal issuerPrincipal, BitString issuerUniqueID)
 	throws CertificateAuthorityException
 	{
-		if (privateKey == null)
+		if (signers == null)
 			throw new CertificateAuthorityException("Not initialized");
 		
+		X509CertificateV3 cert = unsignedCert(profile, issuerPrincipal,
+				issuerUniqueID);
+		try
+		{
+			signers.sign(cert);
+			return cert;
+		}
+		catch (Exception exception)
+		{
+			throw new CertificateAuthorityException(exception);
+		}
+	}
+	
+	private <A> Future<Certificate> signedCertAsync(
+			final X509CertificateProfile profile,
+			final X500Principal issuerPrincipal,
+			final BitString issuerUniqueID, A attachment,
+			CompletionHandler<Certificate, ? super A> handler)
+	throws CertificateAuthorityException
+	{
+		if (signers == null)
+			throw new CertificateAuthorityException("Not initialized");
+		
+		return SigningPipeline.submit(new Callable<X509CertificateV3>()
+		{
+			@Override
+			public X509CertificateV3 call()
+			throws CertificateAuthorityException
+			{
+				return unsignedCert(profile, issuerPrincipal,
+						issuerUniqueID);
+			}
+		}, signers, attachment, handler);
+	}
+	
+	private List<Certificate> signedCerts(
+			List<X509CertificateProfile> profiles, X509Certificate issuerCert)
+	throws CertificateAuthorityException
+	{
+		if (signers == null)
+			throw new CertificateAuthorityException("Not initialized");
+		
+		Batch batch = new Batch(profiles, issuerCert, null);
+		signingPool.invoke(batch.root);
+		
+		Exception failure = batch.failure.get();
+		if (failure instanceof CertificateAuthorityException)
+			throw (CertificateAuthorityException) failure;
+		if (failure != null)
+			throw new CertificateAuthorityException(failure);
+		return Arrays.<Certificate>asList(batch.certs);
+	}
+	
+	private <P extends CertificateProfile> Future<Void> signedCertsAsync(
+			Collection<? extends P> profiles, X509Certificate issuerCert,
+			CompletionHandler<Certificate, ? super P> handler)
+	throws CertificateAuthorityException
+	{
+		if (signers == null)
+			throw new CertificateAuthorityException("Not initialized");
+		
+		// Handler is only given the profiles of the collection, which are P
+		@SuppressWarnings("unchecked")
+		CompletionHandler<Certificate, Object> h =
+				(CompletionHandler<Certificate, Object>) handler;
+		Batch batch = new Batch(profilesCast(profiles), issuerCert, h);
+		signingPool.execute(batch.root);
+		return batch.root;
+	}
+	
+	private X509CertificateTemplate compileTemplate(
+			X509CertificateProfile profile, X500Principal issuerPrincipal,
+			BitString issuerUniqueID)
+	throws CertificateAuthorityException
+	{
+		if (signers == null)
+			throw new CertificateAuthorityException("Not initialized");
+		
+		// Prototype subject, and issuer of self-issued templates, are
+		// replaced on every emission
+		X500Principal placeholder = new X500Principal("");
+		X509CertificateV3 prototype = unsignedCert(profile,
+				issuerPrincipal == null ? placeholder : issuerPrincipal,
+				issuerUniqueID);
+		if (profile.getSubject() == null)
+			prototype.setSubject(placeholder);
+		return new X509CertificateTemplate(profile, issuerPrincipal,
+				issuerUniqueID, prototype, signers);
+	}
+	
+	private static X509CertificateV3 unsignedCert(
+			X509CertificateProfile profile, X500Principal issuerPrincipal,
+			BitString issuerUniqueID)
+	throws CertificateAuthorityException
+	{
 		try
 		{
 			PublicKey publicKey = profile.getPublicKey();
@@ -81,7 +271,8 @@ extends CertificateAuthoritySpi
 			cert.setNotAfter(profile.getNotAfter());
 			cert.setDigestAlgorithm(profile.getDigestAlgorithm());
 			cert.setIssuerUniqueID(issuerUniqueID);
-			cert.setSubjectUniqueID(profile.getSubjectUniqueID());
+			cert.setSubjectUniqueID(BitString.valueOf(
+					profile.getSubjectUniqueID()));
 			
 			Set<X509ExtensionEntry> extensions = new HashSet<>();
 			
@@ -92,7 +283,7 @@ extends CertificateAuthoritySpi
 						basicConstraints, true));
 			
 			// Key usage
-			boolean[] keyUsage = profile.getKeyUsage();
+			BitString keyUsage = BitString.valueOf(profile.getKeyUsage());
 			if (keyUsage != null)
 				extensions.add(X509ExtensionEntries.createKeyUsage(keyUsage,
 						true));
@@ -107,7 +298,6 @@ extends CertificateAuthoritySpi
 			cert.setExtensions(extensions);
 			
 			cert.setSigAlgParams(profile.getSigAlgParams());
-			cert.sign(privateKey);
 			return cert;
 		}
 		catch (Exception exception)
@@ -116,6 +306,16 @@ extends CertificateAuthoritySpi
 		}
 	}
 	
+	private static List<X509CertificateProfile> profilesCast(
+			Collection<? extends CertificateProfile> profiles)
+	throws CertificateAuthorityException
+	{
+		List<X509CertificateProfile> profs = new ArrayList<>(profiles.size());
+		for (CertificateProfile profile : profiles)
+			profs.add(profileCast(profile));
+		return profs;
+	}
+	
 	private static X509CertificateProfile profileCast(
 			CertificateProfile profile)
 	throws CertificateAuthorityException
@@ -142,4 +342,162 @@ extends CertificateAuthoritySpi
 		sb.append(" is not supported by this certificate authority");
 		throw new CertificateAuthorityException(sb.toString());
 	}
+	
+	/*
+	 * Profiles being signed by a tree of tasks. Certificates are either
+	 * collected, stopping at the first failure, or streamed to a handler.
+	 * Handler failures do not stop the batch, first one fails the root task
+	 * once all profiles have been handled.
+	 */
+	private class Batch
+	{
+		public final List<X509CertificateProfile> profiles;
+		public final X500Principal issuerPrincipal;
+		public final BitString issuerUniqueID;
+		public final CompletionHandler<Certificate, Object> handler;
+		public final X509Certificate[] certs;
+		public final AtomicReference<Exception> failure;
+		public final AtomicReference<RuntimeException> handlerFailure;
+		public final SigningTask root;
+		
+		public Batch(List<X509CertificateProfile> profiles,
+				X509Certificate issuerCert,
+				CompletionHandler<Certificate, Object> handler)
+		{
+			this.profiles = profiles;
+			if (issuerCert == null)
+			{
+				issuerPrincipal = null;
+				issuerUniqueID = null;
+			}
+			else
+			{
+				issuerPrincipal = issuerCert.getSubjectX500Principal();
+				issuerUniqueID = BitString.valueOf(
+						issuerCert.getSubjectUniqueID());
+			}
+			this.handler = handler;
+			certs = handler == null ? new X509Certificate[profiles.size()]
+					: null;
+			failure = new AtomicReference<>();
+			handlerFailure = new AtomicReference<>();
+			
+			int size = profiles.size();
+			int tasks = signingPool.getParallelism() * TASKS_PER_WORKER;
+			int threshold = Math.max(1, (size + tasks - 1) / tasks);
+			root = new SigningTask(this, 0, size, threshold);
+		}
+		
+		public boolean isStopped()
+		{
+			return failure.get() != null || root.isCancelled();
+		}
+		
+		public void signed(int i, X509Certificate cert)
+		{
+			if (handler == null)
+				certs[i] = cert;
+			else
+				try
+				{
+					handler.completed(cert, profiles.get(i));
+				}
+				catch (RuntimeException exception)
+				{
+					handlerFailure.compareAndSet(null, exception);
+				}
+		}
+		
+		public void failed(int i, Exception exception)
+		{
+			if (handler == null)
+				failure.compareAndSet(null, exception);
+			else
+			{
+				Exception cause = exception
+						instanceof CertificateAuthorityException ? exception
+						: new CertificateAuthorityException(exception);
+				try
+				{
+					handler.failed(cause, profiles.get(i));
+				}
+				catch (RuntimeException handlerException)
+				{
+					handlerFailure.compareAndSet(null, handlerException);
+				}
+			}
+		}
+		
+		public void checkHandler()
+		{
+			RuntimeException exception = handlerFailure.get();
+			if (exception != null)
+				throw exception;
+		}
+	}
+	
+	/*
+	 * Signs a range of the batch, splitting it while it exceeds the
+	 * threshold. Leaf tasks sign with engines of this authority, which are
+	 * initialized once and reused by all of them.
+	 */
+	private class SigningTask
+	extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4871962037594113521L;
+		
+		private Batch batch;
+		private int from;
+		private int to;
+		private int threshold;
+		
+		public SigningTask(Batch batch, int from, int to, int threshold)
+		{
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from > threshold)
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new SigningTask(batch, from, mid, threshold),
+						new SigningTask(batch, mid, to, threshold));
+			}
+			else
+				sign();
+			
+			if (this == batch.root)
+				batch.checkHandler();
+		}
+		
+		private void sign()
+		{
+			for (int i = from; i < to && !batch.isStopped(); ++i)
+			{
+				X509CertificateV3 cert;
+				try
+				{
+					X509CertificateProfile profile = batch.profiles.get(i);
+					cert = batch.issuerPrincipal == null
+							? unsignedCert(profile, profile.getSubject(),
+									BitString.valueOf(
+											profile.getSubjectUniqueID()))
+							: unsignedCert(profile, batch.issuerPrincipal,
+									batch.issuerUniqueID);
+					signers.sign(cert);
+				}
+				catch (Exception exception)
+				{
+					batch.failed(i, exception);
+					continue;
+				}
+				batch.signed(i, cert);
+			}
+		}
+	}
 }
\ No newline at end of file
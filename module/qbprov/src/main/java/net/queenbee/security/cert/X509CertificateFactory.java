@@ -0,0 +1,103 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.cert.CRL;
+import java.security.cert.CRLException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactorySpi;
+import java.security.cert.CertificateParsingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.queenbee.asn1.io.BERDecoder;
+import net.queenbee.asn1.io.BEREncodingException;
+
+/*
+ * DER encoded X.509 v3 certificates, wrapped without decoding their fields
+ * until they are read. Structure, version and algorithms are checked when
+ * a certificate is generated, while a malformed field is reported by the
+ * first getter reading it with an IllegalStateException.
+ */
+public class X509CertificateFactory
+extends CertificateFactorySpi
+{
+	private static final int MAX_CERTIFICATE_LENGTH = 1 << 20;
+	
+	public X509CertificateFactory()
+	{
+	}
+	
+	@Override
+	public Certificate engineGenerateCertificate(InputStream inStream)
+	throws CertificateException
+	{
+		try
+		{
+			BERDecoder d = BERDecoder.read(inStream, MAX_CERTIFICATE_LENGTH);
+			d.next();
+			return X509CertificateV3.decode(d.readEncoded());
+		}
+		catch (IOException | BEREncodingException exception)
+		{
+			throw new CertificateParsingException(exception);
+		}
+	}
+	
+	@Override
+	public Collection<? extends Certificate> engineGenerateCertificates(
+			InputStream inStream)
+	throws CertificateException
+	{
+		PushbackInputStream in = new PushbackInputStream(inStream);
+		List<Certificate> certs = new ArrayList<>();
+		try
+		{
+			int b;
+			while ((b = in.read()) >= 0)
+			{
+				in.unread(b);
+				certs.add(engineGenerateCertificate(in));
+			}
+			return certs;
+		}
+		catch (IOException exception)
+		{
+			throw new CertificateParsingException(exception);
+		}
+	}
+	
+	@Override
+	public CRL engineGenerateCRL(InputStream inStream)
+	throws CRLException
+	{
+		throw new CRLException("CRLs are not supported");
+	}
+	
+	@Override
+	public Collection<? extends CRL> engineGenerateCRLs(InputStream inStream)
+	throws CRLException
+	{
+		throw new CRLException("CRLs are not supported");
+	}
+}
\ No newline at end of file
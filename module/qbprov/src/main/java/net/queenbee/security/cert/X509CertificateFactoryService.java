@@ -0,0 +1,49 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.security.Provider;
+import java.security.Provider.Service;
+import java.util.Collections;
+
+/*
+ * Registered under its own algorithm name instead of the standard X.509
+ * one, since it does not honour the whole contract of that algorithm: PEM
+ * input, v1 and v2 certificates, CRLs and certification paths are not
+ * supported, and fields are validated when first read. Providers listed
+ * after this one keep serving standard X.509 certificate factories.
+ */
+public class X509CertificateFactoryService
+extends Service
+{
+	private static final String TYPE = "CertificateFactory";
+	private static final String ALGORITHM = "QBX509";
+	private static final String CLASSNAME = serviceClassName();
+	
+	public X509CertificateFactoryService(Provider provider)
+	{
+		super(provider, TYPE, ALGORITHM, CLASSNAME,
+				Collections.<String>emptyList(),
+				Collections.<String, String>emptyMap());
+	}
+	
+	private static String serviceClassName()
+	{
+		return X509CertificateFactory.class.getName();
+	}
+}
\ No newline at end of file
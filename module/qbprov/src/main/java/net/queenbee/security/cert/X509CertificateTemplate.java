@@ -0,0 +1,244 @@
+/*
+ * This file is part of QueenBee Project.
+ *
+ * QueenBee Project is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * QueenBee Project is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QueenBee Project.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.queenbee.security.cert;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import net.queenbee.asn1.BitString;
+import net.queenbee.asn1.io.ASN1Node;
+import net.queenbee.asn1.io.BEREncodingException;
+
+/*
+ * Certificates sharing everything but serial number, subject, public key
+ * and, optionally, validity start. Invariant fragments of the TBS
+ * certificate are taken from a prototype encoding once, and variable
+ * fields are spliced between them on every emission. Templates without
+ * issuer emit self-issued certificates, so subject is spliced as issuer
+ * too.
+ */
+public class X509CertificateTemplate
+{
+	private static final int TAG_INTEGER = 0x02;
+	private static final int TAG_SEQUENCE = 0x30;
+	
+	private SigningEngines signers;
+	private String keyAlgorithm;
+	private X500Principal issuer;
+	private Date notBefore;
+	private Date notAfter;
+	private String digestAlgorithm;
+	private BitString issuerUniqueID;
+	private BitString subjectUniqueID;
+	private Set<X509ExtensionEntry> extensions;
+	private AlgorithmParameters sigAlgParams;
+	
+	private byte[] version;
+	private byte[] signature;
+	private byte[] issuerName;
+	private byte[] validity;
+	private byte[] trailer;
+	
+	X509CertificateTemplate(X509CertificateProfile profile,
+			X500Principal issuer, BitString issuerUniqueID,
+			X509CertificateV3 prototype, SigningEngines signers)
+	throws CertificateAuthorityException
+	{
+		this.signers = signers;
+		keyAlgorithm = profile.getPublicKey().getAlgorithm();
+		this.issuer = issuer;
+		notBefore = profile.getNotBefore();
+		notAfter = profile.getNotAfter();
+		digestAlgorithm = profile.getDigestAlgorithm();
+		this.issuerUniqueID = issuerUniqueID;
+		subjectUniqueID = BitString.valueOf(profile.getSubjectUniqueID());
+		extensions = Collections.unmodifiableSet(new HashSet<>(
+				prototype.getExtensions()));
+		sigAlgParams = profile.getSigAlgParams();
+		
+		try
+		{
+			// Version, serial number, signature, issuer, validity, subject,
+			// subject public key info and optional trailing fields
+			byte[] tbs = prototype.getTBSCertificate();
+			ASN1Node node = ASN1Node.parse(tbs);
+			version = node.getChild(0).readEncoded();
+			signature = node.getChild(2).readEncoded();
+			issuerName = issuer == null ? null
+					: node.getChild(3).readEncoded();
+			validity = node.getChild(4).readEncoded();
+			int count = node.getChildCount();
+			trailer = count > 7 ? range(tbs, node.getChild(7),
+					node.getChild(count - 1)) : new byte[0];
+		}
+		catch (CertificateEncodingException | BEREncodingException
+				| RuntimeException exception)
+		{
+			// Runtime ones come from prototype fields which cannot be encoded
+			throw new CertificateAuthorityException(exception);
+		}
+	}
+	
+	public X500Principal getIssuer()
+	{
+		return issuer;
+	}
+	
+	public Date getNotBefore()
+	{
+		return notBefore;
+	}
+	
+	public Date getNotAfter()
+	{
+		return notAfter;
+	}
+	
+	public X509Certificate signedCert(BigInteger serialNumber,
+			X500Principal subject, PublicKey publicKey)
+	throws CertificateAuthorityException
+	{
+		return signedCert(serialNumber, subject, publicKey, notBefore,
+				notAfter, validity);
+	}
+	
+	public X509Certificate signedCert(BigInteger serialNumber,
+			X500Principal subject, PublicKey publicKey, Date notBefore)
+	throws CertificateAuthorityException
+	{
+		// Same validity length as the template
+		Date notAfter = new Date(notBefore.getTime()
+				+ (this.notAfter.getTime() - this.notBefore.getTime()));
+		try
+		{
+			return signedCert(serialNumber, subject, publicKey, notBefore,
+					notAfter, X509CertificateV3.encodeValidity(notBefore,
+							notAfter));
+		}
+		catch (CertificateEncodingException exception)
+		{
+			throw new CertificateAuthorityException(exception);
+		}
+	}
+	
+	private X509Certificate signedCert(BigInteger serialNumber,
+			X500Principal subject, PublicKey publicKey, Date notBefore,
+			Date notAfter, byte[] validity)
+	throws CertificateAuthorityException
+	{
+		if (!keyAlgorithm.equals(publicKey.getAlgorithm()))
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("Public key algorithm ");
+			sb.append(publicKey.getAlgorithm());
+			sb.append(" does not match template algorithm ");
+			sb.append(keyAlgorithm);
+			throw new CertificateAuthorityException(sb.toString());
+		}
+		
+		byte[] serial = serialNumber.toByteArray();
+		byte[] subj = subject.getEncoded();
+		byte[] iss = issuerName == null ? subj : issuerName;
+		byte[] spki = publicKey.getEncoded();
+		int length = version.length + 1 + lengthOctets(serial.length)
+				+ serial.length + signature.length + iss.length
+				+ validity.length + subj.length + spki.length
+				+ trailer.length;
+		byte[] tbs = new byte[1 + lengthOctets(length) + length];
+		int i = header(tbs, 0, TAG_SEQUENCE, length);
+		i = append(tbs, i, version);
+		i = header(tbs, i, TAG_INTEGER, serial.length);
+		i = append(tbs, i, serial);
+		i = append(tbs, i, signature);
+		i = append(tbs, i, iss);
+		i = append(tbs, i, validity);
+		i = append(tbs, i, subj);
+		i = append(tbs, i, spki);
+		append(tbs, i, trailer);
+		
+		X509CertificateV3 cert = new X509CertificateV3(publicKey);
+		cert.setIssuer(issuer == null ? subject : issuer);
+		cert.setSubject(subject);
+		cert.setSerialNumber(serialNumber);
+		cert.setNotBefore(notBefore);
+		cert.setNotAfter(notAfter);
+		cert.setDigestAlgorithm(digestAlgorithm);
+		cert.setIssuerUniqueID(issuerUniqueID);
+		cert.setSubjectUniqueID(subjectUniqueID);
+		cert.setExtensions(extensions);
+		cert.setSigAlgParams(sigAlgParams);
+		cert.setTBSCertificate(tbs);
+		try
+		{
+			signers.sign(cert);
+			return cert;
+		}
+		catch (Exception exception)
+		{
+			throw new CertificateAuthorityException(exception);
+		}
+	}
+	
+	private static byte[] range(byte[] bytes, ASN1Node first, ASN1Node last)
+	{
+		int end = last.getOffset() + last.getEncodedLength();
+		byte[] range = new byte[end - first.getOffset()];
+		System.arraycopy(bytes, first.getOffset(), range, 0, range.length);
+		return range;
+	}
+	
+	private static int lengthOctets(int length)
+	{
+		if (length < 0x80)
+			return 1;
+		int n = 1;
+		for (int l = length; l != 0; l >>>= 8)
+			++n;
+		return n;
+	}
+	
+	private static int header(byte[] bytes, int i, int tag, int length)
+	{
+		bytes[i++] = (byte) tag;
+		int n = lengthOctets(length);
+		if (n == 1)
+			bytes[i++] = (byte) length;
+		else
+		{
+			bytes[i++] = (byte) (0x80 | (n - 1));
+			for (int shift = (n - 2) * 8; shift >= 0; shift -= 8)
+				bytes[i++] = (byte) (length >>> shift);
+		}
+		return i;
+	}
+	
+	private static int append(byte[] bytes, int i, byte[] fragment)
+	{
+		System.arraycopy(fragment, 0, bytes, i, fragment.length);
+		return i + fragment.length;
+	}
+}
\ No newline at end of file
@@ -21,7 +21,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Principal;
@@ -35,7 +37,10 @@ import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -47,18 +52,43 @@ import javax.security.auth.x500.X500Principal;
 
 import net.queenbee.asn1.ASN1Class;
 import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
 import net.queenbee.asn1.OID;
+import net.queenbee.asn1.io.ASN1Node;
+import net.queenbee.asn1.io.BERDecoder;
 import net.queenbee.asn1.io.BEREncodingException;
-import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.asn1.io.DEROutputStream;
+import net.queenbee.asn1.io.OIDMatcher;
+import net.queenbee.asn1.io.TimeCodec;
+import net.queenbee.security.cert.asn1.Extension;
+import net.queenbee.security.cert.asn1.Time;
+import net.queenbee.security.cert.asn1.Validity;
 
 public class X509CertificateV3
 extends X509Certificate
 {
 	private static final int VERSION3 = 2;
-	private static final int TBS_BUF_SIZE = 48 * 1024;
-	private static final int ENCODE_BUF_SIZE = TBS_BUF_SIZE + 32 * 1024;
+	
+	// Fields decoded on first access
+	private static final int SERIAL_NUMBER = 0x01;
+	private static final int ISSUER = 0x02;
+	private static final int VALIDITY = 0x04;
+	private static final int SUBJECT = 0x08;
+	private static final int PUBLIC_KEY = 0x10;
+	private static final int UNIQUE_IDS = 0x20;
+	private static final int EXTENSIONS = 0x40;
+	private static final int ALL_FIELDS = 0x7f;
+	
+	// Fields derived from extensions on first access
+	private static final int KEY_USAGE = 0x80;
+	private static final int EXTENDED_KEY_USAGE = 0x100;
+	private static final int EXTENSION_USAGES = 0x180;
 	
 	private static final Map<String, OID> sigAlgs;
+	private static final String[] sigAlgNames;
+	private static final OIDMatcher sigAlgMatcher;
+	private static final String[] keyAlgNames;
+	private static final OIDMatcher keyAlgMatcher;
 	
 	static
 	{
@@ -66,22 +96,36 @@ extends X509Certificate
 		sigAlgs = new HashMap<String, OID>();
 		
 		OID pkcs1OID = new OID(usaOID, 113549, 1, 1);
-		sigAlgs.put("MD2withRSA", new OID(pkcs1OID, 2));
-		sigAlgs.put("MD5withRSA", new OID(pkcs1OID, 4));
-		sigAlgs.put("SHA1withRSA", new OID(pkcs1OID, 5));
-		sigAlgs.put("SHA224withRSA", new OID(pkcs1OID, 14));
-		sigAlgs.put("SHA256withRSA", new OID(pkcs1OID, 11));
-		sigAlgs.put("SHA384withRSA", new OID(pkcs1OID, 12));
-		sigAlgs.put("SHA512withRSA", new OID(pkcs1OID, 13));
+		sigAlgs.put("MD2withRSA", new OID(pkcs1OID, 2).intern());
+		sigAlgs.put("MD5withRSA", new OID(pkcs1OID, 4).intern());
+		sigAlgs.put("SHA1withRSA", new OID(pkcs1OID, 5).intern());
+		sigAlgs.put("SHA224withRSA", new OID(pkcs1OID, 14).intern());
+		sigAlgs.put("SHA256withRSA", new OID(pkcs1OID, 11).intern());
+		sigAlgs.put("SHA384withRSA", new OID(pkcs1OID, 12).intern());
+		sigAlgs.put("SHA512withRSA", new OID(pkcs1OID, 13).intern());
 		
-		sigAlgs.put("SHA1withDSA", new OID(usaOID, 10040, 4, 3));
+		sigAlgs.put("SHA1withDSA", new OID(usaOID, 10040, 4, 3).intern());
 		
 		OID signOID = new OID(usaOID, 10045, 4);
-		sigAlgs.put("SHA1withECDSA", new OID(signOID, 1));
-		sigAlgs.put("SHA224withECDSA", new OID(signOID, 3, 1));
-		sigAlgs.put("SHA256withECDSA", new OID(signOID, 3, 2));
-		sigAlgs.put("SHA384withECDSA", new OID(signOID, 3, 3));
-		sigAlgs.put("SHA512withECDSA", new OID(signOID, 3, 4));
+		sigAlgs.put("SHA1withECDSA", new OID(signOID, 1).intern());
+		sigAlgs.put("SHA224withECDSA", new OID(signOID, 3, 1).intern());
+		sigAlgs.put("SHA256withECDSA", new OID(signOID, 3, 2).intern());
+		sigAlgs.put("SHA384withECDSA", new OID(signOID, 3, 3).intern());
+		sigAlgs.put("SHA512withECDSA", new OID(signOID, 3, 4).intern());
+		
+		sigAlgNames = sigAlgs.keySet().toArray(new String[sigAlgs.size()]);
+		OID[] sigAlgOIDs = new OID[sigAlgNames.length];
+		for (int i = 0; i < sigAlgNames.length; ++i)
+			sigAlgOIDs[i] = sigAlgs.get(sigAlgNames[i]);
+		sigAlgMatcher = new OIDMatcher(sigAlgOIDs);
+		
+		keyAlgNames = new String[] {
+			"RSA", "DSA", "EC"
+		};
+		keyAlgMatcher = new OIDMatcher(
+				new OID(pkcs1OID, 1).intern(),
+				new OID(usaOID, 10040, 4, 1).intern(),
+				new OID(usaOID, 10045, 2, 1).intern());
 	}
 	
 	private PublicKey publicKey;
@@ -91,18 +135,20 @@ extends X509Certificate
 	private Date notBefore;
 	private Date notAfter;
 	private String digestAlgorithm;
-	private boolean[] issuerUniqueID;
-	private boolean[] subjectUniqueID;
+	private String sigAlgName;
+	private BitString issuerUniqueID;
+	private BitString subjectUniqueID;
 	private Integer basicConstraints;
-	private boolean keyUsageLoaded;
-	private boolean[] keyUsage;
-	private boolean extendedKeyUsageLoaded;
+	private BitString keyUsage;
 	private List<String> extendedKeyUsage;
 	private Set<X509ExtensionEntry> extensions;
 	private AlgorithmParameters sigAlgParams;
 	private byte[] signatureBytes;
+	private byte[] sigAlgParamsEncoding;
 	private byte[] encoded;
 	private byte[] tbsCertificate;
+	private ASN1Node tbsNode;
+	private volatile int pending;
 	
 	public X509CertificateV3(PublicKey publicKey)
 	{
@@ -113,18 +159,65 @@ extends X509Certificate
 		notBefore = new Date();
 		notAfter = new Date();
 		digestAlgorithm = null;
+		sigAlgName = null;
 		issuerUniqueID = null;
 		subjectUniqueID = null;
 		basicConstraints = null;
-		keyUsageLoaded = false;
 		keyUsage = null;
-		extendedKeyUsageLoaded = false;
 		extendedKeyUsage = null;
 		extensions = new HashSet<X509ExtensionEntry>();
 		sigAlgParams = null;
+		sigAlgParamsEncoding = null;
 		signatureBytes = null;
 		encoded = null;
 		tbsCertificate = null;
+		tbsNode = null;
+		pending = EXTENSION_USAGES;
+	}
+	
+	private X509CertificateV3(byte[] encoded)
+	throws CertificateParsingException
+	{
+		this((PublicKey) null);
+		try
+		{
+			// Certificate, signature algorithm and signature value
+			ASN1Node cert = ASN1Node.parse(encoded);
+			if (!cert.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true)
+					|| cert.getChildCount() != 3)
+				throw new CertificateParsingException("Not a certificate");
+			
+			tbsNode = cert.getChild(0);
+			checkTBSCertificate(tbsNode);
+			if (!tbsNode.getChild(2).getEncoded().equals(
+					cert.getChild(1).getEncoded()))
+				throw new CertificateParsingException(
+						"Signature algorithm mismatch");
+			decodeSignatureAlgorithm(cert.getChild(1));
+			BERDecoder d = cert.getChild(2).decoder();
+			if (!d.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING, false))
+				throw new CertificateParsingException(
+						"Signature value expected");
+			BitString signature = d.readBitString();
+			if (signature.getPadding() != 0)
+				throw new CertificateParsingException(
+						"Signature value is not an octet string");
+			signatureBytes = signature.getBytes();
+			
+			tbsCertificate = tbsNode.readEncoded();
+			this.encoded = encoded;
+			pending = ALL_FIELDS | EXTENSION_USAGES;
+		}
+		catch (BEREncodingException exception)
+		{
+			throw new CertificateParsingException(exception);
+		}
+	}
+	
+	public static X509CertificateV3 decode(byte[] encoded)
+	throws CertificateParsingException
+	{
+		return new X509CertificateV3(encoded);
 	}
 	
 	@Override
@@ -136,83 +229,111 @@ extends X509Certificate
 	@Override
 	public PublicKey getPublicKey()
 	{
+		load(PUBLIC_KEY);
 		return publicKey;
 	}
 
 	@Override
 	public Principal getIssuerDN()
 	{
+		return getIssuerX500Principal();
+	}
+	
+	@Override
+	public X500Principal getIssuerX500Principal()
+	{
+		load(ISSUER);
 		return issuer;
 	}
 
 	public void setIssuer(X500Principal issuer)
 	{
+		modified();
 		this.issuer = issuer;
 	}
 	
 	@Override
 	public Principal getSubjectDN()
 	{
+		return getSubjectX500Principal();
+	}
+	
+	@Override
+	public X500Principal getSubjectX500Principal()
+	{
+		load(SUBJECT);
 		return subject;
 	}
 	
 	public void setSubject(X500Principal subject)
 	{
+		modified();
 		this.subject = subject;
 	}
 
 	@Override
 	public BigInteger getSerialNumber()
 	{
+		load(SERIAL_NUMBER);
 		return serialNumber;
 	}
 	
 	public void setSerialNumber(BigInteger serialNumber)
 	{
+		modified();
 		this.serialNumber = serialNumber;
 	}
 	
 	@Override
 	public Date getNotBefore()
 	{
+		load(VALIDITY);
 		return notBefore;
 	}
 
 	public void setNotBefore(Date notBefore)
 	{
+		modified();
 		this.notBefore = notBefore;
 	}
 
 	@Override
 	public Date getNotAfter()
 	{
+		load(VALIDITY);
 		return notAfter;
 	}
 
 	public void setNotAfter(Date notAfter)
 	{
+		modified();
 		this.notAfter = notAfter;
 	}
 	
 	@Override
 	public boolean[] getIssuerUniqueID()
 	{
-		return issuerUniqueID;
+		load(UNIQUE_IDS);
+		return issuerUniqueID == null ? null : issuerUniqueID.toBooleanArray();
 	}
 
-	public void setIssuerUniqueID(boolean[] issuerUniqueID)
+	public void setIssuerUniqueID(BitString issuerUniqueID)
 	{
+		modified();
 		this.issuerUniqueID = issuerUniqueID;
 	}
 
 	@Override
 	public boolean[] getSubjectUniqueID()
 	{
-		return subjectUniqueID;
+		load(UNIQUE_IDS);
+		return subjectUniqueID == null ? null
+				: subjectUniqueID.toBooleanArray();
 	}
 	
-	public void setSubjectUniqueID(boolean[] subjectUniqueID)
+	public void setSubjectUniqueID(BitString subjectUniqueID)
 	{
+		modified();
 		this.subjectUniqueID = subjectUniqueID;
 	}
 
@@ -221,18 +342,20 @@ extends X509Certificate
 	{
 		if (basicConstraints == null)
 			basicConstraints = X509ExtensionEntries.getBasicConstraints(
-					extensions);
+					getExtensions());
 		return basicConstraints;
 	}
 	
 	@Override
 	public boolean[] getKeyUsage()
 	{
-		if (!keyUsageLoaded)
-		{
-			keyUsage = X509ExtensionEntries.getKeyUsage(extensions);
-			keyUsageLoaded = true;
-		}
+		BitString ku = getKeyUsageBits();
+		return ku == null ? null : ku.toBooleanArray();
+	}
+	
+	public BitString getKeyUsageBits()
+	{
+		load(KEY_USAGE);
 		return keyUsage;
 	}
 	
@@ -240,12 +363,7 @@ extends X509Certificate
 	public List<String> getExtendedKeyUsage()
 	throws CertificateParsingException
 	{
-		if (!extendedKeyUsageLoaded)
-		{
-			extendedKeyUsage = X509ExtensionEntries.getExtendedKeyUsage(
-					extensions);
-			extendedKeyUsageLoaded = true;
-		}
+		load(EXTENDED_KEY_USAGE);
 		return extendedKeyUsage;
 	}
 
@@ -264,21 +382,35 @@ extends X509Certificate
 	@Override
 	public byte[] getExtensionValue(String oid)
 	{
-		for (X509ExtensionEntry extension : extensions)
+		for (X509ExtensionEntry extension : getExtensions())
 			if (oid.equals(extension.getOID()))
 				return extension.getValue();
 		return null;
 	}
 	
+	Set<X509ExtensionEntry> getExtensions()
+	{
+		load(EXTENSIONS);
+		return extensions;
+	}
+	
 	public void setExtensions(Set<X509ExtensionEntry> extensions)
 	{
-		this.extensions = extensions;
+		modified();
+		synchronized (this)
+		{
+			this.extensions = extensions;
+			basicConstraints = null;
+			keyUsage = null;
+			extendedKeyUsage = null;
+			pending |= EXTENSION_USAGES;
+		}
 	}
 	
 	@Override
 	public boolean hasUnsupportedCriticalExtension()
 	{
-		for (X509ExtensionEntry extension : extensions)
+		for (X509ExtensionEntry extension : getExtensions())
 			if (extension.isCritical()
 					&& !X509ExtensionEntries.supportedExtension(extension))
 				return true;
@@ -302,14 +434,18 @@ extends X509Certificate
 	@Override
 	public String getSigAlgName()
 	{
-		if (digestAlgorithm == null || digestAlgorithm.isEmpty())
-			throw new IllegalStateException("Empty digest algorithm");
-		
-		StringBuilder sb = new StringBuilder();
-		sb.append(digestAlgorithm.toUpperCase());
-		sb.append(" with ");
-		sb.append(publicKey.getAlgorithm().toUpperCase());
-		return sb.toString();
+		if (sigAlgName == null)
+		{
+			if (digestAlgorithm == null || digestAlgorithm.isEmpty())
+				throw new IllegalStateException("Empty digest algorithm");
+			
+			StringBuilder sb = new StringBuilder();
+			sb.append(digestAlgorithm.toUpperCase());
+			sb.append("with");
+			sb.append(getPublicKey().getAlgorithm().toUpperCase());
+			sigAlgName = sb.toString();
+		}
+		return sigAlgName;
 	}
 	
 	@Override
@@ -318,10 +454,12 @@ extends X509Certificate
 	{
 		if (encoded == null)
 		{
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(
-					ENCODE_BUF_SIZE);
-			try (BEROutputStream out = new BEROutputStream(baos))
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			DEROutputStream out = X509ExtensionEntries.derOutputPool.take();
+			try
 			{
+				out.reset(baos);
+				
 				// Certificate sequence
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_SEQUENCE, true));
@@ -335,10 +473,13 @@ extends X509Certificate
 				// Signature value
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_BIT_STRING, false));
+				out.write(0x00);
 				out.write(getSignature());
-				out.conclude(true);
+				out.conclude();
 				
-				out.conclude(true);
+				out.conclude();
+				out.flush();
+				encoded = baos.toByteArray();
 			}
 			catch (IOException | BEREncodingException exception)
 			{
@@ -347,22 +488,30 @@ extends X509Certificate
 			}
 			finally
 			{
-				encoded = baos.toByteArray();
+				X509ExtensionEntries.derOutputPool.release(out);
 			}
 		}
 		return encoded;
 	}
 
+	void setTBSCertificate(byte[] tbsCertificate)
+	{
+		this.tbsCertificate = tbsCertificate;
+		encoded = null;
+	}
+	
 	@Override
 	public byte[] getTBSCertificate()
 	throws CertificateEncodingException
 	{
 		if (tbsCertificate == null)
 		{
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(
-					TBS_BUF_SIZE);
-			try (BEROutputStream out = new BEROutputStream(baos))
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			DEROutputStream out = X509ExtensionEntries.derOutputPool.take();
+			try
 			{
+				out.reset(baos);
+				
 				// Certificate sequence
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_SEQUENCE, true));
@@ -371,15 +520,15 @@ extends X509Certificate
 				out.writeTag(new ASN1Tag(ASN1Class.CONTEXT_SPECIFIC, 0, true));
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_INTEGER, false));
-				out.writeInteger(BigInteger.valueOf(VERSION3));
-				out.conclude(true);
-				out.conclude(true);
+				out.writeInteger(VERSION3);
+				out.conclude();
+				out.conclude();
 				
 				// Serial number
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_INTEGER, false));
 				out.writeInteger(serialNumber);
-				out.conclude(true);
+				out.conclude();
 				
 				// Signature algorithm
 				writeSignatureAlgorithm(out);
@@ -390,15 +539,9 @@ extends X509Certificate
 				// Validity
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_SEQUENCE, true));
-				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
-						ASN1Tag.TN_UTC_TIME, false));
-				out.writeUTCTime(notBefore);
-				out.conclude(true);
-				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
-						ASN1Tag.TN_UTC_TIME, false));
-				out.writeUTCTime(notAfter);
-				out.conclude(true);
-				out.conclude(true);
+				writeTime(out, notBefore);
+				writeTime(out, notAfter);
+				out.conclude();
 				
 				// Subject name
 				out.writeRaw(subject.getEncoded());
@@ -407,10 +550,10 @@ extends X509Certificate
 				out.writeRaw(publicKey.getEncoded());
 				
 				// Issuer unique ID
-				writeUniqueID(out, getIssuerUniqueID(), 1);
+				writeUniqueID(out, issuerUniqueID, 1);
 				
 				// Subject unique ID
-				writeUniqueID(out, getSubjectUniqueID(), 2);
+				writeUniqueID(out, subjectUniqueID, 2);
 				
 				// Extensions
 				if (!extensions.isEmpty())
@@ -421,33 +564,44 @@ extends X509Certificate
 					// Extensions sequence
 					out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 							ASN1Tag.TN_SEQUENCE, true));
-					for (X509ExtensionEntry extension : extensions)
+					for (X509ExtensionEntry extension : sortedExtensions())
 					{
+						// Extension sequence
+						out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+								ASN1Tag.TN_SEQUENCE, true));
+						
 						// Extension OID
 						out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 								ASN1Tag.TN_OBJECT_INDENTIFIER, false));
 						out.writeObjectIdentifier(OID.parseOID(
 								extension.getOID()));
-						out.conclude(true);
+						out.conclude();
 						
-						// Extension critical
-						out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
-								ASN1Tag.TN_BOOLEAN, false));
-						out.writeBoolean(extension.isCritical());
-						out.conclude(true);
+						// Extension critical, omitted when it is the default
+						if (extension.isCritical())
+						{
+							out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+									ASN1Tag.TN_BOOLEAN, false));
+							out.writeBoolean(true);
+							out.conclude();
+						}
 						
 						// Extension value
 						out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 								ASN1Tag.TN_OCTET_STRING, false));
 						out.writeOctetString(extension.getValue());
-						out.conclude(true);
+						out.conclude();
+						
+						out.conclude();
 					}
-					out.conclude(true);
+					out.conclude();
 					
-					out.conclude(true);
+					out.conclude();
 				}
 				
-				out.conclude(true);
+				out.conclude();
+				out.flush();
+				tbsCertificate = baos.toByteArray();
 			}
 			catch (IOException | BEREncodingException exception)
 			{
@@ -456,7 +610,7 @@ extends X509Certificate
 			}
 			finally
 			{
-				tbsCertificate = baos.toByteArray();
+				X509ExtensionEntries.derOutputPool.release(out);
 			}
 		}
 		return tbsCertificate;
@@ -475,7 +629,9 @@ extends X509Certificate
 	{
 		try
 		{
-			return sigAlgParams == null ? null : sigAlgParams.getEncoded();
+			if (sigAlgParams == null)
+				return sigAlgParamsEncoding;
+			return sigAlgParams.getEncoded();
 		}
 		catch (IOException exception)
 		{
@@ -485,12 +641,16 @@ extends X509Certificate
 	
 	public void setSigAlgParams(AlgorithmParameters sigAlgParams)
 	{
+		modified();
 		this.sigAlgParams = sigAlgParams;
+		sigAlgParamsEncoding = null;
 	}
 
 	public void setDigestAlgorithm(String digestAlgorithm)
 	{
+		modified();
 		this.digestAlgorithm = digestAlgorithm;
+		sigAlgName = null;
 	}
 	
 	@Override
@@ -504,6 +664,7 @@ extends X509Certificate
 	public void checkValidity(Date date)
 	throws CertificateNotYetValidException, CertificateExpiredException
 	{
+		load(VALIDITY);
 		if (date.before(notBefore))
 		{
 			StringBuilder sb = new StringBuilder();
@@ -537,14 +698,10 @@ extends X509Certificate
 	throws CertificateException, NoSuchAlgorithmException, InvalidKeyException,
 			NoSuchProviderException, SignatureException
 	{
-		Signature signature = null;
-		if (sigProvider == null)
-			signature = Signature.getInstance(getSigAlgName());
-		else
-			signature = Signature.getInstance(getSigAlgName(), sigProvider);
-		signature.initVerify(key);
+		Signature signature = SignatureCache.verification(getSigAlgName(),
+				sigProvider, key);
 		signature.update(getTBSCertificate());
-		if (!signature.verify(signatureBytes))
+		if (!signature.verify(getSignature()))
 		{
 			StringBuilder sb = new StringBuilder();
 			sb.append("Invalid public key for ");
@@ -559,8 +716,15 @@ extends X509Certificate
 	{
 		Signature signature = Signature.getInstance(getSigAlgName());
 		signature.initSign(privateKey);
+		sign(signature);
+	}
+
+	public void sign(Signature signature)
+	throws SignatureException, CertificateEncodingException
+	{
 		signature.update(getTBSCertificate());
 		signatureBytes = signature.sign();
+		encoded = null;
 	}
 
 	@Override
@@ -568,24 +732,122 @@ extends X509Certificate
 	{
 		StringBuilder sb = new StringBuilder();
 		sb.append("X509 Certificate (");
-		sb.append(String.format("%X", serialNumber));
+		sb.append(String.format("%X", getSerialNumber()));
 		sb.append(") ");
-		sb.append(subject);
+		sb.append(getSubjectX500Principal());
 		sb.append(" issued by ");
-		sb.append(issuer);
+		sb.append(getIssuerX500Principal());
 		return sb.toString();
 	}
 	
+	/*
+	 * Some field is about to change, so kept encodings and signature do not
+	 * match it anymore and certificate must be signed again. Decoded
+	 * instances decode all of their fields first, since their source
+	 * encoding is dropped too.
+	 */
+	private void modified()
+	{
+		load(ALL_FIELDS);
+		tbsNode = null;
+		tbsCertificate = null;
+		signatureBytes = null;
+		encoded = null;
+	}
+	
+	/*
+	 * Decode the given fields unless they have been already decoded or set.
+	 */
+	private void load(int fields)
+	{
+		if ((pending & fields) != 0)
+			synchronized (this)
+			{
+				int missing = pending & fields;
+				if (missing != 0)
+				{
+					try
+					{
+						decodeFields(missing);
+					}
+					catch (BEREncodingException | GeneralSecurityException
+							| IllegalArgumentException exception)
+					{
+						throw new IllegalStateException(
+								"Invalid certificate field", exception);
+					}
+					pending &= ~missing;
+				}
+			}
+	}
+	
+	private void decodeFields(int fields)
+	throws BEREncodingException, GeneralSecurityException
+	{
+		if ((fields & SERIAL_NUMBER) != 0)
+			serialNumber = tbsNode.getChild(1).decoder().readInteger();
+		if ((fields & ISSUER) != 0)
+			issuer = new X500Principal(tbsNode.getChild(3).readEncoded());
+		if ((fields & VALIDITY) != 0)
+		{
+			Validity validity = Validity.decode(
+					tbsNode.getChild(4).decoder());
+			notAfter = time(validity.notAfter);
+			notBefore = time(validity.notBefore);
+		}
+		if ((fields & SUBJECT) != 0)
+			subject = new X500Principal(tbsNode.getChild(5).readEncoded());
+		if ((fields & PUBLIC_KEY) != 0)
+		{
+			ASN1Node spki = tbsNode.getChild(6);
+			int i = keyAlgMatcher.match(spki.getDescendant(0, 0).decoder());
+			KeyFactory factory = KeyFactory.getInstance(keyAlgNames[i]);
+			publicKey = factory.generatePublic(new X509EncodedKeySpec(
+					spki.readEncoded()));
+		}
+		
+		// Optional trailing fields
+		int count = (fields & (UNIQUE_IDS | EXTENSIONS)) != 0
+				? tbsNode.getChildCount() : 0;
+		for (int i = 7; i < count; ++i)
+		{
+			ASN1Node node = tbsNode.getChild(i);
+			switch (node.getTagNumber())
+			{
+			case 1:
+				if ((fields & UNIQUE_IDS) != 0)
+					issuerUniqueID = node.decoder().readBitString();
+				break;
+			case 2:
+				if ((fields & UNIQUE_IDS) != 0)
+					subjectUniqueID = node.decoder().readBitString();
+				break;
+			default:
+				if ((fields & EXTENSIONS) != 0)
+					extensions = decodeExtensions(node.getChild(0));
+			}
+		}
+		
+		// Extensions are decoded above or by a nested load
+		if ((fields & EXTENSION_USAGES) != 0 && (fields & EXTENSIONS) == 0)
+			load(EXTENSIONS);
+		if ((fields & KEY_USAGE) != 0)
+			keyUsage = X509ExtensionEntries.getKeyUsage(extensions);
+		if ((fields & EXTENDED_KEY_USAGE) != 0)
+			extendedKeyUsage = X509ExtensionEntries.getExtendedKeyUsage(
+					extensions);
+	}
+	
 	private Set<String> getExtensionOIDs(boolean critical)
 	{
 		Set<String> extensionOIDs = new HashSet<String>();
-		for (X509ExtensionEntry extension : extensions)
+		for (X509ExtensionEntry extension : getExtensions())
 			if (extension.isCritical() == critical)
 				extensionOIDs.add(extension.getOID());
 		return Collections.unmodifiableSet(extensionOIDs);
 	}
 	
-	private void writeSignatureAlgorithm(BEROutputStream out)
+	private void writeSignatureAlgorithm(DEROutputStream out)
 	throws IOException, BEREncodingException
 	{
 		out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
@@ -593,7 +855,7 @@ extends X509Certificate
 		out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 				ASN1Tag.TN_OBJECT_INDENTIFIER, false));
 		out.writeObjectIdentifier(OID.parseOID(getSigAlgOID()));
-		out.conclude(true);
+		out.conclude();
 		byte[] algParams = getSigAlgParams();
 		if (algParams != null)
 			out.writeRaw(algParams);
@@ -601,12 +863,172 @@ extends X509Certificate
 		{
 			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 					ASN1Tag.TN_NULL, false));
-			out.conclude(true);
+			out.conclude();
+		}
+		out.conclude();
+	}
+	
+	static byte[] encodeValidity(Date notBefore, Date notAfter)
+	throws CertificateEncodingException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DEROutputStream out = X509ExtensionEntries.derOutputPool.take();
+		try
+		{
+			out.reset(baos);
+			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_SEQUENCE, true));
+			writeTime(out, notBefore);
+			writeTime(out, notAfter);
+			out.conclude();
+			out.flush();
+			return baos.toByteArray();
+		}
+		catch (IOException | BEREncodingException exception)
+		{
+			throw new CertificateEncodingException(exception);
+		}
+		finally
+		{
+			X509ExtensionEntries.derOutputPool.release(out);
+		}
+	}
+	
+	private static void writeTime(DEROutputStream out, Date time)
+	throws IOException, BEREncodingException
+	{
+		// UTC time until 2049, generalized time since 2050 (RFC 5280)
+		long t = time.getTime();
+		if (TimeCodec.isUTCTime(t))
+		{
+			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_UTC_TIME, false));
+			out.writeUTCTime(t);
+		}
+		else
+		{
+			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_GENERALIZED_TIME, false));
+			// Fraction of second is dropped towards the past (floor)
+			out.writeGeneralizedTime(t - ((t % 1000l) + 1000l) % 1000l);
 		}
-		out.conclude(true);
+		out.conclude();
+	}
+	
+	/*
+	 * Extensions in OID order, so equal certificates have equal encodings
+	 * whatever the set implementation is.
+	 */
+	private List<X509ExtensionEntry> sortedExtensions()
+	{
+		List<X509ExtensionEntry> sorted = new ArrayList<>(extensions);
+		Collections.sort(sorted, new Comparator<X509ExtensionEntry>()
+		{
+			@Override
+			public int compare(X509ExtensionEntry e1, X509ExtensionEntry e2)
+			{
+				return e1.getOID().compareTo(e2.getOID());
+			}
+		});
+		return sorted;
+	}
+	
+	/*
+	 * Check the TBS certificate structure, so only field values are left to
+	 * be decoded.
+	 */
+	private static void checkTBSCertificate(ASN1Node tbs)
+	throws CertificateParsingException, BEREncodingException
+	{
+		int count = tbs.getChildCount();
+		if (!tbs.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true)
+				|| count < 7)
+			throw new CertificateParsingException("Not a TBS certificate");
+		
+		// Version 3
+		ASN1Node version = tbs.getChild(0);
+		if (!version.isTag(ASN1Class.CONTEXT_SPECIFIC, 0, true)
+				|| version.getChildCount() != 1
+				|| version.getChild(0).decoder().readLong() != VERSION3)
+			throw new CertificateParsingException(
+					"Not a version 3 certificate");
+		
+		// Serial number and sequences up to subject public key info
+		if (!tbs.getChild(1).isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER,
+				false))
+			throw new CertificateParsingException("Serial number expected");
+		for (int i = 2; i < 7; ++i)
+			if (!tbs.getChild(i).isTag(ASN1Class.UNIVERSAL,
+					ASN1Tag.TN_SEQUENCE, true))
+				throw new CertificateParsingException("Sequence expected");
+		if (keyAlgMatcher.match(tbs.getDescendant(6, 0, 0).decoder()) < 0)
+			throw new CertificateParsingException(
+					"Unsupported public key algorithm");
+		
+		// Unique identifiers and extensions, in order
+		int last = 0;
+		for (int i = 7; i < count; ++i)
+		{
+			ASN1Node node = tbs.getChild(i);
+			int number = node.getTagNumber();
+			if (node.getTagClass() != ASN1Class.CONTEXT_SPECIFIC
+					|| number <= last || number > 3
+					|| node.isConstructed() != (number == 3)
+					|| (number == 3 && node.getChildCount() != 1))
+				throw new CertificateParsingException(
+						"Unexpected TBS certificate field");
+			last = number;
+		}
+	}
+	
+	private void decodeSignatureAlgorithm(ASN1Node algorithm)
+	throws CertificateParsingException, BEREncodingException
+	{
+		if (!algorithm.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true)
+				|| algorithm.getChildCount() < 1)
+			throw new CertificateParsingException(
+					"Signature algorithm expected");
+		
+		BERDecoder d = algorithm.getChild(0).decoder();
+		int i = sigAlgMatcher.match(d);
+		if (i < 0)
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("Unsupported signature algorithm ");
+			sb.append(d.readObjectIdentifier());
+			throw new CertificateParsingException(sb.toString());
+		}
+		sigAlgName = sigAlgNames[i];
+		digestAlgorithm = sigAlgName.substring(0, sigAlgName.indexOf("with"));
+		
+		if (algorithm.getChildCount() > 1)
+		{
+			ASN1Node params = algorithm.getChild(1);
+			if (!params.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_NULL, false))
+				sigAlgParamsEncoding = params.readEncoded();
+		}
+	}
+	
+	private static Set<X509ExtensionEntry> decodeExtensions(ASN1Node node)
+	throws BEREncodingException
+	{
+		Set<X509ExtensionEntry> extensions = new HashSet<>();
+		for (ASN1Node child : node.getChildren())
+		{
+			Extension extension = Extension.decode(child.decoder());
+			extensions.add(X509ExtensionEntries.createExtension(
+					extension.extnID.toString(), extension.critical,
+					extension.extnValue));
+		}
+		return extensions;
+	}
+	
+	private static Date time(Time time)
+	{
+		return time.utcTime != null ? time.utcTime : time.generalTime;
 	}
 	
-	private static void writeUniqueID(BEROutputStream out, boolean[] uniqueID,
+	private static void writeUniqueID(DEROutputStream out, BitString uniqueID,
 			int tagNumber)
 	throws IOException, BEREncodingException
 	{
@@ -615,7 +1037,7 @@ extends X509Certificate
 			out.writeTag(new ASN1Tag(ASN1Class.CONTEXT_SPECIFIC, tagNumber,
 					false));
 			out.writeBitString(uniqueID);
-			out.conclude(true);
+			out.conclude();
 		}
 	}
 }
\ No newline at end of file
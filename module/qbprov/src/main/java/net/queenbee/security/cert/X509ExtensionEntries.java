@@ -17,7 +17,6 @@
 
 package net.queenbee.security.cert;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -27,10 +26,13 @@ import java.util.Set;
 
 import net.queenbee.asn1.ASN1Class;
 import net.queenbee.asn1.ASN1Tag;
+import net.queenbee.asn1.BitString;
 import net.queenbee.asn1.OID;
+import net.queenbee.asn1.io.BERDecoder;
+import net.queenbee.asn1.io.CodecPool;
 import net.queenbee.asn1.io.BEREncodingException;
-import net.queenbee.asn1.io.BERInputStream;
-import net.queenbee.asn1.io.BEROutputStream;
+import net.queenbee.asn1.io.DEROutputStream;
+import net.queenbee.security.cert.asn1.BasicConstraintsSyntax;
 
 public class X509ExtensionEntries
 {
@@ -40,17 +42,37 @@ public class X509ExtensionEntries
 	
 	private static final OID[] supportedExtensionOIDs;
 	
+	private static final int OUTPUT_POOL_SIZE = 16;
+	
+	static final CodecPool<DEROutputStream> derOutputPool;
+	
 	static
 	{
 		OID certExtOID = new OID(OID.JOINT_DS, 29);
-		BASIC_CONSTRAINTS_OID = new OID(certExtOID, 19);
-		KEY_USAGE_OID = new OID(certExtOID, 15);
-		EXTENDED_KEY_USAGE_OID = new OID(certExtOID, 37);
+		BASIC_CONSTRAINTS_OID = new OID(certExtOID, 19).intern();
+		KEY_USAGE_OID = new OID(certExtOID, 15).intern();
+		EXTENDED_KEY_USAGE_OID = new OID(certExtOID, 37).intern();
 		
 		supportedExtensionOIDs = new OID[3];
 		supportedExtensionOIDs[0] = BASIC_CONSTRAINTS_OID;
 		supportedExtensionOIDs[1] = KEY_USAGE_OID;
 		supportedExtensionOIDs[2] = EXTENDED_KEY_USAGE_OID;
+		
+		derOutputPool = new CodecPool<DEROutputStream>(OUTPUT_POOL_SIZE)
+		{
+			@Override
+			protected DEROutputStream create()
+			{
+				return new DEROutputStream(null);
+			}
+			
+			@Override
+			protected void clear(DEROutputStream out)
+			throws IOException
+			{
+				out.reset(null);
+			}
+		};
 	}
 	
 	private X509ExtensionEntries()
@@ -60,7 +82,7 @@ public class X509ExtensionEntries
 	public static boolean supportedExtension(X509ExtensionEntry extension)
 	{
 		for (OID supportedExtensionOID : supportedExtensionOIDs)
-			if (supportedExtensionOID.equals(OID.parseOID(extension.getOID())))
+			if (supportedExtensionOID.toString().equals(extension.getOID()))
 				return true;
 		return false;
 	}
@@ -72,52 +94,41 @@ public class X509ExtensionEntries
 		if (extension == null)
 			return -1;
 		
-		try (BERInputStream in = openExtensionValue(extension))
+		try
 		{
-			// Must be a sequence
-			ASN1Tag tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_SEQUENCE, true)))
+			BERDecoder d = openExtensionValue(extension);
+			if (!BasicConstraintsSyntax.matches(d))
 				return -1;
 			
-			// Check for CA
-			tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BOOLEAN,
-					false)) || !in.readBoolean())
+			BasicConstraintsSyntax bc = BasicConstraintsSyntax.decode(d);
+			if (!bc.cA)
 				return -1;
-			in.skip();
-			
-			// Get path length constraint
-			tag = in.readTag();
-			if (tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_INTEGER,
-					false)))
-				return in.readInteger().intValue();
-			
+			if (bc.pathLenConstraint != null)
+				return bc.pathLenConstraint.intValue();
 			return Integer.MAX_VALUE;
 		}
-		catch (IOException | BEREncodingException exception)
+		catch (BEREncodingException exception)
 		{
 			return -1;
 		}
 	}
 	
-	public static boolean[] getKeyUsage(Set<X509ExtensionEntry> extenstions)
+	public static BitString getKeyUsage(Set<X509ExtensionEntry> extenstions)
 	{
 		X509ExtensionEntry extension = findExtension(extenstions,
 				KEY_USAGE_OID);
 		if (extension == null)
 			return null;
 		
-		try (BERInputStream in = openExtensionValue(extension))
+		try
 		{
-			ASN1Tag tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_BIT_STRING, false)))
+			BERDecoder d = openExtensionValue(extension);
+			if (!d.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING, false))
 				return null;
 			
-			return in.readBitString();
+			return d.readBitString();
 		}
-		catch (IOException | BEREncodingException exception)
+		catch (BEREncodingException exception)
 		{
 			return null;
 		}
@@ -131,31 +142,27 @@ public class X509ExtensionEntries
 		if (extension == null)
 			return null;
 			
-		try (BERInputStream in = openExtensionValue(extension))
+		try
 		{
 			// Must be a sequence
-			ASN1Tag tag = in.readTag();
-			if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-					ASN1Tag.TN_SEQUENCE, true)))
+			BERDecoder d = openExtensionValue(extension);
+			if (!d.isTag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE, true))
 				return null;
 			
 			List<String> extKeyUsageList = new ArrayList<>();
-			tag = in.readTag();
-			while (!tag.isEOC())
+			d.enter();
+			while (d.next())
 			{
-				if (!tag.equals(new ASN1Tag(ASN1Class.UNIVERSAL,
-						ASN1Tag.TN_OBJECT_INDENTIFIER, false)))
+				if (!d.isTag(ASN1Class.UNIVERSAL,
+						ASN1Tag.TN_OBJECT_INDENTIFIER, false))
 					return null;
 				
-				OID oid = in.readObjectIdentifier();
-				in.skip();
-				extKeyUsageList.add(oid.toString());
-				
-				tag = in.readTag();
+				extKeyUsageList.add(d.readObjectIdentifier().toString());
 			}
+			d.exit();
 			return extKeyUsageList;
 		}
-		catch (IOException | BEREncodingException exception)
+		catch (BEREncodingException exception)
 		{
 			return null;
 		}
@@ -167,7 +174,7 @@ public class X509ExtensionEntries
 		return new BasicConstraints(bc, critical);
 	}
 	
-	public static X509ExtensionEntry createKeyUsage(boolean[] ku,
+	public static X509ExtensionEntry createKeyUsage(BitString ku,
 			boolean critical)
 	{
 		return new KeyUsage(ku, critical);
@@ -179,20 +186,28 @@ public class X509ExtensionEntries
 		return new ExtendedKeyUsage(eku, critical);
 	}
 	
+	public static X509ExtensionEntry createExtension(String oid,
+			boolean critical, byte[] value)
+	{
+		return new RawExtension(oid, critical, value);
+	}
+	
 	private static X509ExtensionEntry findExtension(
 			Set<X509ExtensionEntry> extensions, OID oid)
 	{
 		for (X509ExtensionEntry extension : extensions)
-			if (oid.equals(OID.parseOID(extension.getOID())))
+			if (oid.toString().equals(extension.getOID()))
 				return extension;
 		return null;
 	}
 	
-	private static BERInputStream openExtensionValue(
-			X509ExtensionEntry extension)
+	private static BERDecoder openExtensionValue(X509ExtensionEntry extension)
+	throws BEREncodingException
 	{
-		return new BERInputStream(new ByteArrayInputStream(
-				extension.getValue()));
+		BERDecoder d = new BERDecoder(extension.getValue());
+		if (!d.next())
+			throw new BEREncodingException("Empty extension value");
+		return d;
 	}
 	
 	private static abstract class X509ExtensionEntryBase
@@ -214,9 +229,12 @@ public class X509ExtensionEntries
 			if (value == null)
 			{
 				ByteArrayOutputStream baos = new ByteArrayOutputStream();
-				try (BEROutputStream out = new BEROutputStream(baos))
+				DEROutputStream out = derOutputPool.take();
+				try
 				{
+					out.reset(baos);
 					encodeValue(out);
+					out.flush();
 				}
 				catch (IOException | BEREncodingException exception)
 				{
@@ -224,16 +242,37 @@ public class X509ExtensionEntries
 				}
 				finally
 				{
+					derOutputPool.release(out);
 					value = baos.toByteArray();
 				}
 			}
 			return value;
 		}
 		
-		protected abstract void encodeValue(BEROutputStream out)
+		protected abstract void encodeValue(DEROutputStream out)
 		throws IOException, BEREncodingException;
 	}
 	
+	private static class RawExtension
+	extends X509ExtensionEntry
+	{
+		private static final long serialVersionUID = 2319873544028213546L;
+		
+		private byte[] value;
+		
+		public RawExtension(String oid, boolean critical, byte[] value)
+		{
+			super(oid, critical);
+			this.value = value;
+		}
+		
+		@Override
+		public byte[] getValue()
+		{
+			return value;
+		}
+	}
+	
 	private static class BasicConstraints
 	extends X509ExtensionEntryBase
 	{
@@ -248,29 +287,14 @@ public class X509ExtensionEntries
 		}
 
 		@Override
-		protected void encodeValue(BEROutputStream out)
+		protected void encodeValue(DEROutputStream out)
 		throws IOException, BEREncodingException
 		{
-			// Sequence
-			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_SEQUENCE,
-					true));
-			
-			// CA
-			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BOOLEAN,
-					false));
-			out.writeBoolean(bc >= 0);
-			out.conclude(true);
-			
-			// Path length constraint
-			if (bc < Integer.MAX_VALUE)
-			{
-				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
-						ASN1Tag.TN_INTEGER, false));
-				out.writeInteger(BigInteger.valueOf(bc));
-				out.conclude(true);
-			}
-			
-			out.conclude(true);
+			BasicConstraintsSyntax value = new BasicConstraintsSyntax();
+			value.cA = bc >= 0;
+			if (bc >= 0 && bc < Integer.MAX_VALUE)
+				value.pathLenConstraint = BigInteger.valueOf(bc);
+			value.encode(out);
 		}
 	}
 	
@@ -279,23 +303,23 @@ public class X509ExtensionEntries
 	{
 		private static final long serialVersionUID = 4568156270883286101L;
 		
-		private boolean[] ku;
+		private BitString ku;
 		
-		public KeyUsage(boolean[] ku, boolean critical)
+		public KeyUsage(BitString ku, boolean critical)
 		{
 			super(KEY_USAGE_OID.toString(), critical);
 			this.ku = ku;
 		}
 
 		@Override
-		protected void encodeValue(BEROutputStream out)
+		protected void encodeValue(DEROutputStream out)
 		throws IOException, BEREncodingException
 		{
-			// Bit string
+			// Named bit list, without trailing zero bits
 			out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL, ASN1Tag.TN_BIT_STRING,
 					false));
-			out.writeBitString(ku);
-			out.conclude(true);
+			out.writeBitString(ku.trimmed());
+			out.conclude();
 		}
 	}
 	
@@ -313,7 +337,7 @@ public class X509ExtensionEntries
 		}
 
 		@Override
-		protected void encodeValue(BEROutputStream out)
+		protected void encodeValue(DEROutputStream out)
 		throws IOException, BEREncodingException
 		{
 			// Sequence
@@ -326,10 +350,10 @@ public class X509ExtensionEntries
 				out.writeTag(new ASN1Tag(ASN1Class.UNIVERSAL,
 						ASN1Tag.TN_OBJECT_INDENTIFIER, false));
 				out.writeObjectIdentifier(OID.parseOID(oid));
-				out.conclude(true);
+				out.conclude();
 			}
 			
-			out.conclude(true);
+			out.conclude();
 		}
 	}
 }
\ No newline at end of file